@@ -0,0 +1,106 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import hu.javaforum.commons.DateTimeHelper;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the thread local SimpleDateFormat based date formatting (the
+ * former CommonBean.appendValue path) and parsing with the DateTimeHelper.
+ *
+ * @author sabo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateFormatBenchmark
+{
+
+  /**
+   * The thread local formatter, like the CommonBeanHelper.DATETIME_FORMAT.
+   */
+  private static final ThreadLocal<SimpleDateFormat> DATETIME_FORMAT = new ThreadLocal<SimpleDateFormat>()
+  {
+
+    @Override
+    protected SimpleDateFormat initialValue()
+    {
+      return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.ENGLISH);
+    }
+  };
+  /**
+   * The formatted date.
+   */
+  private final Date date = new Date(1294322908000L);
+  /**
+   * The output buffer.
+   */
+  private final StringBuilder sb = new StringBuilder(64);
+
+  /**
+   * Formats with the SimpleDateFormat, and appends the text.
+   *
+   * @return The buffer
+   */
+  @Benchmark
+  public StringBuilder simpleDateFormat()
+  {
+    sb.setLength(0);
+    return sb.append(DATETIME_FORMAT.get().format(date));
+  }
+
+  /**
+   * Appends with the DateTimeHelper.
+   *
+   * @return The buffer
+   */
+  @Benchmark
+  public StringBuilder dateTimeHelper()
+  {
+    sb.setLength(0);
+    DateTimeHelper.appendDateTime(sb, date);
+    return sb;
+  }
+
+  /**
+   * Parses with a new SimpleDateFormat (the former ReflectionHelper path).
+   *
+   * @return The date
+   * @throws Exception If the text is not parseable
+   */
+  @Benchmark
+  public Date parseSimpleDateFormat() throws Exception
+  {
+    return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.ENGLISH).parse("2011-01-06T14:08:28+0100");
+  }
+
+  /**
+   * Parses with the DateTimeHelper.
+   *
+   * @return The date
+   * @throws Exception If the text is not parseable
+   */
+  @Benchmark
+  public Date parseDateTimeHelper() throws Exception
+  {
+    return DateTimeHelper.parseDateTime("2011-01-06T14:08:28+0100");
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+/**
+ * The result element of the contrived-1.xml fixture.
+ *
+ * @author sabo
+ */
+public class DemoResult
+{
+
+  /**
+   * The demo object.
+   */
+  private DemoObj demoObj;
+
+  /**
+   * Gets the demo object.
+   *
+   * @return The demo object
+   */
+  public final DemoObj getDemoObj()
+  {
+    return demoObj;
+  }
+
+  /**
+   * Sets the demo object.
+   *
+   * @param demoObj The demo object
+   */
+  public final void setDemoObj(final DemoObj demoObj)
+  {
+    this.demoObj = demoObj;
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import hu.javaforum.android.soap.GenericHandler;
+import hu.javaforum.android.soap.ParserHelper;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replays the recorded events of the response to the GenericHandler, so the
+ * allocations of the handler (-prof gc) are measured without the XML parser.
+ * The expected allocations are the beans, the lists, and the leaf values.
+ *
+ * @author sabo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerEventsBenchmark
+{
+
+  /**
+   * The start tag event.
+   */
+  private static final int START_TAG = 0;
+  /**
+   * The text event.
+   */
+  private static final int TEXT = 1;
+  /**
+   * The end tag event.
+   */
+  private static final int END_TAG = 2;
+  /**
+   * The types of the events.
+   */
+  private int[] types;
+  /**
+   * The names of the tags.
+   */
+  private String[] names;
+  /**
+   * The texts.
+   */
+  private char[][] texts;
+
+  /**
+   * Records the events of the response.
+   *
+   * @param state The payloads
+   * @throws Exception If the response is not parseable
+   */
+  @Setup(Level.Trial)
+  public void setUp(final PayloadState state) throws Exception
+  {
+    final List<Integer> typeList = new ArrayList<Integer>();
+    final List<String> nameList = new ArrayList<String>();
+    final List<char[]> textList = new ArrayList<char[]>();
+
+    ParserHelper recorder = new ParserHelper()
+    {
+
+      @Override
+      public void startElement(final String name)
+      {
+        record(START_TAG, name);
+      }
+
+      @Override
+      public void endElement(final String name)
+      {
+        record(END_TAG, name);
+      }
+
+      private void record(final int type, final String name)
+      {
+        String text = getContent();
+        if (text != null)
+        {
+          typeList.add(TEXT);
+          nameList.add(null);
+          textList.add(text.toCharArray());
+        }
+        clearContent();
+
+        typeList.add(type);
+        nameList.add(name);
+        textList.add(null);
+      }
+    };
+    recorder.parseWithPullParser(new ByteArrayInputStream(state.response));
+
+    types = new int[typeList.size()];
+    for (int index = 0; index < types.length; index++)
+    {
+      types[index] = typeList.get(index);
+    }
+    names = nameList.toArray(new String[nameList.size()]);
+    texts = textList.toArray(new char[textList.size()][]);
+  }
+
+  /**
+   * Replays the events.
+   *
+   * @return The result
+   * @throws Exception If the result class can't be instantiated
+   */
+  @Benchmark
+  public Object replay() throws Exception
+  {
+    GenericHandler handler = new GenericHandler(DemoResult.class);
+    for (int index = 0; index < types.length; index++)
+    {
+      switch (types[index])
+      {
+        case START_TAG:
+          handler.startElement(names[index]);
+          break;
+        case END_TAG:
+          handler.endElement(names[index]);
+          break;
+        default:
+          handler.addText(texts[index], 0, texts[index].length);
+          break;
+      }
+    }
+
+    return handler.getObject();
+  }
+}
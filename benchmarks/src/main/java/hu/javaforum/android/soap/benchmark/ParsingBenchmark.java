@@ -0,0 +1,108 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import hu.javaforum.android.soap.ParseOptions;
+import hu.javaforum.android.soap.parser.ParserBackend;
+import hu.javaforum.android.soap.parser.Utf8ScannerBackend;
+import hu.javaforum.android.soap.parser.XmlPullParserBackend;
+import hu.javaforum.android.soap.stax.StaxParserBackend;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the response parsing with the parser backends: the XmlPull
+ * parser, the UTF-8 scanner, the StAX implementation of the JDK and Aalto.
+ *
+ * @author sabo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParsingBenchmark
+{
+
+  /**
+   * The name of the parser backend.
+   */
+  @Param(
+  {
+    "pull", "utf8", "stax", "aalto"
+  })
+  public String backend;
+  /**
+   * The parser backend.
+   */
+  private ParserBackend parserBackend;
+  /**
+   * The projection to the names of the demo object and its sub details.
+   */
+  private ParseOptions projection;
+
+  /**
+   * Creates the parser backend.
+   */
+  @Setup
+  public void setUp()
+  {
+    if ("utf8".equals(backend))
+    {
+      parserBackend = Utf8ScannerBackend.INSTANCE;
+    } else if ("stax".equals(backend))
+    {
+      parserBackend = new StaxParserBackend();
+    } else if ("aalto".equals(backend))
+    {
+      parserBackend = new StaxParserBackend(new InputFactoryImpl());
+    } else
+    {
+      parserBackend = XmlPullParserBackend.INSTANCE;
+    }
+
+    projection = new ParseOptions();
+    projection.addProjection("demoObj/myName");
+    projection.addProjection("demoObj/subDetail/myName");
+  }
+
+  /**
+   * Parses the response with the GenericHandler.
+   *
+   * @param state The payloads
+   * @return The result
+   * @throws Exception If the response is not parseable
+   */
+  @Benchmark
+  public DemoResult parse(final PayloadState state) throws Exception
+  {
+    return PayloadState.parse(state.response, parserBackend);
+  }
+
+  /**
+   * Parses only the names of the demo object and its sub details.
+   *
+   * @param state The payloads
+   * @return The result
+   * @throws Exception If the response is not parseable
+   */
+  @Benchmark
+  public DemoResult parseProjected(final PayloadState state) throws Exception
+  {
+    return PayloadState.parse(state.response, parserBackend, projection);
+  }
+}
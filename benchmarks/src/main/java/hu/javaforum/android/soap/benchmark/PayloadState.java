@@ -0,0 +1,195 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import hu.javaforum.android.soap.Envelope;
+import hu.javaforum.android.soap.GenericHandler;
+import hu.javaforum.android.soap.ParseOptions;
+import hu.javaforum.android.soap.impl.SimpleBody;
+import hu.javaforum.android.soap.impl.SimpleEnvelope;
+import hu.javaforum.android.soap.impl.SimpleHeader;
+import hu.javaforum.android.soap.parser.ParserBackend;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The payloads of the benchmarks: the contrived-1.xml fixture with 1, 100 or
+ * 10000 subDetail elements, the parsed result, and a request envelope which
+ * contains the parsed demo object.
+ *
+ * @author sabo
+ */
+@State(Scope.Benchmark)
+public class PayloadState
+{
+
+  /**
+   * The fixture of the response.
+   */
+  private static final String FIXTURE = "/hu/javaforum/android/androidsoap/test/contrived-1.xml";
+  /**
+   * The namespace of the fixture.
+   */
+  private static final String NAMESPACE = "urn:partner.soap.sforce.com";
+  /**
+   * The repeated element.
+   */
+  private static final String SUB_DETAIL_START = "<subDetail>";
+  /**
+   * The end of the repeated element.
+   */
+  private static final String SUB_DETAIL_END = "</subDetail>";
+  /**
+   * The number of the subDetail elements.
+   */
+  @Param(
+  {
+    "1", "100", "10000"
+  })
+  public int subDetails;
+  /**
+   * The response.
+   */
+  public byte[] response;
+  /**
+   * The parsed response.
+   */
+  public DemoResult result;
+  /**
+   * The request envelope.
+   */
+  public Envelope request;
+
+  /**
+   * Creates the payloads.
+   *
+   * @throws Exception If the fixture is not parseable
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception
+  {
+    response = createResponse(subDetails);
+    result = parse(response);
+
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("demoObj", result.getDemoObj());
+    request = new SimpleEnvelope(NAMESPACE);
+    request.setHeader(new SimpleHeader());
+    request.setBody(new SimpleBody("getDemo", parameters));
+  }
+
+  /**
+   * Parses the response.
+   *
+   * @param response The response
+   * @return The result
+   * @throws Exception If the response is not parseable
+   */
+  public static DemoResult parse(final byte[] response) throws Exception
+  {
+    GenericHandler handler = new GenericHandler(DemoResult.class);
+    handler.parseWithPullParser(new ByteArrayInputStream(response));
+
+    return (DemoResult) handler.getObject();
+  }
+
+  /**
+   * Parses the response with the parser backend.
+   *
+   * @param response The response
+   * @param backend The parser backend
+   * @return The result
+   * @throws Exception If the response is not parseable
+   */
+  public static DemoResult parse(final byte[] response, final ParserBackend backend) throws Exception
+  {
+    return parse(response, backend, null);
+  }
+
+  /**
+   * Parses the response with the parser backend and the parse options.
+   *
+   * @param response The response
+   * @param backend The parser backend
+   * @param parseOptions The parse options, it can be null
+   * @return The result
+   * @throws Exception If the response is not parseable
+   */
+  public static DemoResult parse(final byte[] response, final ParserBackend backend,
+          final ParseOptions parseOptions) throws Exception
+  {
+    GenericHandler handler = new GenericHandler(DemoResult.class, parseOptions);
+    handler.parse(new ByteArrayInputStream(response), backend);
+
+    return (DemoResult) handler.getObject();
+  }
+
+  /**
+   * Creates the response from the fixture: the subDetail elements are
+   * replaced with `count` copies of the first one.
+   *
+   * @param count The number of the subDetail elements
+   * @return The response
+   * @throws IOException If the fixture is not readable
+   */
+  public static byte[] createResponse(final int count) throws IOException
+  {
+    String fixture = new String(readFixture(), "UTF-8");
+
+    int first = fixture.lastIndexOf('\n', fixture.indexOf(SUB_DETAIL_START)) + 1;
+    int firstEnd = fixture.indexOf('\n', fixture.indexOf(SUB_DETAIL_END)) + 1;
+    int lastEnd = fixture.indexOf('\n', fixture.lastIndexOf(SUB_DETAIL_END)) + 1;
+    String template = fixture.substring(first, firstEnd);
+
+    StringBuilder sb = new StringBuilder(fixture.length() + count * template.length());
+    sb.append(fixture, 0, first);
+    for (int index = 1; index <= count; index++)
+    {
+      sb.append(template.replace("subdetail-1", "subdetail-" + index));
+    }
+    sb.append(fixture, lastEnd, fixture.length());
+
+    return sb.toString().getBytes("UTF-8");
+  }
+
+  /**
+   * Reads the fixture.
+   *
+   * @return The content of the fixture
+   * @throws IOException If the fixture is not readable
+   */
+  private static byte[] readFixture() throws IOException
+  {
+    InputStream is = PayloadState.class.getResourceAsStream(FIXTURE);
+    if (is == null)
+    {
+      throw new IOException("Fixture not found: " + FIXTURE);
+    }
+
+    try
+    {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read = is.read(buffer); read >= 0; read = is.read(buffer))
+      {
+        baos.write(buffer, 0, read);
+      }
+
+      return baos.toByteArray();
+    } finally
+    {
+      is.close();
+    }
+  }
+}
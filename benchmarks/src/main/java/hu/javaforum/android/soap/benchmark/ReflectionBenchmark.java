@@ -0,0 +1,70 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import hu.javaforum.commons.ReflectionUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the setter invocations of the parser.
+ *
+ * @author sabo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReflectionBenchmark
+{
+
+  /**
+   * The target bean.
+   */
+  private final SubDetail subDetail = new SubDetail();
+
+  /**
+   * Sets a String field.
+   *
+   * @return True, if the setter was invoked
+   */
+  @Benchmark
+  public Boolean invokeSetterString()
+  {
+    return ReflectionUtil.invokeSetter(subDetail, "myName", "subdetail-1");
+  }
+
+  /**
+   * Sets an int field from its text.
+   *
+   * @return True, if the setter was invoked
+   */
+  @Benchmark
+  public Boolean invokeSetterInt()
+  {
+    return ReflectionUtil.invokeSetter(subDetail, "someMask", "6865");
+  }
+
+  /**
+   * Sets a double field from its text.
+   *
+   * @return True, if the setter was invoked
+   */
+  @Benchmark
+  public Boolean invokeSetterDouble()
+  {
+    return ReflectionUtil.invokeSetter(subDetail, "someDouble", "7.800000190734863");
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import hu.javaforum.commons.CommonBean;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the request serialization.
+ *
+ * @author sabo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark
+{
+
+  /**
+   * Dumps the demo object.
+   *
+   * @param state The payloads
+   * @return The XML
+   */
+  @Benchmark
+  public StringBuilder dumpXml(final PayloadState state)
+  {
+    return CommonBean.dumpXml(state.result.getDemoObj(), "demoObj", null);
+  }
+
+  /**
+   * Serializes the whole request envelope.
+   *
+   * @param state The payloads
+   * @return The XML
+   */
+  @Benchmark
+  public String envelopeToString(final PayloadState state)
+  {
+    return state.request.toString();
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+/**
+ * The repeated element of the contrived-1.xml fixture.
+ *
+ * @author sabo
+ */
+public class SubDetail
+{
+
+  /**
+   * The count.
+   */
+  private int nonsenseCount;
+  /**
+   * The mask.
+   */
+  private int someMask;
+  /**
+   * The long value.
+   */
+  private long someLong;
+  /**
+   * The float value.
+   */
+  private float someReal;
+  /**
+   * The double value.
+   */
+  private double someDouble;
+  /**
+   * The name.
+   */
+  private String myName;
+
+  /**
+   * Gets the count.
+   *
+   * @return The count
+   */
+  public final int getNonsenseCount()
+  {
+    return nonsenseCount;
+  }
+
+  /**
+   * Sets the count.
+   *
+   * @param nonsenseCount The count
+   */
+  public final void setNonsenseCount(final int nonsenseCount)
+  {
+    this.nonsenseCount = nonsenseCount;
+  }
+
+  /**
+   * Gets the mask.
+   *
+   * @return The mask
+   */
+  public final int getSomeMask()
+  {
+    return someMask;
+  }
+
+  /**
+   * Sets the mask.
+   *
+   * @param someMask The mask
+   */
+  public final void setSomeMask(final int someMask)
+  {
+    this.someMask = someMask;
+  }
+
+  /**
+   * Gets the long value.
+   *
+   * @return The long value
+   */
+  public final long getSomeLong()
+  {
+    return someLong;
+  }
+
+  /**
+   * Sets the long value.
+   *
+   * @param someLong The long value
+   */
+  public final void setSomeLong(final long someLong)
+  {
+    this.someLong = someLong;
+  }
+
+  /**
+   * Gets the float value.
+   *
+   * @return The float value
+   */
+  public final float getSomeReal()
+  {
+    return someReal;
+  }
+
+  /**
+   * Sets the float value.
+   *
+   * @param someReal The float value
+   */
+  public final void setSomeReal(final float someReal)
+  {
+    this.someReal = someReal;
+  }
+
+  /**
+   * Gets the double value.
+   *
+   * @return The double value
+   */
+  public final double getSomeDouble()
+  {
+    return someDouble;
+  }
+
+  /**
+   * Sets the double value.
+   *
+   * @param someDouble The double value
+   */
+  public final void setSomeDouble(final double someDouble)
+  {
+    this.someDouble = someDouble;
+  }
+
+  /**
+   * Gets the name.
+   *
+   * @return The name
+   */
+  public final String getMyName()
+  {
+    return myName;
+  }
+
+  /**
+   * Sets the name.
+   *
+   * @param myName The name
+   */
+  public final void setMyName(final String myName)
+  {
+    this.myName = myName;
+  }
+}
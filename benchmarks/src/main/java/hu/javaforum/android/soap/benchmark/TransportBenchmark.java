@@ -0,0 +1,155 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import hu.javaforum.android.soap.HttpTransport;
+import hu.javaforum.android.soap.Transport;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmark of the Transport.call against a loopback HTTP stub,
+ * which drains the request and replies the scaled fixture. With compression,
+ * the requests are gzip compressed, and the stub replies the gzip compressed
+ * fixture to the clients which accept it.
+ *
+ * @author sabo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark
+{
+
+  /**
+   * True, if the requests and the responses are compressed.
+   */
+  @Param(
+  {
+    "false", "true"
+  })
+  public boolean compression;
+  /**
+   * The loopback server.
+   */
+  private HttpServer server;
+  /**
+   * The executor of the server.
+   */
+  private ExecutorService serverExecutor;
+  /**
+   * The transport.
+   */
+  private Transport transport;
+
+  /**
+   * Starts the stub, and creates the transport.
+   *
+   * @param state The payloads
+   * @throws IOException If the server cannot be started
+   */
+  @Setup(Level.Trial)
+  public void setUp(final PayloadState state) throws IOException
+  {
+    final byte[] response = state.response;
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(baos);
+    gzip.write(response);
+    gzip.close();
+    final byte[] compressedResponse = baos.toByteArray();
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler()
+    {
+
+      public void handle(final HttpExchange exchange) throws IOException
+      {
+        InputStream is = exchange.getRequestBody();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+        {
+          is = new GZIPInputStream(is);
+        }
+        byte[] buffer = new byte[8192];
+        while (is.read(buffer) >= 0)
+        {
+          continue;
+        }
+        is.close();
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = response;
+        if (acceptEncoding != null && acceptEncoding.contains("gzip"))
+        {
+          exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+          body = compressedResponse;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    serverExecutor = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutor);
+    server.start();
+
+    transport = new HttpTransport("http://127.0.0.1:" + server.getAddress().getPort() + "/demo");
+    transport.setResponseCompression(compression);
+    transport.setRequestCompressionThreshold(compression ? 0 : -1);
+  }
+
+  /**
+   * Stops the stub, and closes the transport.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown()
+  {
+    transport.close();
+    server.stop(0);
+    serverExecutor.shutdownNow();
+  }
+
+  /**
+   * Sends the request, and parses the response.
+   *
+   * @param state The payloads
+   * @return The result
+   * @throws IOException If the call fails
+   */
+  @Benchmark
+  public DemoResult call(final PayloadState state) throws IOException
+  {
+    return transport.call(state.request, DemoResult.class, Exception.class);
+  }
+}
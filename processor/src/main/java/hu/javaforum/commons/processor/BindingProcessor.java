@@ -0,0 +1,710 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the BeanSerializer and BeanBinder implementations of the
+ * GenerateBinding annotated beans. The generated serializer produces the same
+ * XML as the reflection based CommonBean.dumpXml method: it follows the field
+ * order, the PrintField and the XmlElement annotations of the bean.
+ *
+ * The generated classes are placed into the package of the bean, so the
+ * package-private getters, setters and constructors are usable too. When a
+ * serialized field has no usable getter, the serializer is not generated and
+ * the library falls back to the reflection.
+ *
+ * @author sabo
+ */
+@SupportedAnnotationTypes("hu.javaforum.commons.GenerateBinding")
+public final class BindingProcessor extends AbstractProcessor
+{
+
+  /**
+   * The name of the CommonBean class.
+   */
+  private static final String COMMON_BEAN = "hu.javaforum.commons.CommonBean";
+  /**
+   * The name of the PrintField annotation.
+   */
+  private static final String PRINT_FIELD = "hu.javaforum.commons.PrintField";
+  /**
+   * The name of the XmlElement annotation.
+   */
+  private static final String XML_ELEMENT = "javax.xml.bind.annotation.XmlElement";
+  /**
+   * The suffix of the generated serializer classes.
+   */
+  private static final String SERIALIZER_SUFFIX = "$$Serializer";
+  /**
+   * The suffix of the generated binder classes.
+   */
+  private static final String BINDER_SUFFIX = "$$Binder";
+
+  /**
+   * Returns the latest supported source version.
+   *
+   * @return The source version
+   */
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  /**
+   * Processes the annotated beans.
+   *
+   * @param annotations The annotations
+   * @param roundEnv The round environment
+   * @return True, the annotation is claimed
+   */
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv)
+  {
+    for (TypeElement annotation : annotations)
+    {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+      {
+        if (element.getKind() != ElementKind.CLASS)
+        {
+          error(element, "@GenerateBinding is applicable to classes only");
+          continue;
+        }
+        TypeElement type = (TypeElement) element;
+        if (!isAccessible(type))
+        {
+          error(element, "@GenerateBinding needs a non-private, non-abstract top level or static nested class");
+          continue;
+        }
+
+        try
+        {
+          generate(type);
+        } catch (IOException except)
+        {
+          error(element, "Cannot generate the binding: " + except.toString());
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns true, if the generated code is able to access and instantiate the
+   * class.
+   *
+   * @param type The class
+   * @return True, if the class is accessible
+   */
+  private boolean isAccessible(final TypeElement type)
+  {
+    if (type.getModifiers().contains(Modifier.PRIVATE) || type.getModifiers().contains(Modifier.ABSTRACT))
+    {
+      return false;
+    }
+    if (type.getNestingKind() == NestingKind.MEMBER)
+    {
+      return type.getModifiers().contains(Modifier.STATIC)
+              && isAccessible((TypeElement) type.getEnclosingElement());
+    }
+
+    return type.getNestingKind() == NestingKind.TOP_LEVEL;
+  }
+
+  /**
+   * Generates the binder and the serializer of the class.
+   *
+   * @param type The class
+   * @throws IOException When the source file cannot be written
+   */
+  private void generate(final TypeElement type) throws IOException
+  {
+    boolean commonBean = isCommonBean(type);
+    List<BeanField> fields = collectFields(type);
+
+    if (hasDefaultConstructor(type))
+    {
+      generateBinder(type, fields);
+    } else
+    {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+              "No binder is generated, because the class has no accessible default constructor", type);
+    }
+
+    for (BeanField field : fields)
+    {
+      if (field.isSerialized(commonBean) && field.getter == null)
+      {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "No serializer is generated, because '" + field.name
+                + "' has no getter; the reflection is used instead", type);
+        return;
+      }
+    }
+    generateSerializer(type, fields, commonBean);
+  }
+
+  /**
+   * Returns true, if the class has a non-private constructor without
+   * parameters.
+   *
+   * @param type The class
+   * @return True, if the generated code can instantiate the class
+   */
+  private static boolean hasDefaultConstructor(final TypeElement type)
+  {
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+    {
+      if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns true, if the class is descendant of the CommonBean class.
+   *
+   * @param type The class
+   * @return True, if the class is a CommonBean
+   */
+  private boolean isCommonBean(final TypeElement type)
+  {
+    for (TypeElement current = type; current != null; current = superclassOf(current))
+    {
+      if (COMMON_BEAN.equals(current.getQualifiedName().toString()))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns the superclass of the class.
+   *
+   * @param type The class
+   * @return The superclass, null if it is not exists
+   */
+  private TypeElement superclassOf(final TypeElement type)
+  {
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED)
+    {
+      return null;
+    }
+
+    return (TypeElement) ((DeclaredType) superclass).asElement();
+  }
+
+  /**
+   * Collects the fields of the class in the order of the reflection based
+   * serializer: the declared fields of the class, then the fields of the
+   * superclasses until the CommonBean or the Object class.
+   *
+   * @param type The class
+   * @return The fields
+   */
+  private List<BeanField> collectFields(final TypeElement type)
+  {
+    List<BeanField> fields = new ArrayList<BeanField>();
+    List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+
+    for (TypeElement current = type; current != null; current = superclassOf(current))
+    {
+      String name = current.getQualifiedName().toString();
+      if (Object.class.getName().equals(name) || COMMON_BEAN.equals(name))
+      {
+        break;
+      }
+
+      for (VariableElement variable : ElementFilter.fieldsIn(current.getEnclosedElements()))
+      {
+        if (variable.getModifiers().contains(Modifier.STATIC))
+        {
+          continue;
+        }
+        fields.add(createField(variable, methods));
+      }
+    }
+
+    return fields;
+  }
+
+  /**
+   * Creates the descriptor of the field.
+   *
+   * @param variable The field
+   * @param methods The methods of the class
+   * @return The descriptor
+   */
+  private BeanField createField(final VariableElement variable, final List<ExecutableElement> methods)
+  {
+    BeanField field = new BeanField();
+    field.name = variable.getSimpleName().toString();
+    field.xmlName = field.name;
+    field.type = variable.asType();
+    field.maximumItemDump = Integer.MAX_VALUE;
+    field.maximumHexDump = Integer.MAX_VALUE;
+
+    for (AnnotationMirror mirror : variable.getAnnotationMirrors())
+    {
+      String annotationName = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+      Map<? extends ExecutableElement, ? extends AnnotationValue> values
+              = processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+      if (PRINT_FIELD.equals(annotationName))
+      {
+        field.printed = true;
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet())
+        {
+          String key = entry.getKey().getSimpleName().toString();
+          if ("hidden".equals(key))
+          {
+            field.hidden = (Boolean) entry.getValue().getValue();
+          } else if ("maximumItemDump".equals(key))
+          {
+            field.maximumItemDump = (Integer) entry.getValue().getValue();
+          } else if ("maximumHexDump".equals(key))
+          {
+            field.maximumHexDump = (Integer) entry.getValue().getValue();
+          }
+        }
+      } else if (XML_ELEMENT.equals(annotationName))
+      {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet())
+        {
+          if ("name".equals(entry.getKey().getSimpleName().toString()))
+          {
+            field.xmlName = (String) entry.getValue().getValue();
+          }
+        }
+      }
+    }
+
+    String capitalized = capitalize(field.name);
+    String unprefixed = field.name.startsWith("_") ? capitalize(field.name.substring(1)) : capitalized;
+    for (ExecutableElement method : methods)
+    {
+      if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC))
+      {
+        continue;
+      }
+
+      String methodName = method.getSimpleName().toString();
+      if (method.getParameters().isEmpty() && field.getter == null
+              && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.type)
+              && (methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized)
+              || methodName.equals("get" + unprefixed) || methodName.equals("is" + unprefixed)))
+      {
+        field.getter = methodName;
+      } else if (method.getParameters().size() == 1 && field.setter == null
+              && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.type)
+              && (methodName.equals("set" + capitalized) || methodName.equals("set" + unprefixed)))
+      {
+        field.setter = methodName;
+      }
+    }
+
+    return field;
+  }
+
+  /**
+   * Generates the binder of the class.
+   *
+   * @param type The class
+   * @param fields The fields
+   * @throws IOException When the source file cannot be written
+   */
+  private void generateBinder(final TypeElement type, final List<BeanField> fields) throws IOException
+  {
+    String beanName = type.getQualifiedName().toString();
+    String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String className = generatedSimpleName(type, BINDER_SUFFIX);
+
+    PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(
+            qualify(packageName, className), type).openWriter());
+    try
+    {
+      writeHeader(out, packageName, beanName);
+      out.println("public final class " + className + " implements hu.javaforum.commons.BeanBinder");
+      out.println("{");
+      out.println();
+      out.println("  public Object newInstance()");
+      out.println("  {");
+      out.println("    return new " + beanName + "();");
+      out.println("  }");
+      out.println();
+      out.println("  public int indexOf(final String fieldName)");
+      out.println("  {");
+      for (int index = 0; index < fields.size(); index++)
+      {
+        out.println("    if (" + literal(fields.get(index).name) + ".equals(fieldName))");
+        out.println("    {");
+        out.println("      return " + index + ";");
+        out.println("    }");
+      }
+      out.println("    return -1;");
+      out.println("  }");
+      out.println();
+      out.println("  public boolean isReadable(final int index)");
+      out.println("  {");
+      out.println("    switch (index)");
+      out.println("    {");
+      boolean getterFound = false;
+      for (int index = 0; index < fields.size(); index++)
+      {
+        if (fields.get(index).getter != null)
+        {
+          out.println("      case " + index + ":");
+          getterFound = true;
+        }
+      }
+      if (getterFound)
+      {
+        out.println("        return true;");
+      }
+      out.println("      default:");
+      out.println("        return false;");
+      out.println("    }");
+      out.println("  }");
+      out.println();
+      out.println("  public boolean isWritable(final int index)");
+      out.println("  {");
+      out.println("    switch (index)");
+      out.println("    {");
+      boolean setterFound = false;
+      for (int index = 0; index < fields.size(); index++)
+      {
+        if (fields.get(index).setter != null)
+        {
+          out.println("      case " + index + ":");
+          setterFound = true;
+        }
+      }
+      if (setterFound)
+      {
+        out.println("        return true;");
+      }
+      out.println("      default:");
+      out.println("        return false;");
+      out.println("    }");
+      out.println("  }");
+      out.println();
+      out.println("  public Object get(final Object bean, final int index)");
+      out.println("  {");
+      out.println("    switch (index)");
+      out.println("    {");
+      for (int index = 0; index < fields.size(); index++)
+      {
+        BeanField field = fields.get(index);
+        if (field.getter != null)
+        {
+          out.println("      case " + index + ":");
+          out.println("        return ((" + beanName + ") bean)." + field.getter + "();");
+        }
+      }
+      out.println("      default:");
+      out.println("        throw new IllegalArgumentException(\"Not readable: \" + index);");
+      out.println("    }");
+      out.println("  }");
+      out.println();
+      out.println("  @SuppressWarnings(\"unchecked\")");
+      out.println("  public void set(final Object bean, final int index, final Object value)");
+      out.println("  {");
+      out.println("    switch (index)");
+      out.println("    {");
+      for (int index = 0; index < fields.size(); index++)
+      {
+        BeanField field = fields.get(index);
+        if (field.setter != null)
+        {
+          out.println("      case " + index + ":");
+          out.println("        ((" + beanName + ") bean)." + field.setter + "((" + castType(field.type) + ") value);");
+          out.println("        break;");
+        }
+      }
+      out.println("      default:");
+      out.println("        throw new IllegalArgumentException(\"Not writable: \" + index);");
+      out.println("    }");
+      out.println("  }");
+      out.println("}");
+    } finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Generates the serializer of the class.
+   *
+   * @param type The class
+   * @param fields The fields
+   * @param commonBean True, if the class is a CommonBean
+   * @throws IOException When the source file cannot be written
+   */
+  private void generateSerializer(final TypeElement type, final List<BeanField> fields,
+          final boolean commonBean) throws IOException
+  {
+    String beanName = type.getQualifiedName().toString();
+    String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String className = generatedSimpleName(type, SERIALIZER_SUFFIX);
+
+    PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(
+            qualify(packageName, className), type).openWriter());
+    try
+    {
+      writeHeader(out, packageName, beanName);
+      out.println("public final class " + className + " implements hu.javaforum.commons.BeanSerializer");
+      out.println("{");
+      out.println();
+      for (int index = 0; index < fields.size(); index++)
+      {
+        if (fields.get(index).isSerialized(commonBean))
+        {
+          out.println("  private static final char[] NAME_" + index + " = "
+                  + literal(fields.get(index).xmlName) + ".toCharArray();");
+        }
+      }
+      out.println();
+      out.println("  public void dumpXml(final java.io.Writer writer, final char[] nsPrefix, final Object object,");
+      out.println("          final char[] fieldName, final int level) throws java.io.IOException");
+      out.println("  {");
+      out.println("    final " + beanName + " bean = (" + beanName + ") object;");
+      out.println("    Object value;");
+      out.println("    if (level >= 0)");
+      out.println("    {");
+      out.println("      hu.javaforum.commons.CommonBean.appendStartTag(writer, nsPrefix, fieldName, level);");
+      out.println("    }");
+      for (int index = 0; index < fields.size(); index++)
+      {
+        BeanField field = fields.get(index);
+        if (!field.isSerialized(commonBean))
+        {
+          continue;
+        }
+        out.println("    value = bean." + field.getter + "();");
+        out.println("    if (value != null)");
+        out.println("    {");
+        String value = commonBean && field.hidden ? "\"***hidden***\"" : "value";
+        out.println("      hu.javaforum.commons.CommonBean.appendField(writer, nsPrefix, " + value + ", "
+                + field.maximumItemDump + ", " + field.maximumHexDump + ", NAME_" + index + ", level + 1);");
+        out.println("    }");
+      }
+      out.println("    if (level >= 0)");
+      out.println("    {");
+      out.println("      hu.javaforum.commons.CommonBean.appendEndTag(writer, nsPrefix, fieldName, level);");
+      out.println("    }");
+      out.println("  }");
+      out.println("}");
+    } finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the header of the generated source.
+   *
+   * @param out The writer
+   * @param packageName The name of the package
+   * @param beanName The name of the bean
+   */
+  private static void writeHeader(final PrintWriter out, final String packageName, final String beanName)
+  {
+    if (packageName.length() > 0)
+    {
+      out.println("package " + packageName + ";");
+      out.println();
+    }
+    out.println("/**");
+    out.println(" * Generated by " + BindingProcessor.class.getName() + " from " + beanName + ".");
+    out.println(" */");
+  }
+
+  /**
+   * Returns the simple name of the generated class, it is derived from the
+   * binary name of the class (Outer$Inner$$Binder), because the library looks
+   * it up by the binary name.
+   *
+   * @param type The class
+   * @param suffix The suffix
+   * @return The simple name
+   */
+  private String generatedSimpleName(final TypeElement type, final String suffix)
+  {
+    String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+    return binaryName.substring(binaryName.lastIndexOf('.') + 1) + suffix;
+  }
+
+  /**
+   * Returns the qualified name of the class.
+   *
+   * @param packageName The name of the package
+   * @param className The simple name of the class
+   * @return The qualified name
+   */
+  private static String qualify(final String packageName, final String className)
+  {
+    return packageName.length() == 0 ? className : packageName + "." + className;
+  }
+
+  /**
+   * Returns the type of the cast expression, the primitives are boxed.
+   *
+   * @param type The type
+   * @return The source of the type
+   */
+  private String castType(final TypeMirror type)
+  {
+    if (type.getKind().isPrimitive())
+    {
+      return processingEnv.getTypeUtils().boxedClass(
+              processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+    }
+
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  /**
+   * Returns the text with upper case first letter.
+   *
+   * @param text The text
+   * @return The capitalized text
+   */
+  private static String capitalize(final String text)
+  {
+    if (text.length() == 0)
+    {
+      return text;
+    }
+
+    return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+  }
+
+  /**
+   * Returns the Java string literal of the text.
+   *
+   * @param text The text
+   * @return The literal
+   */
+  private static String literal(final String text)
+  {
+    StringBuilder sb = new StringBuilder(text.length() + 2);
+    sb.append('"');
+    for (int count = 0; count < text.length(); count++)
+    {
+      char ch = text.charAt(count);
+      if (ch == '"' || ch == '\\')
+      {
+        sb.append('\\');
+      }
+      sb.append(ch);
+    }
+    sb.append('"');
+
+    return sb.toString();
+  }
+
+  /**
+   * Prints an error message.
+   *
+   * @param element The element
+   * @param message The message
+   */
+  private void error(final Element element, final String message)
+  {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  /**
+   * The descriptor of a bean field.
+   */
+  private static final class BeanField
+  {
+
+    /**
+     * The name of the field.
+     */
+    private String name;
+    /**
+     * The XML name of the field.
+     */
+    private String xmlName;
+    /**
+     * The type of the field.
+     */
+    private TypeMirror type;
+    /**
+     * The name of the getter method, it can be null.
+     */
+    private String getter;
+    /**
+     * The name of the setter method, it can be null.
+     */
+    private String setter;
+    /**
+     * True, if the field has PrintField annotation.
+     */
+    private boolean printed;
+    /**
+     * The hidden parameter of the PrintField annotation.
+     */
+    private boolean hidden;
+    /**
+     * The maximumItemDump parameter of the PrintField annotation.
+     */
+    private int maximumItemDump;
+    /**
+     * The maximumHexDump parameter of the PrintField annotation.
+     */
+    private int maximumHexDump;
+
+    /**
+     * Returns true, if the reflection based serializer prints the field.
+     *
+     * @param commonBean True, if the class is a CommonBean
+     * @return True, if the field is serialized
+     */
+    private boolean isSerialized(final boolean commonBean)
+    {
+      if (name.startsWith("__"))
+      {
+        return false;
+      }
+
+      return !commonBean || printed;
+    }
+  }
+}
@@ -4,6 +4,10 @@
  */
 package hu.javaforum.android.soap;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 /**
  * This class holds a generic body in the SOAP envelope.
  *
@@ -57,4 +61,38 @@ public abstract class Body
   {
     return this.getBody();
   }
+
+  /**
+   * Writes the body in the SOAP envelope in XML to the writer. The
+   * implementations may override it to avoid building the whole body as
+   * a String.
+   *
+   * @param writer The writer
+   * @throws IOException When IO error occurred
+   */
+  protected void writeTo(final Writer writer) throws IOException
+  {
+    writer.write(this.getBody());
+  }
+
+  /**
+   * Writes the body into a String with the writeTo method. The
+   * implementations, which override the writeTo method, can build the
+   * getBody method on it, so the two methods cannot drift apart.
+   *
+   * @return The body
+   */
+  protected final String writeToString()
+  {
+    StringWriter writer = new StringWriter();
+    try
+    {
+      writeTo(writer);
+    } catch (IOException except)
+    {
+      throw new IllegalStateException("The StringWriter cannot throw IOException", except);
+    }
+
+    return writer.toString();
+  }
 }
@@ -0,0 +1,484 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The circuit breaker of an endpoint. It keeps the outcomes of the last calls
+ * in a sliding window; when the failure rate or the slow call rate of the
+ * window reaches its threshold, the breaker opens, and the calls fail fast
+ * with CircuitBreakerOpenException. After the open duration the breaker is
+ * half open: a limited number of probe calls are let through, and the breaker
+ * closes, if their rates are below the thresholds, otherwise it opens again.
+ *
+ * A call fails, if the HTTP exchange fails (IOException, e.g. a broken
+ * response) or the HTTP status is neither 200 nor 500; the SOAP faults are
+ * successful calls of the endpoint. The client side errors (e.g. a
+ * RuntimeException of an ItemConsumer, or a result class which cannot be
+ * instantiated) are not recorded, and the hedged requests are not sent,
+ * while the breaker is half open.
+ *
+ * The breakers of the endpoints are shared by the transports through the
+ * forEndpoint() method; the instances are thread safe.
+ *
+ * @author sabo
+ */
+public final class CircuitBreaker
+{
+
+  /**
+   * The states of the breaker.
+   */
+  public enum State
+  {
+
+    /**
+     * The calls are permitted, their outcomes are recorded.
+     */
+    CLOSED,
+    /**
+     * The calls are rejected.
+     */
+    OPEN,
+    /**
+     * A limited number of probe calls are permitted.
+     */
+    HALF_OPEN
+  }
+  /**
+   * The permission of the rejected calls.
+   */
+  static final long NOT_PERMITTED = -1L;
+  /**
+   * The breakers by endpoint URL.
+   */
+  private static final ConcurrentMap<String, CircuitBreaker> ENDPOINTS
+          = new ConcurrentHashMap<String, CircuitBreaker>();
+  /**
+   * The default size of the sliding window.
+   */
+  private static final int DEFAULT_WINDOW_SIZE = 20;
+  /**
+   * The default minimum number of calls before the rates are evaluated.
+   */
+  private static final int DEFAULT_MINIMUM_CALLS = 10;
+  /**
+   * The default failure rate threshold (percent).
+   */
+  private static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+  /**
+   * The default duration (in milliseconds) above a call is slow.
+   */
+  private static final long DEFAULT_SLOW_CALL_DURATION = 5000;
+  /**
+   * The default slow call rate threshold (percent).
+   */
+  private static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+  /**
+   * The default open duration (in milliseconds).
+   */
+  private static final long DEFAULT_OPEN_DURATION = 30000;
+  /**
+   * The default number of the probe calls in the half open state.
+   */
+  private static final int DEFAULT_HALF_OPEN_PROBES = 3;
+  /**
+   * The nanoseconds of a millisecond.
+   */
+  private static final long NANOS_PER_MILLI = 1000000L;
+  /**
+   * The percent of the whole.
+   */
+  private static final int PERCENT = 100;
+  /**
+   * The minimum number of calls before the rates are evaluated.
+   */
+  private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+  /**
+   * The failure rate threshold (percent).
+   */
+  private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+  /**
+   * The duration (in milliseconds) above a call is slow.
+   */
+  private long slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+  /**
+   * The slow call rate threshold (percent).
+   */
+  private int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+  /**
+   * The open duration (in milliseconds).
+   */
+  private long openDuration = DEFAULT_OPEN_DURATION;
+  /**
+   * The number of the probe calls in the half open state.
+   */
+  private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+  /**
+   * The failed flags of the calls of the window, it is a ring buffer.
+   */
+  private boolean[] failedCalls = new boolean[DEFAULT_WINDOW_SIZE];
+  /**
+   * The slow flags of the calls of the window, it is a ring buffer.
+   */
+  private boolean[] slowCalls = new boolean[DEFAULT_WINDOW_SIZE];
+  /**
+   * The number of the calls in the window.
+   */
+  private int bufferedCalls;
+  /**
+   * The next position of the ring buffers.
+   */
+  private int position;
+  /**
+   * The number of the failed calls in the window.
+   */
+  private int failedCount;
+  /**
+   * The number of the slow calls in the window.
+   */
+  private int slowCount;
+  /**
+   * The state.
+   */
+  private State state = State.CLOSED;
+  /**
+   * The generation of the state, it is incremented on every transition; the
+   * outcomes of the calls permitted in an earlier generation are dropped.
+   */
+  private long generation;
+  /**
+   * The time (System.nanoTime()) of the last opening.
+   */
+  private long openedAt;
+  /**
+   * The number of the permitted probe calls in the half open state.
+   */
+  private int issuedProbes;
+  /**
+   * The number of the rejected calls.
+   */
+  private long notPermittedCalls;
+
+  /**
+   * Creates a new instance with the default settings, it isn't shared.
+   */
+  public CircuitBreaker()
+  {
+    super();
+  }
+
+  /**
+   * Returns the shared breaker of the endpoint, it is created with the
+   * default settings on the first call.
+   *
+   * @param url The URL of the endpoint
+   * @return The breaker
+   */
+  public static CircuitBreaker forEndpoint(final String url)
+  {
+    CircuitBreaker breaker = ENDPOINTS.get(url);
+    if (breaker == null)
+    {
+      breaker = new CircuitBreaker();
+      CircuitBreaker registered = ENDPOINTS.putIfAbsent(url, breaker);
+      if (registered != null)
+      {
+        breaker = registered;
+      }
+    }
+
+    return breaker;
+  }
+
+  /**
+   * Sets the size of the sliding window and the minimum number of calls
+   * before the rates are evaluated; the recorded calls are dropped.
+   *
+   * @param windowSize The number of the calls in the window
+   * @param minimum The minimum number of calls
+   */
+  public synchronized void setSlidingWindow(final int windowSize, final int minimum)
+  {
+    if (windowSize < 1 || minimum < 1 || minimum > windowSize)
+    {
+      throw new IllegalArgumentException("Invalid sliding window: " + windowSize + "/" + minimum);
+    }
+
+    this.failedCalls = new boolean[windowSize];
+    this.slowCalls = new boolean[windowSize];
+    this.minimumCalls = minimum;
+    resetWindow();
+  }
+
+  /**
+   * Sets the failure rate, which opens the breaker.
+   *
+   * @param percent The threshold (1-100)
+   */
+  public synchronized void setFailureRateThreshold(final int percent)
+  {
+    checkPercent(percent);
+    this.failureRateThreshold = percent;
+  }
+
+  /**
+   * Sets the duration above a call is slow, and the slow call rate, which
+   * opens the breaker.
+   *
+   * @param duration The duration in milliseconds
+   * @param percent The threshold (1-100)
+   */
+  public synchronized void setSlowCallThreshold(final long duration, final int percent)
+  {
+    checkPercent(percent);
+    this.slowCallDuration = duration;
+    this.slowCallRateThreshold = percent;
+  }
+
+  /**
+   * Sets the time, while the open breaker rejects the calls.
+   *
+   * @param duration The duration in milliseconds
+   */
+  public synchronized void setOpenDuration(final long duration)
+  {
+    this.openDuration = duration;
+  }
+
+  /**
+   * Sets the number of the probe calls in the half open state.
+   *
+   * @param probes The number of the probe calls
+   */
+  public synchronized void setHalfOpenProbes(final int probes)
+  {
+    if (probes < 1)
+    {
+      throw new IllegalArgumentException("The number of probes must be positive");
+    }
+    this.halfOpenProbes = probes;
+  }
+
+  /**
+   * Checks the percent value.
+   *
+   * @param percent The percent
+   */
+  private static void checkPercent(final int percent)
+  {
+    if (percent < 1 || percent > PERCENT)
+    {
+      throw new IllegalArgumentException("Invalid percent: " + percent);
+    }
+  }
+
+  /**
+   * Returns the permission of the call (the generation of the state), or
+   * NOT_PERMITTED; the open breaker turns to half open after the open
+   * duration. Every permitted call must be followed by the onResult() or the
+   * onIgnored() method with its permission.
+   *
+   * @return The permission, or NOT_PERMITTED
+   */
+  synchronized long tryAcquirePermission()
+  {
+    if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration * NANOS_PER_MILLI)
+    {
+      transitionTo(State.HALF_OPEN);
+    }
+
+    if (state == State.CLOSED)
+    {
+      return generation;
+    } else if (state == State.HALF_OPEN && issuedProbes < halfOpenProbes)
+    {
+      issuedProbes++;
+      return generation;
+    }
+
+    notPermittedCalls++;
+    return NOT_PERMITTED;
+  }
+
+  /**
+   * Records the outcome of a permitted call. The outcome is dropped, if the
+   * state has changed since the permission, e.g. a slow call of the closed
+   * breaker isn't counted as a probe of the half open breaker.
+   *
+   * @param permission The permission of the call
+   * @param success True, if the call succeeded
+   * @param duration The duration of the call in milliseconds
+   */
+  synchronized void onResult(final long permission, final boolean success, final long duration)
+  {
+    if (permission != generation || state == State.OPEN)
+    {
+      return;
+    }
+
+    record(!success, duration >= slowCallDuration);
+    if (state == State.CLOSED)
+    {
+      if (bufferedCalls >= minimumCalls && isAboveThresholds(bufferedCalls))
+      {
+        transitionTo(State.OPEN);
+      }
+    } else
+    {
+      int probes = Math.min(halfOpenProbes, failedCalls.length);
+      if (isAboveThresholds(probes))
+      {
+        transitionTo(State.OPEN);
+      } else if (bufferedCalls >= probes)
+      {
+        transitionTo(State.CLOSED);
+      }
+    }
+  }
+
+  /**
+   * Releases the permission of a call without outcome (e.g. a cancelled
+   * hedged request, or a call failed by a client side error). Only the
+   * probes of the current half open state are released.
+   *
+   * @param permission The permission of the call
+   */
+  synchronized void onIgnored(final long permission)
+  {
+    if (permission == generation && state == State.HALF_OPEN && issuedProbes > 0)
+    {
+      issuedProbes--;
+    }
+  }
+
+  /**
+   * Records the outcome into the window.
+   *
+   * @param failed True, if the call failed
+   * @param slow True, if the call was slow
+   */
+  private void record(final boolean failed, final boolean slow)
+  {
+    if (bufferedCalls == failedCalls.length)
+    {
+      failedCount -= failedCalls[position] ? 1 : 0;
+      slowCount -= slowCalls[position] ? 1 : 0;
+    } else
+    {
+      bufferedCalls++;
+    }
+
+    failedCalls[position] = failed;
+    slowCalls[position] = slow;
+    failedCount += failed ? 1 : 0;
+    slowCount += slow ? 1 : 0;
+    position = (position + 1) % failedCalls.length;
+  }
+
+  /**
+   * Returns true, if the failed or the slow calls of the window reach the
+   * threshold rate of the given number of calls. In the half open state the
+   * number of the probes is given, so the breaker opens, as soon as the
+   * remaining probes cannot close it.
+   *
+   * @param calls The number of the calls
+   * @return True, if a rate reaches its threshold
+   */
+  private boolean isAboveThresholds(final int calls)
+  {
+    return failedCount * PERCENT >= failureRateThreshold * calls
+            || slowCount * PERCENT >= slowCallRateThreshold * calls;
+  }
+
+  /**
+   * Changes the state, the window is restarted.
+   *
+   * @param newState The new state
+   */
+  private void transitionTo(final State newState)
+  {
+    state = newState;
+    generation++;
+    issuedProbes = 0;
+    if (newState == State.OPEN)
+    {
+      openedAt = System.nanoTime();
+    }
+    resetWindow();
+  }
+
+  /**
+   * Drops the recorded calls.
+   */
+  private void resetWindow()
+  {
+    bufferedCalls = 0;
+    position = 0;
+    failedCount = 0;
+    slowCount = 0;
+  }
+
+  /**
+   * Returns the state. The open breaker is reported as open until the next
+   * call, even if the open duration is over.
+   *
+   * @return The state
+   */
+  public synchronized State getState()
+  {
+    return state;
+  }
+
+  /**
+   * Returns the failure rate of the calls of the current window.
+   *
+   * @return The rate in percent, or -1 if there are no recorded calls
+   */
+  public synchronized int getFailureRate()
+  {
+    return bufferedCalls == 0 ? -1 : failedCount * PERCENT / bufferedCalls;
+  }
+
+  /**
+   * Returns the slow call rate of the calls of the current window.
+   *
+   * @return The rate in percent, or -1 if there are no recorded calls
+   */
+  public synchronized int getSlowCallRate()
+  {
+    return bufferedCalls == 0 ? -1 : slowCount * PERCENT / bufferedCalls;
+  }
+
+  /**
+   * Returns the number of the recorded calls of the current window.
+   *
+   * @return The number of the calls
+   */
+  public synchronized int getBufferedCalls()
+  {
+    return bufferedCalls;
+  }
+
+  /**
+   * Returns the number of the rejected calls.
+   *
+   * @return The number of the calls
+   */
+  public synchronized long getNotPermittedCalls()
+  {
+    return notPermittedCalls;
+  }
+
+  /**
+   * Closes the breaker, and drops the recorded calls.
+   */
+  public synchronized void reset()
+  {
+    transitionTo(State.CLOSED);
+  }
+}
@@ -0,0 +1,32 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.IOException;
+
+/**
+ * Thrown, when the call is rejected by the open circuit breaker of the
+ * endpoint, without sending the request.
+ *
+ * @author sabo
+ */
+public class CircuitBreakerOpenException extends IOException
+{
+
+  /**
+   * The serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param url The URL of the endpoint
+   */
+  public CircuitBreakerOpenException(final String url)
+  {
+    super("The circuit breaker of '" + url + "' is open");
+  }
+}
@@ -0,0 +1,25 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over a resource, which should be closed, if the iteration is
+ * stopped before the end.
+ *
+ * @param <T> The type of the items
+ * @author sabo
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable
+{
+
+  /**
+   * Releases the resources of the iterator; the hasNext() method returns
+   * false after it.
+   */
+  void close();
+}
@@ -0,0 +1,254 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+
+/**
+ * Helper methods of the compressed HTTP contents. The responses are
+ * decompressed by streams, so the parser reads directly from the inflater;
+ * the requests are compressed by the EnvelopeEntity.
+ *
+ * @author sabo
+ */
+final class ContentEncoding
+{
+
+  /**
+   * The value of the Accept-Encoding header.
+   */
+  static final String ACCEPT_ENCODING = "gzip, deflate";
+  /**
+   * The gzip content coding.
+   */
+  static final String GZIP = "gzip";
+  /**
+   * The deflate content coding.
+   */
+  static final String DEFLATE = "deflate";
+  /**
+   * The size of the buffer of the inflater streams.
+   */
+  private static final int BUFFER_SIZE = 8192;
+  /**
+   * The compression method of the zlib header (deflate).
+   */
+  private static final int ZLIB_METHOD_DEFLATE = 8;
+  /**
+   * The divisor of the check bits of the zlib header.
+   */
+  private static final int ZLIB_HEADER_CHECK = 31;
+
+  /**
+   * Private constructor, because all methods are static.
+   */
+  private ContentEncoding()
+  {
+    super();
+  }
+
+  /**
+   * Returns the content of the response entity, it is decompressed, if the
+   * Content-Encoding header of the entity is gzip or deflate.
+   *
+   * @param entity The entity
+   * @return The stream of the decompressed content
+   * @throws IOException If the content encoding isn't supported
+   */
+  static InputStream decode(final HttpEntity entity) throws IOException
+  {
+    InputStream content = entity.getContent();
+    Header header = entity.getContentEncoding();
+    String coding = header == null ? null : header.getValue().trim().toLowerCase(Locale.ENGLISH);
+    if (coding == null || coding.length() == 0 || "identity".equals(coding))
+    {
+      return content;
+    } else if (GZIP.equals(coding) || "x-gzip".equals(coding))
+    {
+      return new GZIPInputStream(content, BUFFER_SIZE);
+    } else if (DEFLATE.equals(coding))
+    {
+      return inflate(content);
+    }
+
+    throw new IOException("Unsupported content encoding: " + coding);
+  }
+
+  /**
+   * Returns the inflater stream of the deflate content. The content should be
+   * in zlib format, but some servers send raw deflate data; the format is
+   * detected from the first two bytes.
+   *
+   * @param content The deflate content
+   * @return The stream of the decompressed content
+   * @throws IOException When IO error occurred
+   */
+  private static InputStream inflate(final InputStream content) throws IOException
+  {
+    PushbackInputStream stream = new PushbackInputStream(content, 2);
+    byte[] header = new byte[2];
+    int length = 0;
+    while (length < header.length)
+    {
+      int count = stream.read(header, length, header.length - length);
+      if (count < 0)
+      {
+        break;
+      }
+      length += count;
+    }
+    stream.unread(header, 0, length);
+
+    boolean zlib = length == 2 && (header[0] & 0x0F) == ZLIB_METHOD_DEFLATE
+            && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % ZLIB_HEADER_CHECK == 0;
+    return new OwnedInflaterInputStream(stream, new Inflater(!zlib), BUFFER_SIZE);
+  }
+
+  /**
+   * Returns true, if the serialized envelope is longer than the limit. The
+   * serialization stops, when the limit is reached, so the check doesn't
+   * depend on the size of the envelope.
+   *
+   * @param envelope The envelope
+   * @param encoding The encoding of the envelope
+   * @param limit The limit in bytes
+   * @return True, if the envelope is longer than the limit
+   * @throws IOException When the envelope cannot be serialized
+   */
+  static boolean isLongerThan(final Envelope envelope, final String encoding, final int limit)
+          throws IOException
+  {
+    LimitedOutputStream stream = new LimitedOutputStream(limit);
+    try
+    {
+      Writer writer = new OutputStreamWriter(stream, encoding);
+      envelope.writeTo(writer);
+      writer.flush();
+      return false;
+    } catch (LimitReachedException except)
+    {
+      return true;
+    }
+  }
+
+  /**
+   * The inflater stream, which ends its inflater on close.
+   */
+  private static final class OwnedInflaterInputStream extends InflaterInputStream
+  {
+
+    /**
+     * Creates a new instance.
+     *
+     * @param in The compressed stream
+     * @param inflater The inflater, it is owned by the stream
+     * @param size The size of the input buffer
+     */
+    OwnedInflaterInputStream(final InputStream in, final Inflater inflater, final int size)
+    {
+      super(in, inflater, size);
+    }
+
+    /**
+     * Closes the stream, and releases the native memory of the inflater;
+     * the InflaterInputStream doesn't end the inflater given by the caller.
+     *
+     * @throws IOException When IO error occurred
+     */
+    @Override
+    public void close() throws IOException
+    {
+      try
+      {
+        super.close();
+      } finally
+      {
+        inf.end();
+      }
+    }
+  }
+
+  /**
+   * Counts and drops the written bytes, and throws LimitReachedException,
+   * when the limit is exceeded.
+   */
+  private static final class LimitedOutputStream extends OutputStream
+  {
+
+    /**
+     * The maximum number of bytes.
+     */
+    private final int limit;
+    /**
+     * The number of the written bytes.
+     */
+    private int count;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param limit The maximum number of bytes
+     */
+    LimitedOutputStream(final int limit)
+    {
+      super();
+      this.limit = limit;
+    }
+
+    /**
+     * Counts the byte.
+     *
+     * @param b The byte
+     * @throws LimitReachedException If the limit is exceeded
+     */
+    @Override
+    public void write(final int b) throws LimitReachedException
+    {
+      write(null, 0, 1);
+    }
+
+    /**
+     * Counts the bytes.
+     *
+     * @param b The bytes
+     * @param off The offset
+     * @param len The number of bytes
+     * @throws LimitReachedException If the limit is exceeded
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws LimitReachedException
+    {
+      count += len;
+      if (count > limit)
+      {
+        throw new LimitReachedException();
+      }
+    }
+  }
+
+  /**
+   * Stops the serialization, when the limit is exceeded.
+   */
+  private static final class LimitReachedException extends IOException
+  {
+
+    /**
+     * The serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+  }
+}
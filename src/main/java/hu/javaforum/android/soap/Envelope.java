@@ -4,6 +4,9 @@
  */
 package hu.javaforum.android.soap;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * This class holds a generic SOAP envelope.
  *
@@ -129,4 +132,19 @@ public abstract class Envelope
 
     return sb.toString();
   }
+
+  /**
+   * Writes the SOAP Envelope in XML to the writer, without building the
+   * whole XML in the memory.
+   *
+   * @param writer The writer
+   * @throws IOException When IO error occurred
+   */
+  public final void writeTo(final Writer writer) throws IOException
+  {
+    writer.write(this.getStartTag());
+    this.header.writeTo(writer);
+    this.body.writeTo(writer);
+    writer.write(this.getEndTag());
+  }
 }
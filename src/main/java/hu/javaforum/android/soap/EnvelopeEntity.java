@@ -0,0 +1,142 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Streaming HttpEntity of the SOAP envelope. The envelope is serialized
+ * directly to the output stream of the connection with chunked transfer
+ * encoding, so the request never exists as a String or a byte array in the
+ * memory. The content can be gzip compressed on the fly.
+ *
+ * @author sabo
+ */
+final class EnvelopeEntity extends AbstractHttpEntity
+{
+
+  /**
+   * The size of the buffer between the serializer and the output stream.
+   */
+  private static final int BUFFER_SIZE = 8192;
+  /**
+   * The envelope.
+   */
+  private final Envelope envelope;
+  /**
+   * The encoding of the envelope.
+   */
+  private final String encoding;
+  /**
+   * True, if the content is gzip compressed.
+   */
+  private final boolean compressed;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param envelope The envelope
+   * @param encoding The encoding
+   */
+  EnvelopeEntity(final Envelope envelope, final String encoding)
+  {
+    this(envelope, encoding, false);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param envelope The envelope
+   * @param encoding The encoding
+   * @param compressed True, if the content is gzip compressed
+   */
+  EnvelopeEntity(final Envelope envelope, final String encoding, final boolean compressed)
+  {
+    super();
+    this.envelope = envelope;
+    this.encoding = encoding;
+    this.compressed = compressed;
+    setContentType("text/xml; charset=" + encoding);
+    if (compressed)
+    {
+      setContentEncoding(ContentEncoding.GZIP);
+    }
+    setChunked(true);
+  }
+
+  /**
+   * The envelope can be serialized more than once.
+   *
+   * @return True
+   */
+  public boolean isRepeatable()
+  {
+    return true;
+  }
+
+  /**
+   * The length of the content is unknown before the serialization.
+   *
+   * @return -1
+   */
+  public long getContentLength()
+  {
+    return -1;
+  }
+
+  /**
+   * Returns the serialized envelope as stream. This method builds the whole
+   * content in the memory, the HttpClient uses the writeTo method instead.
+   *
+   * @return The stream
+   * @throws IOException When IO error occurred
+   */
+  public InputStream getContent() throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writeTo(baos);
+    return new ByteArrayInputStream(baos.toByteArray());
+  }
+
+  /**
+   * Serializes the envelope to the output stream, it is compressed, if the
+   * entity is compressed.
+   *
+   * @param outstream The output stream
+   * @throws IOException When IO error occurred
+   */
+  public void writeTo(final OutputStream outstream) throws IOException
+  {
+    GZIPOutputStream gzip = compressed ? new GZIPOutputStream(outstream, BUFFER_SIZE) : null;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(gzip == null ? outstream : gzip, encoding),
+            BUFFER_SIZE);
+    envelope.writeTo(writer);
+    writer.flush();
+    if (gzip != null)
+    {
+      gzip.finish();
+    }
+  }
+
+  /**
+   * The entity is not backed by a stream.
+   *
+   * @return False
+   */
+  public boolean isStreaming()
+  {
+    return false;
+  }
+}
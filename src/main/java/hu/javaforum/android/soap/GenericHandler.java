@@ -4,13 +4,12 @@
  */
 package hu.javaforum.android.soap;
 
-import hu.javaforum.commons.ReflectionUtil;
+import hu.javaforum.commons.BindingMetaData;
+import hu.javaforum.commons.FieldBinding;
+import hu.javaforum.commons.GeneratedCode;
 
-import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,23 +49,41 @@ public class GenericHandler extends ParserHelper
   /**
    * The path in the SOAP XML.
    */
-  private final List<String> xmlPath = new ArrayList<String>();
+  private final ObjectStack<String> xmlPath = new ObjectStack<String>();
   /**
    * The objects in the XML.
    */
-  private final List<Object> objectPath = new ArrayList<Object>();
+  private final ObjectStack<Object> objectPath = new ObjectStack<Object>();
   /**
    * The collection objects in the XML.
    */
-  private final List<Object> collectionPath = new ArrayList<Object>();
+  private final ObjectStack<Object> collectionPath = new ObjectStack<Object>();
   /**
    * The ArrayFieldInfo list.
    */
-  private final Stack<ArrayFieldInfo> arrayFieldData = new Stack<ArrayFieldInfo>();
+  private final ObjectStack<ArrayFieldInfo> arrayFieldData = new ObjectStack<ArrayFieldInfo>();
+  /**
+   * The projection nodes of the elements in the xmlPath, null if the whole
+   * subtree is bound.
+   */
+  private final ObjectStack<ParseOptions.Projection> projectionPath = new ObjectStack<ParseOptions.Projection>();
   /**
    * The wrapped result.
    */
   private Object wrappedResult;
+  /**
+   * The parse options, it can be null.
+   */
+  private final ParseOptions parseOptions;
+  /**
+   * True, if the content of the last started element is passed to a setter.
+   */
+  private boolean contentNeeded;
+  /**
+   * The depth in the skipped subtree of an unmapped element, 0 if no element
+   * is skipped.
+   */
+  private int skipDepth;
 
   /**
    * Constructor used for case where we have wrapped result and field name
@@ -95,9 +112,41 @@ public class GenericHandler extends ParserHelper
    */
   public GenericHandler(final Class resultClass, final Boolean exceptionHandler)
           throws InstantiationException, IllegalAccessException
+  {
+    this(resultClass, exceptionHandler, null);
+  }
+
+  /**
+   * Constructor of the result handler with parse options (e.g. streamed
+   * collections).
+   *
+   * @param resultClass The class of result object
+   * @param parseOptions The parse options
+   * @throws IllegalAccessException IllegalAccessException
+   * @throws InstantiationException InstantiationException
+   */
+  public GenericHandler(final Class resultClass, final ParseOptions parseOptions)
+          throws InstantiationException, IllegalAccessException
+  {
+    this(resultClass, Boolean.FALSE, parseOptions);
+  }
+
+  /**
+   * Constructor of the handler.
+   *
+   * @param resultClass The class of result object
+   * @param exceptionHandler True, if handles exception
+   * @param parseOptions The parse options, it can be null
+   * @throws IllegalAccessException IllegalAccessException
+   * @throws InstantiationException InstantiationException
+   */
+  private GenericHandler(final Class resultClass, final Boolean exceptionHandler,
+          final ParseOptions parseOptions)
+          throws InstantiationException, IllegalAccessException
   {
     try
     {
+      this.parseOptions = parseOptions;
       if (exceptionHandler)
       {
         this.exceptionClass = resultClass;
@@ -106,19 +155,13 @@ public class GenericHandler extends ParserHelper
         this.exceptionClass = null;
       }
 
-      this.result = resultClass.newInstance();
+      this.result = GeneratedCode.newInstance(resultClass);
       Object wrappedResultObject = null;
-      try
-      {
-        Class wrappedResultClass = ReflectionUtil.getField(resultClass, "return").getType();
-        if (wrappedResultClass != null)
-        {
-          wrappedResultObject = wrappedResultClass.newInstance();
-          ReflectionUtil.invokeSetter(result, "return", wrappedResultObject);
-        }
-      } catch (NoSuchFieldException except)
+      FieldBinding wrappedResultBinding = BindingMetaData.getBinding(resultClass, "return");
+      if (wrappedResultBinding != null)
       {
-        LOGGER.warn(except.toString());
+        wrappedResultObject = GeneratedCode.newInstance(wrappedResultBinding.getType());
+        wrappedResultBinding.invokeSetter(result, wrappedResultObject);
       }
       this.wrappedResult = wrappedResultObject;
     } finally
@@ -168,110 +211,152 @@ public class GenericHandler extends ParserHelper
     try
     {
       this.clearContent();
+      this.contentNeeded = false;
 
-      StringBuilder sb = new StringBuilder(originalName);
-      sb.setCharAt(0, Character.toLowerCase(sb.charAt(0)));
-      String name = sb.toString();
+      if (this.skipDepth > 0)
+      {
+        this.skipDepth++;
+        return;
+      }
+
+      String name = toFieldName(originalName);
 
       if (name.indexOf("env:") == 0)
       {
-        LOGGER.debug("Skipping {}", name);
+        if (LOGGER.isDebugEnabled())
+        {
+          LOGGER.debug("Skipping {}", name);
+        }
         return;
       }
 
+      /**
+       * Skips the elements, which are not on a projected path
+       */
+      ParseOptions.Projection projection = null;
+      if (this.xmlPath.isEmpty())
+      {
+        projection = this.parseOptions == null ? null : this.parseOptions.getProjection();
+      } else if (this.projectionPath.peek() != null)
+      {
+        projection = this.projectionPath.peek().getChild(name);
+        if (projection == null)
+        {
+          this.skipDepth = 1;
+          return;
+        } else if (projection.isSelected())
+        {
+          projection = null;
+        }
+      }
+
       if (this.exceptionClass != null && name.equals("faultcode"))
       {
-        this.objectPath.add(null);
-        this.collectionPath.add(null);
+        this.objectPath.push(null);
+        this.collectionPath.push(null);
       } else if (this.exceptionClass != null && name.equals("faultstring"))
       {
-        this.objectPath.add(null);
-        this.collectionPath.add(null);
+        this.objectPath.push(null);
+        this.collectionPath.push(null);
+        this.contentNeeded = true;
       } else if (this.exceptionClass != null && name.equals("detail"))
       {
-        this.objectPath.add(null);
-        this.collectionPath.add(null);
+        this.objectPath.push(null);
+        this.collectionPath.push(null);
       } else if (this.exceptionClass != null && this.objectPath.size() == 1)
       {
+        FieldBinding faultBinding = BindingMetaData.getBinding(this.exceptionClass, name);
+        if (faultBinding == null)
+        {
+          startSkipping(name, this.exceptionClass);
+          return;
+        }
+
         try
         {
-          this.result = this.exceptionClass.getDeclaredField(name).getType().newInstance();
-          this.objectPath.add(result);
-          this.collectionPath.add(null);
+          this.result = GeneratedCode.newInstance(faultBinding.getType());
+          this.objectPath.push(result);
+          this.collectionPath.push(null);
         } catch (Exception except)
         {
           LOGGER.error(except.toString(), except);
         }
       } else if (this.xmlPath.isEmpty())
       {
-        this.objectPath.add(result);
-        this.collectionPath.add(null);
+        this.objectPath.push(result);
+        this.collectionPath.push(null);
       } else if (this.xmlPath.size() == 1 && this.wrappedResult != null)
       {
-        this.objectPath.add(this.wrappedResult);
-        this.collectionPath.add(null);
+        this.objectPath.push(this.wrappedResult);
+        this.collectionPath.push(null);
 
       } else
       {
         /**
          * Gets the last object...
          */
-        LOGGER.debug("XML tag name: {}", name);
-        Object object = this.objectPath.get(this.objectPath.size() - 1);
-        Class fieldClass = null;
-        try
+        if (LOGGER.isDebugEnabled())
         {
-          fieldClass = ReflectionUtil.getField(object.getClass(), name).getType();
-        } catch (NoSuchFieldException ex)
+          LOGGER.debug("XML tag name: {}", name);
+        }
+        Object object = this.objectPath.peek();
+        FieldBinding binding = BindingMetaData.getBinding(object.getClass(), name);
+        if (binding == null)
         {
-          LOGGER.warn(ex.toString());
+          startSkipping(name, object.getClass());
+          return;
         }
+        Class fieldClass = binding.getType();
 
         /**
-         * ...detect collection types
+         * ...detect streamed and other collection types
          */
-        if (fieldClass != null && (fieldClass.equals(List.class) || fieldClass.isArray()))
+        ItemConsumer itemConsumer = getItemConsumer(binding, name);
+        this.contentNeeded = itemConsumer == null && !binding.isCollection();
+        if (itemConsumer != null)
+        {
+          startStreamedItem(binding.getGenericType(), itemConsumer);
+        } else if (fieldClass.isArray() && binding.isCollection())
         {
           /**
-           * Gets the generic class
+           * The items are collected by the ArrayFieldInfo, the array is set at
+           * the end tag of the parent
            */
-          Class fieldGenericClass = ReflectionUtil.getFieldGenericClass(object.getClass(), name);
-          List listObject;
-          if (fieldClass.equals(List.class))
+          ArrayFieldInfo afi = getArrayFieldInfo(binding, name);
+          Class fieldGenericClass = binding.getGenericType();
+          if (afi.isValueArray())
           {
-            listObject = (List) ReflectionUtil.invokeGetter(object, name);
-            this.collectionPath.add(listObject);
+            this.objectPath.push(fieldGenericClass);
+            this.collectionPath.push(afi);
+            this.contentNeeded = true;
           } else
           {
-            ArrayFieldInfo afi = null;
-            if (this.arrayFieldData.size() > 0)
+            try
             {
-              afi = this.arrayFieldData.peek();
-            }
-            if (afi == null)
+              Object fieldObject = GeneratedCode.newInstance(fieldGenericClass);
+              this.objectPath.push(fieldObject);
+              this.collectionPath.push(null);
+              afi.addElement(fieldObject);
+            } catch (InstantiationException except)
+            {
+              LOGGER.error(except.toString(), except);
+            } catch (IllegalAccessException except)
             {
-              afi = new ArrayFieldInfo(name, this.xmlPath.size());
-              this.arrayFieldData.push(afi);
+              LOGGER.error(except.toString(), except);
             }
-            listObject = afi.getArrayData();
-            this.collectionPath.add(null);
           }
-
+        } else if (fieldClass.equals(List.class))
+        {
           /**
-           * Creates a new instance, and put it into the objects collection
+           * Creates a new instance, and put it into the list
            */
+          List listObject = (List) binding.invokeGetter(object);
+          this.collectionPath.push(listObject);
           try
           {
-            if (fieldClass.isArray() && fieldGenericClass.isPrimitive())
-            {
-              this.objectPath.add(Array.newInstance(fieldGenericClass, 0));
-              listObject.add(null);
-            } else
-            {
-              Object fieldObject = fieldGenericClass.newInstance();
-              this.objectPath.add(fieldObject);
-              listObject.add(fieldObject);
-            }
+            Object fieldObject = GeneratedCode.newInstance(binding.getGenericType());
+            this.objectPath.push(fieldObject);
+            listObject.add(fieldObject);
           } catch (InstantiationException except)
           {
             LOGGER.error(except.toString(), except);
@@ -288,27 +373,27 @@ public class GenericHandler extends ParserHelper
           {
             if (fieldClass.isPrimitive() || fieldClass.isArray())
             {
-              this.objectPath.add(fieldClass);
-              this.collectionPath.add(null);
+              this.objectPath.push(fieldClass);
+              this.collectionPath.push(null);
             } else if (fieldClass.getName().equals("java.math.BigDecimal"))
             {
               Object fieldObject = fieldClass.getDeclaredConstructor(int.class).newInstance(0);
-              this.objectPath.add(fieldObject);
-              this.collectionPath.add(null);
-              Object parentObject = this.objectPath.get(this.objectPath.size() - 2);
-              ReflectionUtil.invokeSetter(parentObject, name, fieldObject);
+              this.objectPath.push(fieldObject);
+              this.collectionPath.push(null);
+              Object parentObject = this.objectPath.peek(1);
+              binding.invokeSetter(parentObject, fieldObject);
             } else if (fieldClass.isEnum())
             {
-              this.objectPath.add(fieldClass);
-              this.collectionPath.add(null);
+              this.objectPath.push(fieldClass);
+              this.collectionPath.push(null);
             } else
             {
-              Object fieldObject = fieldClass.newInstance();
-              this.objectPath.add(fieldObject);
-              this.collectionPath.add(null);
+              Object fieldObject = GeneratedCode.newInstance(fieldClass);
+              this.objectPath.push(fieldObject);
+              this.collectionPath.push(null);
 
-              Object parentObject = this.objectPath.get(this.objectPath.size() - 2);
-              ReflectionUtil.invokeSetter(parentObject, name, fieldObject);
+              Object parentObject = this.objectPath.peek(1);
+              binding.invokeSetter(parentObject, fieldObject);
             }
           } catch (Exception except)
           {
@@ -317,16 +402,132 @@ public class GenericHandler extends ParserHelper
         }
       }
 
-      this.xmlPath.add(name);
+      this.projectionPath.push(projection);
+      this.xmlPath.push(name);
 
-      LOGGER.debug("startElement.xmlPath: {} ", this.xmlPath.toString());
-      LOGGER.debug("startElement.objectPath: {}", this.objectPath.toString());
-      LOGGER.debug("startElement.collectionPath: {}", this.collectionPath.toString());
+      if (LOGGER.isDebugEnabled())
+      {
+        LOGGER.debug("startElement.xmlPath: {} ", this.xmlPath);
+        LOGGER.debug("startElement.objectPath: {}", this.objectPath);
+        LOGGER.debug("startElement.collectionPath: {}", this.collectionPath);
+      }
     } finally
     {
     }
   }
 
+  /**
+   * Starts the skipping of an unmapped element: its subtree is not bound, the
+   * nested elements are only counted to the matching end tag.
+   *
+   * @param name The name of the element
+   * @param parentClass The class of the parent object
+   */
+  private void startSkipping(final String name, final Class parentClass)
+  {
+    if (this.parseOptions == null || this.parseOptions.isWarnUnmappedElements())
+    {
+      LOGGER.warn("The '{}' field isn't exists in {}, skipping", name, parentClass.getName());
+    }
+    this.skipDepth = 1;
+  }
+
+  /**
+   * Returns true, if the last started element is skipped with its subtree.
+   *
+   * @return True, if the element is skipped
+   */
+  @Override
+  protected final boolean isSkippingElement()
+  {
+    return this.skipDepth > 0;
+  }
+
+  /**
+   * Returns true, if the content of the last started element is passed to a
+   * setter (or it is the fault string).
+   *
+   * @return True, if the content is needed
+   */
+  @Override
+  protected final boolean isContentNeeded()
+  {
+    return this.contentNeeded;
+  }
+
+  /**
+   * Returns the ArrayFieldInfo of the array field in the current object, it
+   * is created at the first item.
+   *
+   * @param binding The binding of the array field
+   * @param name The name of the element
+   * @return The ArrayFieldInfo
+   */
+  private ArrayFieldInfo getArrayFieldInfo(final FieldBinding binding, final String name)
+  {
+    final int depth = this.xmlPath.size();
+    for (int index = 0; index < this.arrayFieldData.size(); index++)
+    {
+      ArrayFieldInfo afi = this.arrayFieldData.peek(index);
+      if (afi.getArrayFieldDepth() != depth)
+      {
+        break;
+      }
+      if (afi.getFieldName().equals(name))
+      {
+        return afi;
+      }
+    }
+
+    ArrayFieldInfo afi = new ArrayFieldInfo(name, depth, binding);
+    this.arrayFieldData.push(afi);
+
+    return afi;
+  }
+
+  /**
+   * Returns the consumer of the element, if it is an item of a streamed
+   * collection.
+   *
+   * @param binding The binding of the element, it can be null
+   * @param name The name of the element
+   * @return The consumer or null
+   */
+  private ItemConsumer getItemConsumer(final FieldBinding binding, final String name)
+  {
+    if (this.parseOptions == null || !this.parseOptions.hasItemConsumers()
+            || binding == null || !binding.isCollection()
+            || binding.getGenericType() == null || binding.getGenericType().isPrimitive())
+    {
+      return null;
+    }
+
+    return this.parseOptions.getItemConsumer(this.xmlPath, name);
+  }
+
+  /**
+   * Starts a streamed item: the item is not added to the collection, the
+   * consumer gets it at the end tag (the consumer is the marker of the item
+   * in the collectionPath).
+   *
+   * @param itemClass The class of the item
+   * @param itemConsumer The consumer
+   */
+  private void startStreamedItem(final Class itemClass, final ItemConsumer itemConsumer)
+  {
+    try
+    {
+      this.objectPath.push(GeneratedCode.newInstance(itemClass));
+      this.collectionPath.push(itemConsumer);
+    } catch (InstantiationException except)
+    {
+      LOGGER.error(except.toString(), except);
+    } catch (IllegalAccessException except)
+    {
+      LOGGER.error(except.toString(), except);
+    }
+  }
+
   /**
    * End element hook.
    *
@@ -336,100 +537,121 @@ public class GenericHandler extends ParserHelper
   {
     try
     {
+      if (this.skipDepth > 0)
+      {
+        this.skipDepth--;
+        return;
+      }
+
       if (originalName.indexOf("env:") == 0)
       {
         return;
       }
 
-      StringBuilder sb = new StringBuilder(originalName);
-      sb.setCharAt(0, Character.toLowerCase(sb.charAt(0)));
-      String name = sb.toString();
+      String name = toFieldName(originalName);
 
-      this.xmlPath.remove(this.xmlPath.size() - 1);
+      this.projectionPath.pop();
+      this.xmlPath.pop();
       /**
        * If the parse depth drops back to where we first encountered array elements,
        * gather the assembled array elements and call the parent object's array setter
-       * TODO: now handling array fields CJW
        */
-      if (this.arrayFieldData != null && this.arrayFieldData.size() > 0)
+      while (!this.arrayFieldData.isEmpty()
+              && this.xmlPath.size() < this.arrayFieldData.peek().getArrayFieldDepth())
       {
-        ArrayFieldInfo afi = this.arrayFieldData.peek();
-        if (this.xmlPath.size() < afi.getArrayFieldDepth())
+        ArrayFieldInfo afi = this.arrayFieldData.pop();
+        Object object = this.objectPath.peek();
+        if (LOGGER.isDebugEnabled())
         {
-          this.arrayFieldData.pop();
-          Object object = this.objectPath.get(this.objectPath.size() - 1);
-          LOGGER.debug("invokeSetter(" + object + ", " + afi.getFieldName() + ", " + afi.getArrayData() + ")");
-          ReflectionUtil.invokeSetter(object, afi.getFieldName(), afi.getArrayData());
+          LOGGER.debug("invokeSetter({}, {}, {} items)", new Object[]
+                  {
+                    object, afi.getFieldName(), afi.size()
+                  });
         }
+        afi.getBinding().invokeSetter(object, afi.toArray());
       }
 
       if (this.exceptionClass != null && originalName.equals("faultcode"))
       {
-        this.objectPath.remove(null);
-        this.collectionPath.remove(this.collectionPath.size() - 1);
+        this.objectPath.pop();
+        this.collectionPath.pop();
         //      this.faultCode = getContent();
       } else if (this.exceptionClass != null && originalName.equals("faultstring"))
       {
-        this.objectPath.remove(null);
-        this.collectionPath.remove(this.collectionPath.size() - 1);
+        this.objectPath.pop();
+        this.collectionPath.pop();
         this.faultString = getContent();
       } else if (this.exceptionClass != null && originalName.equals("detail"))
       {
-        this.objectPath.remove(null);
-        this.collectionPath.remove(this.collectionPath.size() - 1);
+        this.objectPath.pop();
+        this.collectionPath.pop();
       } else if (this.xmlPath.isEmpty())
       {
-        this.objectPath.remove(result);
-        this.collectionPath.remove(this.collectionPath.size() - 1);
+        this.objectPath.pop();
+        this.collectionPath.pop();
       } else if (this.xmlPath.size() == 1 && this.wrappedResult != null)
       {
-        this.objectPath.remove(this.wrappedResult);
-        this.collectionPath.remove(this.collectionPath.size() - 1);
+        this.objectPath.pop();
+        this.collectionPath.pop();
       } else
       {
-        Object object = this.objectPath.get(this.objectPath.size() - 2);
-        Object field = this.objectPath.get(this.objectPath.size() - 1);
+        Object object = this.objectPath.peek(1);
+        Object field = this.objectPath.peek();
 
+        FieldBinding binding = BindingMetaData.getBinding(object.getClass(), name);
         Class fieldClass = null;
         if (field instanceof Class)
         {
           fieldClass = (Class) field;
+        } else if (binding != null)
+        {
+          fieldClass = binding.getType();
         } else
         {
-          try
-          {
-            fieldClass = ReflectionUtil.getField(object.getClass(), name).getType();
-          } catch (NoSuchFieldException ex)
-          {
-            LOGGER.warn(ex.toString());
-          }
+          LOGGER.warn("The '{}' field isn't exists in {}", name, object.getClass().getName());
         }
 
         /**
-         * Save the content, if the field is String - data conversions occur in invokeSetter
+         * Hands off the streamed item, or saves the content, if the field is
+         * String - data conversions occur in invokeSetter
          */
-        if (fieldClass != null)
+        Object collection = this.collectionPath.peek();
+        if (collection instanceof ItemConsumer)
         {
-          if (fieldClass.isArray())
+          ((ItemConsumer) collection).consume(field);
+        } else if (collection instanceof ArrayFieldInfo)
+        {
+          try
           {
-            String content = getContent();
-            LOGGER.debug("invokeSetter({}, {}, {}", new Object[] {object, name, content});
-            ReflectionUtil.invokeSetter(object, name, content);
-          } else
+            addContentTo((ArrayFieldInfo) collection);
+          } catch (NumberFormatException except)
+          {
+            LOGGER.warn(except.toString());
+            ((ArrayFieldInfo) collection).addValue(null);
+          }
+        } else if (fieldClass != null && binding != null && !binding.isCollection())
+        {
+          String content = getContent();
+          if (LOGGER.isDebugEnabled())
           {
-            String content = getContent();
-            LOGGER.debug("invokeSetter({}, {}, {}", new Object[] {object, name, content});
-            ReflectionUtil.invokeSetter(object, name, content);
+            LOGGER.debug("invokeSetter({}, {}, {})", new Object[]
+                    {
+                      object, name, content
+                    });
           }
+          binding.invokeSetter(object, content);
         }
 
-        this.objectPath.remove(this.objectPath.size() - 1);
-        this.collectionPath.remove(this.collectionPath.size() - 1);
+        this.objectPath.pop();
+        this.collectionPath.pop();
       }
 
-      LOGGER.debug("endElement.xmlPath: {} ", this.xmlPath.toString());
-      LOGGER.debug("endElement.objectPath: {}", this.objectPath.toString());
-      LOGGER.debug("endElement.collectionPath: {}", this.collectionPath.toString());
+      if (LOGGER.isDebugEnabled())
+      {
+        LOGGER.debug("endElement.xmlPath: {} ", this.xmlPath);
+        LOGGER.debug("endElement.objectPath: {}", this.objectPath);
+        LOGGER.debug("endElement.collectionPath: {}", this.collectionPath);
+      }
     } finally
     {
       this.clearContent();
@@ -4,6 +4,9 @@
  */
 package hu.javaforum.android.soap;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * This class holds a generic header in the SOAP envelope.
  *
@@ -32,4 +35,17 @@ public abstract class Header
   {
     return this.getHeader();
   }
+
+  /**
+   * Writes the header in the SOAP envelope in XML to the writer. The
+   * implementations may override it to avoid building the whole header as
+   * a String.
+   *
+   * @param writer The writer
+   * @throws IOException When IO error occurred
+   */
+  protected void writeTo(final Writer writer) throws IOException
+  {
+    writer.write(this.getHeader());
+  }
 }
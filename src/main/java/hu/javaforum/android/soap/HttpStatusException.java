@@ -0,0 +1,47 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.IOException;
+
+/**
+ * Thrown, when the HTTP status of the response is neither 200 (result) nor
+ * 500 (SOAP fault).
+ *
+ * @author sabo
+ */
+public class HttpStatusException extends IOException
+{
+
+  /**
+   * The serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+  /**
+   * The HTTP status code.
+   */
+  private final int statusCode;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param statusCode The HTTP status code
+   */
+  public HttpStatusException(final int statusCode)
+  {
+    super("Can't parse the response, status: " + statusCode);
+    this.statusCode = statusCode;
+  }
+
+  /**
+   * Returns the HTTP status code.
+   *
+   * @return The status code
+   */
+  public final int getStatusCode()
+  {
+    return statusCode;
+  }
+}
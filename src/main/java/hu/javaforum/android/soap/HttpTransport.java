@@ -4,9 +4,9 @@
  */
 package hu.javaforum.android.soap;
 
+import hu.javaforum.android.soap.ssl.HttpsClientFactory;
 import java.io.IOException;
 import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.params.HttpParams;
 
 /**
@@ -46,7 +46,7 @@ public class HttpTransport extends Transport
   }
 
   /**
-   * Creates a HttpClient implementation instance.
+   * Creates a HttpClient implementation instance with pooled connections.
    *
    * @param params The HttpParams
    * @return The instance
@@ -56,6 +56,6 @@ public class HttpTransport extends Transport
   protected final HttpClient createHttpClient(final HttpParams params)
           throws IOException
   {
-    return new DefaultHttpClient(params);
+    return HttpsClientFactory.createDefaultInstance(params);
   }
 }
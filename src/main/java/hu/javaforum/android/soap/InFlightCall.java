@@ -0,0 +1,106 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A running call, which is shared by the identical concurrent calls of the
+ * transport. The first call (the leader) sends the request, the others wait
+ * for the raw response of the leader and parse their own copies of the
+ * result. If the response isn't shared (e.g. it is too large), the waiting
+ * calls send their own requests.
+ *
+ * @author sabo
+ */
+final class InFlightCall
+{
+
+  /**
+   * Counted down, when the call is finished.
+   */
+  private final CountDownLatch finished = new CountDownLatch(1);
+  /**
+   * The raw response, null if the call failed or the response isn't shared.
+   */
+  private volatile byte[] content;
+  /**
+   * True, if the call succeeded, but its response isn't shared.
+   */
+  private volatile boolean notShared;
+  /**
+   * The failure of the call, null if the call succeeded.
+   */
+  private volatile IOException failure;
+
+  /**
+   * Finishes the call with the raw response. It has no effect, if the call
+   * is already finished.
+   *
+   * @param response The raw response, null if it isn't shared
+   */
+  synchronized void complete(final byte[] response)
+  {
+    if (finished.getCount() > 0)
+    {
+      this.content = response;
+      this.notShared = response == null;
+      finished.countDown();
+    }
+  }
+
+  /**
+   * Finishes the call with the failure. It has no effect, if the call is
+   * already finished.
+   *
+   * @param except The failure
+   */
+  synchronized void fail(final IOException except)
+  {
+    if (finished.getCount() > 0)
+    {
+      this.failure = except;
+      finished.countDown();
+    }
+  }
+
+  /**
+   * Waits for the end of the call, and returns the raw response.
+   *
+   * @return The raw response, it must not be modified; null if the call
+   * succeeded, but its response isn't shared
+   * @throws IOException The failure of the call (the instance thrown by the
+   * leader), or the waiting is interrupted
+   */
+  byte[] await() throws IOException
+  {
+    try
+    {
+      finished.await();
+    } catch (InterruptedException except)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the coalesced call");
+    }
+
+    if (content != null || notShared)
+    {
+      return content;
+    }
+
+    if (failure == null)
+    {
+      throw new IOException("The coalesced call failed");
+    }
+    /**
+     * The failure of the leader is thrown as is, so the waiting calls see the
+     * same exception (e.g. the status code of the HttpStatusException, or the
+     * SOAP fault) as the leader
+     */
+    throw failure;
+  }
+}
@@ -0,0 +1,27 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+/**
+ * Receives the items of a streamed collection (see ParseOptions), one by one,
+ * as soon as the end tag of the item is parsed. The parser doesn't retain the
+ * items, so the consumer should process or store them.
+ *
+ * The consumer runs on the parser thread, and a RuntimeException thrown by
+ * the consumer aborts the parsing (and the call).
+ *
+ * @param <T> The type of the items
+ * @author sabo
+ */
+public interface ItemConsumer<T>
+{
+
+  /**
+   * Consumes an item.
+   *
+   * @param item The item
+   */
+  void consume(T item);
+}
@@ -0,0 +1,70 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the last successful calls of an operation, and
+ * computes their percentiles (e.g. the delay of the hedged requests).
+ *
+ * @author sabo
+ */
+final class LatencyTracker
+{
+
+  /**
+   * The number of the kept latencies.
+   */
+  private static final int WINDOW_SIZE = 128;
+  /**
+   * The minimum number of latencies, which are needed for a percentile.
+   */
+  private static final int MIN_SAMPLES = 20;
+  /**
+   * The latencies in milliseconds, it is a ring buffer.
+   */
+  private final long[] latencies = new long[WINDOW_SIZE];
+  /**
+   * The number of the recorded latencies.
+   */
+  private long count;
+
+  /**
+   * Records the latency of a successful call.
+   *
+   * @param latency The latency in milliseconds
+   */
+  synchronized void record(final long latency)
+  {
+    latencies[(int) (count % WINDOW_SIZE)] = latency;
+    count++;
+  }
+
+  /**
+   * Returns the percentile of the kept latencies.
+   *
+   * @param percentile The percentile (1-100)
+   * @return The latency in milliseconds, or -1 if there are not enough
+   * latencies
+   */
+  long getPercentile(final int percentile)
+  {
+    long[] sorted;
+    synchronized (this)
+    {
+      if (count < MIN_SAMPLES)
+      {
+        return -1;
+      }
+      sorted = new long[(int) Math.min(count, WINDOW_SIZE)];
+      System.arraycopy(latencies, 0, sorted, 0, sorted.length);
+    }
+
+    Arrays.sort(sorted);
+    int index = (sorted.length * percentile + 99) / 100 - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+}
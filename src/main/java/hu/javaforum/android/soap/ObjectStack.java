@@ -0,0 +1,144 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+/**
+ * Array based, unsynchronized stack of the parser. It doesn't allocate on
+ * push and pop (except the growing of the array), and it can be indexed from
+ * the bottom.
+ *
+ * @param <T> The type of the elements
+ * @author sabo
+ */
+final class ObjectStack<T>
+{
+
+  /**
+   * The initial capacity.
+   */
+  private static final int INITIAL_CAPACITY = 16;
+  /**
+   * The elements.
+   */
+  private Object[] elements = new Object[INITIAL_CAPACITY];
+  /**
+   * The number of the elements.
+   */
+  private int size;
+
+  /**
+   * Pushes an element (it can be null).
+   *
+   * @param element The element
+   */
+  void push(final T element)
+  {
+    if (size == elements.length)
+    {
+      Object[] grown = new Object[size * 2];
+      System.arraycopy(elements, 0, grown, 0, size);
+      elements = grown;
+    }
+
+    elements[size++] = element;
+  }
+
+  /**
+   * Removes the top element.
+   *
+   * @return The top element
+   */
+  T pop()
+  {
+    if (size == 0)
+    {
+      throw new IllegalStateException("The stack is empty");
+    }
+
+    T element = get(size - 1);
+    elements[--size] = null;
+
+    return element;
+  }
+
+  /**
+   * Returns the top element.
+   *
+   * @return The top element
+   */
+  T peek()
+  {
+    return peek(0);
+  }
+
+  /**
+   * Returns an element from the top.
+   *
+   * @param depth The depth from the top, 0 is the top element
+   * @return The element
+   */
+  T peek(final int depth)
+  {
+    if (depth >= size)
+    {
+      throw new IllegalStateException("The stack has only " + size + " elements");
+    }
+
+    return get(size - 1 - depth);
+  }
+
+  /**
+   * Returns an element from the bottom.
+   *
+   * @param index The index, 0 is the bottom element
+   * @return The element
+   */
+  @SuppressWarnings("unchecked")
+  T get(final int index)
+  {
+    return (T) elements[index];
+  }
+
+  /**
+   * Returns the number of the elements.
+   *
+   * @return The size
+   */
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns true, if the stack is empty.
+   *
+   * @return True, if the stack is empty
+   */
+  boolean isEmpty()
+  {
+    return size == 0;
+  }
+
+  /**
+   * Returns the elements from the bottom, e.g. [result, demoObj].
+   *
+   * @return The elements
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder("[");
+    for (int index = 0; index < size; index++)
+    {
+      if (index > 0)
+      {
+        sb.append(", ");
+      }
+      sb.append(elements[index]);
+    }
+
+    return sb.append(']').toString();
+  }
+}
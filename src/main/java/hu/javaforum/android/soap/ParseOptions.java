@@ -0,0 +1,256 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import hu.javaforum.commons.NameHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The options of the response parsing.
+ *
+ * Streaming: the items of a List or array field can be handed off to an
+ * ItemConsumer instead of collecting them into the result. The collection is
+ * selected by its path: the element names under the result element, separated
+ * by '/', e.g. "demoObj/subDetail" for the following response:
+ *
+ * &lt;result&gt;&lt;demoObj&gt;&lt;subDetail&gt;...&lt;/subDetail&gt;&lt;subDetail&gt;...
+ *
+ * The streamed items must be beans; the List field of the parent stays empty,
+ * the array field stays null.
+ *
+ * Projection: if any field path is added, only the elements on these paths
+ * (and their subtrees) are bound, the other elements are skipped by the
+ * parser. E.g. "demoObj/myName" binds the myName field of the demoObj, the
+ * other fields of the demoObj and the result stay empty. A view class (a bean
+ * with only the needed fields) can be used as result class for the same
+ * purpose, the unmapped elements are skipped; the warnings of the skipped
+ * elements can be turned off.
+ *
+ * @author sabo
+ */
+public final class ParseOptions
+{
+
+  /**
+   * The paths of the streamed collections, split to element names.
+   */
+  private final List<String[]> streamedPaths = new ArrayList<String[]>();
+  /**
+   * The consumers of the streamed collections.
+   */
+  private final List<ItemConsumer> itemConsumers = new ArrayList<ItemConsumer>();
+  /**
+   * The root of the projected field paths, null if every field is bound.
+   */
+  private Projection projection;
+  /**
+   * True, if the skipped unmapped elements are logged as warnings.
+   */
+  private boolean warnUnmappedElements = true;
+
+  /**
+   * Streams the items of the collection to the consumer.
+   *
+   * @param <T> The type of the items
+   * @param collectionPath The path of the collection, e.g. "demoObj/subDetail"
+   * @param consumer The consumer
+   */
+  public <T> void addItemConsumer(final String collectionPath, final ItemConsumer<T> consumer)
+  {
+    if (collectionPath == null || collectionPath.length() == 0)
+    {
+      throw new IllegalArgumentException("The collection path is empty");
+    }
+    if (consumer == null)
+    {
+      throw new IllegalArgumentException("The consumer is null");
+    }
+
+    streamedPaths.add(splitPath(collectionPath));
+    itemConsumers.add(consumer);
+  }
+
+  /**
+   * Binds the field on the path (with its subtree); the fields, which are not
+   * on any projected path, are skipped.
+   *
+   * @param fieldPath The path of the field, e.g. "demoObj/myName"
+   */
+  public void addProjection(final String fieldPath)
+  {
+    if (fieldPath == null || fieldPath.length() == 0)
+    {
+      throw new IllegalArgumentException("The field path is empty");
+    }
+
+    String[] names = splitPath(fieldPath);
+    if (projection == null)
+    {
+      projection = new Projection();
+    }
+
+    Projection node = projection;
+    for (int count = 0; count < names.length; count++)
+    {
+      node = node.addChild(names[count]);
+    }
+    node.selected = true;
+  }
+
+  /**
+   * Turns on or off the warnings of the skipped unmapped elements (e.g. when
+   * a view class is used as result class). The default is on.
+   *
+   * @param warnUnmappedElements True, if the skipped elements are logged
+   */
+  public void setWarnUnmappedElements(final boolean warnUnmappedElements)
+  {
+    this.warnUnmappedElements = warnUnmappedElements;
+  }
+
+  /**
+   * Returns true, if the skipped unmapped elements are logged as warnings.
+   *
+   * @return True, if the skipped elements are logged
+   */
+  public boolean isWarnUnmappedElements()
+  {
+    return warnUnmappedElements;
+  }
+
+  /**
+   * Returns the root of the projected field paths.
+   *
+   * @return The root, or null if every field is bound
+   */
+  Projection getProjection()
+  {
+    return projection;
+  }
+
+  /**
+   * Splits the path to element names, the first letters are lower case.
+   *
+   * @param path The path
+   * @return The element names
+   */
+  private static String[] splitPath(final String path)
+  {
+    String[] names = path.split("/");
+    for (int count = 0; count < names.length; count++)
+    {
+      if (names[count].length() == 0)
+      {
+        throw new IllegalArgumentException("Invalid path: " + path);
+      }
+      names[count] = new String(NameHelper.firstToLowerCase(names[count]));
+    }
+
+    return names;
+  }
+
+  /**
+   * Returns true, if there is any streamed collection.
+   *
+   * @return True, if there is any streamed collection
+   */
+  public boolean hasItemConsumers()
+  {
+    return !itemConsumers.isEmpty();
+  }
+
+  /**
+   * Returns the consumer of the item element.
+   *
+   * @param xmlPath The path of the parent element, the first item is the
+   * result element
+   * @param name The name of the item element
+   * @return The consumer or null, if the collection is not streamed
+   */
+  ItemConsumer getItemConsumer(final ObjectStack<String> xmlPath, final String name)
+  {
+    final int depth = xmlPath.size();
+    for (int index = 0; index < streamedPaths.size(); index++)
+    {
+      String[] names = streamedPaths.get(index);
+      if (names.length != depth || !names[depth - 1].equals(name))
+      {
+        continue;
+      }
+
+      boolean matches = true;
+      for (int count = 0; matches && count < depth - 1; count++)
+      {
+        matches = names[count].equals(xmlPath.get(count + 1));
+      }
+      if (matches)
+      {
+        return itemConsumers.get(index);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * A node of the projected field paths.
+   */
+  static final class Projection
+  {
+
+    /**
+     * The child nodes by element name.
+     */
+    private final Map<String, Projection> children = new HashMap<String, Projection>();
+    /**
+     * True, if the whole subtree of the element is bound.
+     */
+    private boolean selected;
+
+    /**
+     * Returns the child node of the element.
+     *
+     * @param name The name of the element
+     * @return The node, or null if the element is not projected
+     */
+    Projection getChild(final String name)
+    {
+      return children.get(name);
+    }
+
+    /**
+     * Returns true, if the whole subtree of the element is bound.
+     *
+     * @return True, if the subtree is bound
+     */
+    boolean isSelected()
+    {
+      return selected;
+    }
+
+    /**
+     * Returns the child node of the element, it is created, if it is not
+     * exists.
+     *
+     * @param name The name of the element
+     * @return The node
+     */
+    private Projection addChild(final String name)
+    {
+      Projection child = children.get(name);
+      if (child == null)
+      {
+        child = new Projection();
+        children.put(name, child);
+      }
+
+      return child;
+    }
+  }
+}
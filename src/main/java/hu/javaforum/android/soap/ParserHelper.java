@@ -4,18 +4,23 @@
  */
 package hu.javaforum.android.soap;
 
+import hu.javaforum.android.soap.parser.ParserBackend;
+import hu.javaforum.android.soap.parser.ParserCallback;
+import hu.javaforum.android.soap.parser.ParserException;
+import hu.javaforum.android.soap.parser.ParserSession;
+import hu.javaforum.android.soap.parser.Utf8ScannerBackend;
+import hu.javaforum.commons.FieldBinding;
+import hu.javaforum.android.soap.parser.XmlPullParserBackend;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
-import android.util.Xml;
-
 /**
  * Helper methods to GenericHandler class.
  *
@@ -33,9 +38,29 @@ public abstract class ParserHelper
 {
 
   /**
-   * The LOGGER instance.
+   * The prefixed Envelope tag.
+   */
+  private static final String ENVELOPE_TAG = "env::Envelope";
+  /**
+   * The prefixed Header tag.
+   */
+  private static final String HEADER_TAG = "env::Header";
+  /**
+   * The prefixed Body tag.
+   */
+  private static final String BODY_TAG = "env::Body";
+  /**
+   * The prefixed Fault tag.
+   */
+  private static final String FAULT_TAG = "env::Fault";
+  /**
+   * The maximum size of the field name table.
    */
-  private static final Logger LOGGER = LoggerFactory.getLogger(ParserHelper.class.getSimpleName());
+  private static final int FIELD_NAMES_LIMIT = 1024;
+  /**
+   * The field names of the element names, which start with upper case letter.
+   */
+  private static final ConcurrentHashMap<String, String> FIELD_NAMES = new ConcurrentHashMap<String, String>();
   /**
    * The String content of the XML leaves.
    */
@@ -44,66 +69,105 @@ public abstract class ParserHelper
    * Flag to dirty content.
    */
   private Boolean contentDirty = Boolean.FALSE;
+  /**
+   * The session of the step by step parsing.
+   */
+  private ParserSession session;
+  /**
+   * The callback of the parser sessions.
+   */
+  private final ParserCallback callback = new HandlerCallback();
 
   /**
-   * Parser factory to allow parser implementations other then Android's native
-   * Expat pull parser. (e.g. when not running code in emulator or device)
+   * XmlPullParser based XML processing.
    *
-   * @return An instance of XmlPullParser
+   * @param is The InputStream instance
+   * @throws IOException IOException
+   * @throws NoSuchFieldException NoSuchFieldException
+   * @throws XmlPullParserException XmlPullParserException
    */
-  private static XmlPullParser createParser()
+  public final void parseWithPullParser(final InputStream is) throws XmlPullParserException,
+          IOException, NoSuchFieldException
   {
     try
     {
-      return Xml.newPullParser();
-    } catch (Exception except)
+      parse(is, XmlPullParserBackend.INSTANCE);
+    } catch (ParserException except)
     {
-      LOGGER.warn("Cannot initialize Android's XML parser: {}", except.toString());
-      try
-      {
-        return (XmlPullParser) Class.forName("org.xmlpull.mxp1.MXParser").newInstance();
-      } catch (Exception ex)
+      if (except.getCause() instanceof XmlPullParserException)
       {
-        LOGGER.error("Cannot initialize XML parser: {}", ex.toString());
-        throw new IllegalStateException("Cannot initialize XML parser", ex);
+        throw (XmlPullParserException) except.getCause();
       }
-    } finally
-    {
+      throw except;
     }
   }
 
   /**
-   * XmlPullParser based XML processing.
+   * UTF-8 byte level XML processing, see Utf8ScannerBackend.
    *
    * @param is The InputStream instance
-   * @throws IOException IOException
-   * @throws NoSuchFieldException NoSuchFieldException
-   * @throws XmlPullParserException XmlPullParserException
+   * @throws IOException If the XML can't be read or parsed
    */
-  public final void parseWithPullParser(final InputStream is) throws XmlPullParserException,
-          IOException, NoSuchFieldException
+  public final void parseWithUtf8Scanner(final InputStream is) throws IOException
+  {
+    parse(is, Utf8ScannerBackend.INSTANCE);
+  }
+
+  /**
+   * XML processing with the parser backend.
+   *
+   * @param is The InputStream instance
+   * @param backend The parser backend
+   * @throws IOException If the XML can't be read or parsed
+   */
+  public final void parse(final InputStream is, final ParserBackend backend) throws IOException
   {
     try
     {
-      XmlPullParser parser = createParser();
-      parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
-      parser.setInput(is, null);
-
-      for (int eventType = parser.getEventType(); eventType != XmlPullParser.END_DOCUMENT; eventType = parser.next())
+      startParsing(is, backend);
+      while (parseNext())
       {
-        if (XmlPullParser.START_TAG == eventType)
-        {
-          startElement(getPrefixedTag(parser.getName()));
-        } else if (XmlPullParser.TEXT == eventType)
-        {
-          this.addText(parser.getText());
-        } else if (XmlPullParser.END_TAG == eventType)
-        {
-          this.endElement(getPrefixedTag(parser.getName()));
-        }
+        continue;
       }
     } finally
     {
+      finishParsing();
+    }
+  }
+
+  /**
+   * Starts the step by step parsing, see the parseNext() method.
+   *
+   * @param is The InputStream instance
+   * @param backend The parser backend
+   * @throws IOException If the parser can't be initialized
+   */
+  final void startParsing(final InputStream is, final ParserBackend backend) throws IOException
+  {
+    session = backend.open(is, callback);
+  }
+
+  /**
+   * Parses the next event of the XML, and calls the hooks. The session is
+   * closed at the end of the document, or if the parsing fails.
+   *
+   * @return False, if the end of the document is reached
+   * @throws IOException If the XML can't be read or parsed
+   */
+  final boolean parseNext() throws IOException
+  {
+    return session != null && session.next();
+  }
+
+  /**
+   * Stops the step by step parsing, and releases the parser.
+   */
+  final void finishParsing()
+  {
+    if (session != null)
+    {
+      session.close();
+      session = null;
     }
   }
 
@@ -115,18 +179,64 @@ public abstract class ParserHelper
    */
   private String getPrefixedTag(final String tagName)
   {
-    if ("Envelope".equals(tagName) || "Header".equals(tagName)
-            || "Body".equals(tagName) || "Fault".equals(tagName))
+    /**
+     * TODO: http://traq.javaforum.hu/browse/ANDROIDSOAP-9
+     */
+    if ("Envelope".equals(tagName))
+    {
+      return ENVELOPE_TAG;
+    } else if ("Header".equals(tagName))
     {
-      /**
-       * TODO: http://traq.javaforum.hu/browse/ANDROIDSOAP-9
-       */
-      return "env:" + ":" + tagName;
+      return HEADER_TAG;
+    } else if ("Body".equals(tagName))
+    {
+      return BODY_TAG;
+    } else if ("Fault".equals(tagName))
+    {
+      return FAULT_TAG;
     }
 
     return tagName;
   }
 
+  /**
+   * Returns the field name of the element name: the first letter is lower
+   * case. The names, which start with lower case letter, are returned as is,
+   * the others are looked up from a name table, so the method doesn't
+   * allocate for the known names.
+   *
+   * @param name The name of the element
+   * @return The name of the field
+   */
+  protected static String toFieldName(final String name)
+  {
+    if (name.length() == 0)
+    {
+      return name;
+    }
+
+    char first = name.charAt(0);
+    char lower = Character.toLowerCase(first);
+    if (first == lower)
+    {
+      return name;
+    }
+
+    String fieldName = FIELD_NAMES.get(name);
+    if (fieldName == null)
+    {
+      char[] chars = name.toCharArray();
+      chars[0] = lower;
+      fieldName = new String(chars);
+      if (FIELD_NAMES.size() < FIELD_NAMES_LIMIT)
+      {
+        FIELD_NAMES.put(name, fieldName);
+      }
+    }
+
+    return fieldName;
+  }
+
   /**
    * Append text fragment between the XML tags to the content buffer.
    *
@@ -136,18 +246,42 @@ public abstract class ParserHelper
   {
     if (text != null)
     {
-      char[] ch = text.toCharArray();
-      content.append(ch, 0, ch.length);
+      content.append(text);
       contentDirty = Boolean.TRUE;
     }
   }
 
+  /**
+   * Append text fragment between the XML tags to the content buffer.
+   *
+   * @param ch The buffer of the text
+   * @param start The first char of the text
+   * @param length The length of the text
+   */
+  public final void addText(final char[] ch, final int start, final int length)
+  {
+    content.append(ch, start, length);
+    contentDirty = Boolean.TRUE;
+  }
+
+  /**
+   * Adds the content buffer to the array as a value item, without creating
+   * a String for the primitive items.
+   *
+   * @param afi The array field info
+   * @throws NumberFormatException If the content is not a number
+   */
+  final void addContentTo(final ArrayFieldInfo afi)
+  {
+    afi.addValue(contentDirty ? content : null);
+  }
+
   /**
    * Clear the content buffer.
    */
   public final void clearContent()
   {
-    content.delete(0, content.length());
+    content.setLength(0);
     contentDirty = Boolean.FALSE;
   }
 
@@ -161,6 +295,28 @@ public abstract class ParserHelper
     return contentDirty ? content.toString() : null;
   }
 
+  /**
+   * Returns true, if the content of the last started element is needed by the
+   * endElement hook. The UTF-8 scanner doesn't decode the other texts.
+   *
+   * @return True, if the content is needed
+   */
+  protected boolean isContentNeeded()
+  {
+    return true;
+  }
+
+  /**
+   * Returns true, if the last started element is skipped with its content;
+   * the backend may skip its content to the matching end tag.
+   *
+   * @return True, if the element is skipped
+   */
+  protected boolean isSkippingElement()
+  {
+    return false;
+  }
+
   /**
    * Start element hook.
    *
@@ -177,11 +333,88 @@ public abstract class ParserHelper
   public abstract void endElement(String name);
 
   /**
-   * The array field info, this class holds an information about arrays.
+   * Passes the events of the parser sessions to the hooks.
+   */
+  private final class HandlerCallback implements ParserCallback
+  {
+
+    /**
+     * Start tag event.
+     *
+     * @param localName The local name of the element
+     * @return The action of the backend
+     */
+    public int startTag(final String localName)
+    {
+      startElement(getPrefixedTag(localName));
+
+      if (isSkippingElement())
+      {
+        return SKIP_SUBTREE;
+      }
+
+      return isContentNeeded() ? READ_TEXT : SKIP_TEXT;
+    }
+
+    /**
+     * Text event.
+     *
+     * @param ch The buffer of the text
+     * @param start The first char of the text
+     * @param length The length of the text
+     */
+    public void text(final char[] ch, final int start, final int length)
+    {
+      addText(ch, start, length);
+    }
+
+    /**
+     * End tag event.
+     *
+     * @param localName The local name of the element
+     */
+    public void endTag(final String localName)
+    {
+      endElement(getPrefixedTag(localName));
+    }
+  }
+
+  /**
+   * The array field info, this class holds an information about arrays. The
+   * items of the primitive arrays are parsed into growable primitive buffers
+   * (int, long or double), the String items and the beans are collected into
+   * a list.
    */
   static class ArrayFieldInfo
   {
 
+    /**
+     * The initial capacity of the primitive buffers.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * The most significant digits, which are parsed without rounding error.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+    /**
+     * The most significant digits of the float values.
+     */
+    private static final int MAX_EXACT_FLOAT_DIGITS = 7;
+    /**
+     * The exactly representable powers of ten as double.
+     */
+    private static final double[] DOUBLE_POWERS_OF_TEN =
+    {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /**
+     * The exactly representable powers of ten as float.
+     */
+    private static final float[] FLOAT_POWERS_OF_TEN =
+    {
+      1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
     /**
      * The field name.
      */
@@ -191,27 +424,70 @@ public abstract class ParserHelper
      */
     private final int arrayFieldDepth;
     /**
-     * The data of array as List.
+     * The binding of the array field.
+     */
+    private final FieldBinding binding;
+    /**
+     * The component type of the array.
+     */
+    private final Class componentType;
+    /**
+     * The data of array as List, null for the primitive arrays.
      */
     private final List<Object> arrayData;
+    /**
+     * The buffer of the int, short, byte, char and boolean items.
+     */
+    private int[] ints;
+    /**
+     * The buffer of the long items.
+     */
+    private long[] longs;
+    /**
+     * The buffer of the double and float items.
+     */
+    private double[] doubles;
+    /**
+     * The number of the items in the primitive buffer.
+     */
+    private int size;
 
     /**
      * The constructor.
      *
      * @param fieldName The name of the field
      * @param arrayFieldDepth The depth of the field
+     * @param binding The binding of the array field
      */
-    public ArrayFieldInfo(final String fieldName, final int arrayFieldDepth)
+    public ArrayFieldInfo(final String fieldName, final int arrayFieldDepth, final FieldBinding binding)
     {
       this.fieldName = fieldName;
       this.arrayFieldDepth = arrayFieldDepth;
-      this.arrayData = new ArrayList<Object>();
+      this.binding = binding;
+      this.componentType = binding.getType().getComponentType();
+      if (componentType.isPrimitive())
+      {
+        this.arrayData = null;
+        if (componentType.equals(long.class))
+        {
+          this.longs = new long[INITIAL_CAPACITY];
+        } else if (componentType.equals(double.class) || componentType.equals(float.class))
+        {
+          this.doubles = new double[INITIAL_CAPACITY];
+        } else
+        {
+          this.ints = new int[INITIAL_CAPACITY];
+        }
+      } else
+      {
+        this.arrayData = new ArrayList<Object>();
+      }
     }
 
     /**
      * Returns array data.
      *
-     * @return The array as list
+     * @return The array as list, null for the primitive arrays
      */
     public List<Object> getArrayData()
     {
@@ -238,6 +514,37 @@ public abstract class ParserHelper
       return fieldName;
     }
 
+    /**
+     * Returns the binding of the array field.
+     *
+     * @return The binding
+     */
+    public FieldBinding getBinding()
+    {
+      return binding;
+    }
+
+    /**
+     * Returns true, if the items are values (primitives or Strings), which are
+     * added by the addValue method.
+     *
+     * @return True, if the items are values
+     */
+    public boolean isValueArray()
+    {
+      return arrayData == null || componentType.equals(String.class);
+    }
+
+    /**
+     * Returns the number of the items.
+     *
+     * @return The number of the items
+     */
+    public int size()
+    {
+      return arrayData == null ? size : arrayData.size();
+    }
+
     /**
      * Add an element.
      *
@@ -247,5 +554,318 @@ public abstract class ParserHelper
     {
       this.arrayData.add(nextElement);
     }
+
+    /**
+     * Adds a value item: the text is parsed into the primitive buffer, or it
+     * is added as String. The empty primitive items are zero (or false).
+     *
+     * @param text The text of the item, it can be null
+     * @throws NumberFormatException If the text is not a number
+     */
+    public final void addValue(final CharSequence text)
+    {
+      if (arrayData != null)
+      {
+        arrayData.add(text == null ? null : text.toString());
+      } else if (longs != null)
+      {
+        long value = text == null ? 0L : parseLong(text, Long.MIN_VALUE, Long.MAX_VALUE);
+        ensureCapacity();
+        longs[size++] = value;
+      } else if (doubles != null)
+      {
+        double value = text == null ? 0.0d : parseDecimal(text, componentType.equals(float.class));
+        ensureCapacity();
+        doubles[size++] = value;
+      } else
+      {
+        int value = text == null ? 0 : parseInt(text);
+        ensureCapacity();
+        ints[size++] = value;
+      }
+    }
+
+    /**
+     * Returns the items as an array of the field type, the primitive buffers
+     * are trimmed to the size.
+     *
+     * @return The array
+     */
+    public final Object toArray()
+    {
+      if (arrayData != null)
+      {
+        return arrayData.toArray((Object[]) Array.newInstance(componentType, arrayData.size()));
+      } else if (componentType.equals(int.class))
+      {
+        int[] array = new int[size];
+        System.arraycopy(ints, 0, array, 0, size);
+        return array;
+      } else if (componentType.equals(long.class))
+      {
+        long[] array = new long[size];
+        System.arraycopy(longs, 0, array, 0, size);
+        return array;
+      } else if (componentType.equals(double.class))
+      {
+        double[] array = new double[size];
+        System.arraycopy(doubles, 0, array, 0, size);
+        return array;
+      }
+
+      Object array = Array.newInstance(componentType, size);
+      for (int index = 0; index < size; index++)
+      {
+        if (componentType.equals(float.class))
+        {
+          Array.setFloat(array, index, (float) doubles[index]);
+        } else if (componentType.equals(boolean.class))
+        {
+          Array.setBoolean(array, index, ints[index] != 0);
+        } else if (componentType.equals(short.class))
+        {
+          Array.setShort(array, index, (short) ints[index]);
+        } else if (componentType.equals(byte.class))
+        {
+          Array.setByte(array, index, (byte) ints[index]);
+        } else
+        {
+          Array.setChar(array, index, (char) ints[index]);
+        }
+      }
+
+      return array;
+    }
+
+    /**
+     * Grows the primitive buffer, if it is full.
+     */
+    private void ensureCapacity()
+    {
+      if (longs != null && size == longs.length)
+      {
+        long[] newLongs = new long[size * 2];
+        System.arraycopy(longs, 0, newLongs, 0, size);
+        longs = newLongs;
+      } else if (doubles != null && size == doubles.length)
+      {
+        double[] newDoubles = new double[size * 2];
+        System.arraycopy(doubles, 0, newDoubles, 0, size);
+        doubles = newDoubles;
+      } else if (ints != null && size == ints.length)
+      {
+        int[] newInts = new int[size * 2];
+        System.arraycopy(ints, 0, newInts, 0, size);
+        ints = newInts;
+      }
+    }
+
+    /**
+     * Parses the text as int, short, byte, char or boolean item.
+     *
+     * @param text The text
+     * @return The value in the int buffer
+     */
+    private int parseInt(final CharSequence text)
+    {
+      if (componentType.equals(int.class))
+      {
+        return (int) parseLong(text, Integer.MIN_VALUE, Integer.MAX_VALUE);
+      } else if (componentType.equals(short.class))
+      {
+        return (int) parseLong(text, Short.MIN_VALUE, Short.MAX_VALUE);
+      } else if (componentType.equals(byte.class))
+      {
+        return (int) parseLong(text, Byte.MIN_VALUE, Byte.MAX_VALUE);
+      } else if (componentType.equals(boolean.class))
+      {
+        return Boolean.parseBoolean(text.toString().trim()) ? 1 : 0;
+      }
+
+      int start = trimStart(text);
+      return start < trimEnd(text) ? text.charAt(start) : 0;
+    }
+
+    /**
+     * Parses a decimal integer, the whitespaces around it are ignored.
+     *
+     * @param text The text
+     * @param min The minimum value
+     * @param max The maximum value
+     * @return The value
+     * @throws NumberFormatException If the text is not a number in the range
+     */
+    private static long parseLong(final CharSequence text, final long min, final long max)
+    {
+      int index = trimStart(text);
+      final int end = trimEnd(text);
+      if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+'))
+      {
+        index++;
+      }
+      if (index == end)
+      {
+        throw new NumberFormatException("Invalid number: " + text);
+      }
+
+      final boolean negative = text.charAt(trimStart(text)) == '-';
+      final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+      final long multiplyLimit = limit / 10;
+      long result = 0;
+      for (; index < end; index++)
+      {
+        int digit = text.charAt(index) - '0';
+        if (digit < 0 || digit > 9 || result < multiplyLimit)
+        {
+          throw new NumberFormatException("Invalid number: " + text);
+        }
+        result *= 10;
+        if (result < limit + digit)
+        {
+          throw new NumberFormatException("Invalid number: " + text);
+        }
+        result -= digit;
+      }
+
+      long value = negative ? result : -result;
+      if (value < min || value > max)
+      {
+        throw new NumberFormatException("Value out of range: " + text);
+      }
+
+      return value;
+    }
+
+    /**
+     * Parses a decimal number. The short numbers (e.g. 12.345 or 1.5e-3) are
+     * computed with one exact multiplication or division, the others are
+     * parsed by Double.parseDouble (or Float.parseFloat).
+     *
+     * @param text The text
+     * @param single True, if the value is float
+     * @return The value
+     * @throws NumberFormatException If the text is not a number
+     */
+    private static double parseDecimal(final CharSequence text, final boolean single)
+    {
+      int index = trimStart(text);
+      final int end = trimEnd(text);
+      boolean negative = false;
+      if (index < end && (text.charAt(index) == '-' || text.charAt(index) == '+'))
+      {
+        negative = text.charAt(index) == '-';
+        index++;
+      }
+
+      long mantissa = 0;
+      int digits = 0;
+      int significantDigits = 0;
+      int exponent = 0;
+      boolean fraction = false;
+      boolean exact = true;
+      for (; index < end; index++)
+      {
+        char ch = text.charAt(index);
+        if (ch >= '0' && ch <= '9')
+        {
+          digits++;
+          if (mantissa > 0 || ch != '0')
+          {
+            significantDigits++;
+          }
+          if (significantDigits > MAX_EXACT_DIGITS)
+          {
+            exact = false;
+            break;
+          }
+          mantissa = mantissa * 10 + (ch - '0');
+          if (fraction)
+          {
+            exponent--;
+          }
+        } else if (ch == '.' && !fraction)
+        {
+          fraction = true;
+        } else if ((ch == 'e' || ch == 'E') && digits > 0 && index + 1 < end)
+        {
+          index++;
+          boolean negativeExponent = text.charAt(index) == '-';
+          if (negativeExponent || text.charAt(index) == '+')
+          {
+            index++;
+          }
+          int exponentDigits = 0;
+          int explicitExponent = 0;
+          for (; index < end && exponentDigits < 4; index++, exponentDigits++)
+          {
+            int digit = text.charAt(index) - '0';
+            if (digit < 0 || digit > 9)
+            {
+              break;
+            }
+            explicitExponent = explicitExponent * 10 + digit;
+          }
+          exact = exponentDigits > 0 && index == end;
+          exponent += negativeExponent ? -explicitExponent : explicitExponent;
+          break;
+        } else
+        {
+          exact = false;
+          break;
+        }
+      }
+
+      if (exact && digits > 0)
+      {
+        if (single && significantDigits <= MAX_EXACT_FLOAT_DIGITS
+                && exponent >= -FLOAT_POWERS_OF_TEN.length + 1 && exponent < FLOAT_POWERS_OF_TEN.length)
+        {
+          float value = exponent < 0 ? (float) mantissa / FLOAT_POWERS_OF_TEN[-exponent]
+                  : (float) mantissa * FLOAT_POWERS_OF_TEN[exponent];
+          return negative ? -value : value;
+        } else if (!single && exponent >= -DOUBLE_POWERS_OF_TEN.length + 1 && exponent < DOUBLE_POWERS_OF_TEN.length)
+        {
+          double value = exponent < 0 ? (double) mantissa / DOUBLE_POWERS_OF_TEN[-exponent]
+                  : (double) mantissa * DOUBLE_POWERS_OF_TEN[exponent];
+          return negative ? -value : value;
+        }
+      }
+
+      return single ? Float.parseFloat(text.toString()) : Double.parseDouble(text.toString());
+    }
+
+    /**
+     * Returns the index of the first non-whitespace char.
+     *
+     * @param text The text
+     * @return The index
+     */
+    private static int trimStart(final CharSequence text)
+    {
+      int index = 0;
+      while (index < text.length() && text.charAt(index) <= ' ')
+      {
+        index++;
+      }
+
+      return index;
+    }
+
+    /**
+     * Returns the index after the last non-whitespace char.
+     *
+     * @param text The text
+     * @return The index
+     */
+    private static int trimEnd(final CharSequence text)
+    {
+      int index = text.length();
+      while (index > 0 && text.charAt(index - 1) <= ' ')
+      {
+        index--;
+      }
+
+      return index;
+    }
   }
 }
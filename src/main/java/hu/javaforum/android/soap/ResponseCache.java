@@ -0,0 +1,584 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * The cache of the responses of the idempotent (read-only) operations. The
+ * operations are identified by the result class; only the operations with a
+ * time to live are cached. The responses are keyed by the URL, the operation
+ * and the digest of the serialized envelope, the custom Http headers and the
+ * username, so the identical calls hit the same entry.
+ *
+ * The entries hold the raw (decompressed) response, a hit is parsed again
+ * without network traffic, so every caller gets its own result. If the
+ * operation shares its results, a parsed result is stored as well, and
+ * returned by the hits without parsing; the shared results must not be
+ * modified by the callers. The caller of the miss gets its own result, the
+ * shared result is parsed separately from the response.
+ *
+ * The cache is bounded by the number of entries and by the total size of the
+ * responses, the least recently used entries are evicted. An instance can be
+ * shared between Transport instances, it is thread safe.
+ *
+ * @author sabo
+ */
+public final class ResponseCache
+{
+
+  /**
+   * The digest algorithm of the keys.
+   */
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+  /**
+   * The encoding of the envelope.
+   */
+  private static final String ENCODING = "UTF-8";
+  /**
+   * The size of the buffer of the envelope serializer.
+   */
+  private static final int BUFFER_SIZE = 8192;
+  /**
+   * The nanoseconds of a millisecond.
+   */
+  private static final long NANOS_PER_MILLI = 1000000L;
+  /**
+   * The maximum number of entries.
+   */
+  private final int maxEntries;
+  /**
+   * The maximum total size of the responses in bytes.
+   */
+  private final long maxBytes;
+  /**
+   * The time to live (in milliseconds) by result class.
+   */
+  private final ConcurrentMap<Class, Long> timesToLive = new ConcurrentHashMap<Class, Long>();
+  /**
+   * The result classes, whose parsed results are shared.
+   */
+  private final ConcurrentMap<Class, Boolean> sharedResults = new ConcurrentHashMap<Class, Boolean>();
+  /**
+   * The entries in access order, the eldest is the least recently used.
+   */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  /**
+   * The total size of the cached responses.
+   */
+  private long byteSize;
+  /**
+   * The number of the hits.
+   */
+  private long hitCount;
+  /**
+   * The number of the misses.
+   */
+  private long missCount;
+  /**
+   * The number of the evicted entries.
+   */
+  private long evictionCount;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxEntries The maximum number of entries
+   * @param maxBytes The maximum total size of the responses in bytes
+   */
+  public ResponseCache(final int maxEntries, final long maxBytes)
+  {
+    if (maxEntries <= 0 || maxBytes <= 0)
+    {
+      throw new IllegalArgumentException("The limits of the cache must be positive");
+    }
+
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Caches the responses of the operation for the given time.
+   *
+   * @param resultClass The result class of the operation
+   * @param timeToLive The time to live in milliseconds
+   */
+  public void setTimeToLive(final Class resultClass, final long timeToLive)
+  {
+    setTimeToLive(resultClass, timeToLive, false);
+  }
+
+  /**
+   * Caches the responses of the operation for the given time. If the results
+   * are shared, all hits of an entry return the same result instance without
+   * parsing, so the callers of the hits must not modify it; the caller of the
+   * miss gets its own result, which isn't shared. The calls with parse
+   * options are always parsed from the cached response.
+   *
+   * @param resultClass The result class of the operation
+   * @param timeToLive The time to live in milliseconds, 0 or negative turns
+   * off the caching of the operation
+   * @param shareResult True, if the parsed results are shared
+   */
+  public void setTimeToLive(final Class resultClass, final long timeToLive, final boolean shareResult)
+  {
+    if (timeToLive <= 0)
+    {
+      timesToLive.remove(resultClass);
+      sharedResults.remove(resultClass);
+      return;
+    }
+
+    timesToLive.put(resultClass, timeToLive);
+    if (shareResult)
+    {
+      sharedResults.put(resultClass, Boolean.TRUE);
+    } else
+    {
+      sharedResults.remove(resultClass);
+    }
+  }
+
+  /**
+   * Returns true, if the responses of the operation are cached.
+   *
+   * @param resultClass The result class of the operation
+   * @return True, if the operation is cached
+   */
+  public boolean isCached(final Class resultClass)
+  {
+    return timesToLive.containsKey(resultClass);
+  }
+
+  /**
+   * Returns true, if the hits of the operation share a parsed result.
+   *
+   * @param resultClass The result class of the operation
+   * @return True, if the results are shared
+   */
+  boolean isResultShared(final Class resultClass)
+  {
+    return sharedResults.containsKey(resultClass);
+  }
+
+  /**
+   * Returns the maximum total size of the responses.
+   *
+   * @return The size in bytes
+   */
+  public long getMaxBytes()
+  {
+    return maxBytes;
+  }
+
+  /**
+   * Creates the key of the call, it is used by the coalesced calls too.
+   *
+   * @param url The URL of the service
+   * @param username The username, it can be null
+   * @param envelope The request envelope
+   * @param httpHeaders The custom Http headers, it can be null
+   * @param resultClass The result class of the operation
+   * @return The key
+   * @throws IOException When the envelope cannot be serialized
+   */
+  static String createKey(final String url, final String username, final Envelope envelope,
+          final Map<String, String> httpHeaders, final Class resultClass) throws IOException
+  {
+    MessageDigest digest;
+    try
+    {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException except)
+    {
+      IOException ioException = new IOException(except.getMessage());
+      ioException.initCause(except);
+      throw ioException;
+    }
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(
+            new DigestOutputStream(new NullOutputStream(), digest), ENCODING), BUFFER_SIZE);
+    if (username != null)
+    {
+      writer.write(username);
+    }
+    writer.write('\n');
+    if (httpHeaders != null)
+    {
+      for (Map.Entry<String, String> header : new TreeMap<String, String>(httpHeaders).entrySet())
+      {
+        writer.write(header.getKey());
+        writer.write(':');
+        writer.write(String.valueOf(header.getValue()));
+        writer.write('\n');
+      }
+    }
+    writer.write('\n');
+    envelope.writeTo(writer);
+    writer.flush();
+
+    StringBuilder sb = new StringBuilder(url.length() + resultClass.getName().length() + 32);
+    sb.append(url);
+    sb.append(' ');
+    sb.append(resultClass.getName());
+    sb.append(' ');
+    sb.append(new String(Base64.encodeBase64(digest.digest()), ENCODING));
+    return sb.toString();
+  }
+
+  /**
+   * Returns the entry of the key and counts the hit or the miss; the expired
+   * entry is removed.
+   *
+   * @param key The key
+   * @return The entry, null if it isn't cached
+   */
+  synchronized Entry get(final String key)
+  {
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAt - System.nanoTime() <= 0)
+    {
+      remove(key);
+      entry = null;
+    }
+
+    if (entry == null)
+    {
+      missCount++;
+    } else
+    {
+      hitCount++;
+    }
+
+    return entry;
+  }
+
+  /**
+   * Stores the response of the call. The least recently used entries are
+   * evicted, if the cache is full. The response is not stored, if it is
+   * larger than the cache.
+   *
+   * @param key The key
+   * @param resultClass The result class of the operation
+   * @param content The raw response
+   * @param result The shared result, a separate instance from the result of
+   * the caller; it is stored, if the operation shares its results, it can be
+   * null
+   */
+  synchronized void put(final String key, final Class resultClass, final byte[] content, final Object result)
+  {
+    Long timeToLive = timesToLive.get(resultClass);
+    if (timeToLive == null || content.length > maxBytes)
+    {
+      return;
+    }
+
+    remove(key);
+    Object sharedResult = sharedResults.containsKey(resultClass) ? result : null;
+    entries.put(key, new Entry(content, sharedResult, System.nanoTime() + timeToLive * NANOS_PER_MILLI));
+    byteSize += content.length;
+
+    Iterator<Entry> eldest = entries.values().iterator();
+    while ((entries.size() > maxEntries || byteSize > maxBytes) && eldest.hasNext())
+    {
+      byteSize -= eldest.next().content.length;
+      eldest.remove();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Removes the entry of the key.
+   *
+   * @param key The key
+   */
+  private void remove(final String key)
+  {
+    Entry entry = entries.remove(key);
+    if (entry != null)
+    {
+      byteSize -= entry.content.length;
+    }
+  }
+
+  /**
+   * Removes all entries, the counters are kept.
+   */
+  public synchronized void clear()
+  {
+    entries.clear();
+    byteSize = 0;
+  }
+
+  /**
+   * Returns the number of entries, including the not yet removed expired
+   * entries.
+   *
+   * @return The number of entries
+   */
+  public synchronized int size()
+  {
+    return entries.size();
+  }
+
+  /**
+   * Returns the total size of the cached responses.
+   *
+   * @return The size in bytes
+   */
+  public synchronized long getByteSize()
+  {
+    return byteSize;
+  }
+
+  /**
+   * Returns the number of the hits.
+   *
+   * @return The number of the hits
+   */
+  public synchronized long getHitCount()
+  {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of the misses, the expired entries are counted as
+   * misses.
+   *
+   * @return The number of the misses
+   */
+  public synchronized long getMissCount()
+  {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of the entries, which are evicted because the cache
+   * was full.
+   *
+   * @return The number of the evictions
+   */
+  public synchronized long getEvictionCount()
+  {
+    return evictionCount;
+  }
+
+  /**
+   * A cached response.
+   */
+  static final class Entry
+  {
+
+    /**
+     * The raw response.
+     */
+    private final byte[] content;
+    /**
+     * The shared result, null if the result is not shared.
+     */
+    private final Object result;
+    /**
+     * The expiration time (System.nanoTime()).
+     */
+    private final long expiresAt;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param content The raw response
+     * @param result The shared result, it can be null
+     * @param expiresAt The expiration time
+     */
+    Entry(final byte[] content, final Object result, final long expiresAt)
+    {
+      this.content = content;
+      this.result = result;
+      this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Returns the raw response, it must not be modified.
+     *
+     * @return The response
+     */
+    byte[] getContent()
+    {
+      return content;
+    }
+
+    /**
+     * Returns the shared result.
+     *
+     * @return The result, null if the result is not shared
+     */
+    Object getResult()
+    {
+      return result;
+    }
+  }
+
+  /**
+   * Copies the read bytes of the response, while it is parsed. The copy is
+   * dropped, if the response is larger than the limit.
+   */
+  static final class CapturingInputStream extends FilterInputStream
+  {
+
+    /**
+     * The maximum number of the copied bytes.
+     */
+    private final long limit;
+    /**
+     * The copy, null if the limit is exceeded.
+     */
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream(BUFFER_SIZE);
+
+    /**
+     * Creates a new instance.
+     *
+     * @param stream The stream of the response
+     * @param limit The maximum number of the copied bytes
+     */
+    CapturingInputStream(final InputStream stream, final long limit)
+    {
+      super(stream);
+      this.limit = limit;
+    }
+
+    /**
+     * Reads and copies a byte.
+     *
+     * @return The byte, or -1 at the end of the stream
+     * @throws IOException When IO error occurred
+     */
+    @Override
+    public int read() throws IOException
+    {
+      int b = in.read();
+      if (b >= 0 && copy != null)
+      {
+        copy.write(b);
+        checkLimit();
+      }
+
+      return b;
+    }
+
+    /**
+     * Reads and copies the bytes.
+     *
+     * @param b The buffer
+     * @param off The offset
+     * @param len The maximum number of bytes
+     * @return The number of bytes, or -1 at the end of the stream
+     * @throws IOException When IO error occurred
+     */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+      int count = in.read(b, off, len);
+      if (count > 0 && copy != null)
+      {
+        copy.write(b, off, count);
+        checkLimit();
+      }
+
+      return count;
+    }
+
+    /**
+     * The skipped bytes cannot be copied, so the copy is dropped.
+     *
+     * @param n The number of bytes
+     * @return The number of the skipped bytes
+     * @throws IOException When IO error occurred
+     */
+    @Override
+    public long skip(final long n) throws IOException
+    {
+      copy = null;
+      return in.skip(n);
+    }
+
+    /**
+     * The mark is not supported.
+     *
+     * @return False
+     */
+    @Override
+    public boolean markSupported()
+    {
+      return false;
+    }
+
+    /**
+     * Drops the copy, if it is larger than the limit.
+     */
+    private void checkLimit()
+    {
+      if (copy.size() > limit)
+      {
+        copy = null;
+      }
+    }
+
+    /**
+     * Returns the copied bytes.
+     *
+     * @return The bytes, null if the response was larger than the limit
+     */
+    byte[] toByteArray()
+    {
+      return copy == null ? null : copy.toByteArray();
+    }
+  }
+
+  /**
+   * Drops the written bytes, only the digest of them is needed.
+   */
+  private static final class NullOutputStream extends OutputStream
+  {
+
+    /**
+     * Drops the byte.
+     *
+     * @param b The byte
+     */
+    @Override
+    public void write(final int b)
+    {
+    }
+
+    /**
+     * Drops the bytes.
+     *
+     * @param b The bytes
+     * @param off The offset
+     * @param len The number of bytes
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len)
+    {
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import hu.javaforum.android.soap.parser.ParserBackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpPost;
+
+/**
+ * Iterates over the items of a repeated element of the response. The parser
+ * is driven by the hasNext() method: it parses the response stream until the
+ * next item is finished, so only the current items are kept in the memory.
+ *
+ * The connection is released at the end of the response, or aborted, if the
+ * iterator is closed before the end.
+ *
+ * @param <T> The type of the items
+ * @author sabo
+ */
+final class ResponseIterator<T> implements CloseableIterator<T>, ItemConsumer<T>
+{
+
+  /**
+   * The request.
+   */
+  private final HttpPost post;
+  /**
+   * The entity of the response.
+   */
+  private final HttpEntity entity;
+  /**
+   * The decoded content of the entity.
+   */
+  private final InputStream content;
+  /**
+   * The class of the items.
+   */
+  private final Class<T> itemClass;
+  /**
+   * The parsed, but not yet returned items.
+   */
+  private final LinkedList<T> pendingItems = new LinkedList<T>();
+  /**
+   * The response handler.
+   */
+  private GenericHandler handler;
+  /**
+   * True, if the end of the response is reached.
+   */
+  private boolean finished;
+  /**
+   * True, if the iterator is closed.
+   */
+  private boolean closed;
+
+  /**
+   * The constructor.
+   *
+   * @param post The request
+   * @param entity The entity of the response
+   * @param content The decoded content of the entity
+   * @param itemClass The class of the items
+   */
+  ResponseIterator(final HttpPost post, final HttpEntity entity, final InputStream content,
+          final Class<T> itemClass)
+  {
+    this.post = post;
+    this.entity = entity;
+    this.content = content;
+    this.itemClass = itemClass;
+  }
+
+  /**
+   * Starts the parsing of the response; the handler should stream the items
+   * to this iterator.
+   *
+   * @param responseHandler The response handler
+   * @param is The stream of the response
+   * @param backend The parser backend
+   * @throws IOException If the parser can't be initialized
+   */
+  void start(final GenericHandler responseHandler, final InputStream is, final ParserBackend backend)
+          throws IOException
+  {
+    this.handler = responseHandler;
+    this.handler.startParsing(is, backend);
+  }
+
+  /**
+   * Receives an item from the handler.
+   *
+   * @param item The item
+   */
+  public void consume(final T item)
+  {
+    pendingItems.add(itemClass.cast(item));
+  }
+
+  /**
+   * Returns true, if the response has more items. It parses the response
+   * until the next item.
+   *
+   * @return True, if the response has more items
+   */
+  public boolean hasNext()
+  {
+    while (pendingItems.isEmpty() && !finished && !closed)
+    {
+      try
+      {
+        if (!handler.parseNext())
+        {
+          finished = true;
+          Transport.releaseConnection(post, entity, content, true);
+        }
+      } catch (IOException except)
+      {
+        close();
+        throw new IllegalStateException("Cannot parse the response", except);
+      } catch (RuntimeException except)
+      {
+        close();
+        throw except;
+      }
+    }
+
+    return !pendingItems.isEmpty();
+  }
+
+  /**
+   * Returns the next item.
+   *
+   * @return The item
+   */
+  public T next()
+  {
+    if (!hasNext())
+    {
+      throw new NoSuchElementException();
+    }
+
+    return pendingItems.removeFirst();
+  }
+
+  /**
+   * The items can't be removed.
+   */
+  public void remove()
+  {
+    throw new UnsupportedOperationException("The response is read only");
+  }
+
+  /**
+   * Aborts the connection, if the response is not read fully.
+   */
+  public void close()
+  {
+    if (closed)
+    {
+      return;
+    }
+
+    closed = true;
+    pendingItems.clear();
+    if (!finished)
+    {
+      if (handler != null)
+      {
+        handler.finishParsing();
+      }
+      Transport.releaseConnection(post, entity, content, false);
+    }
+  }
+}
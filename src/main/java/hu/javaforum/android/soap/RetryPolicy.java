@@ -0,0 +1,333 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import java.net.ConnectException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * The retry policy of the idempotent operations. The failed calls are
+ * retried with exponential backoff and jitter, if the failure is retryable:
+ * the HTTP status is 502, 503 or 504, or the exception is an instance of a
+ * retryable exception class (by default the connect timeouts, the refused
+ * connections and the missing responses). The SOAP faults are never retried.
+ *
+ * The operations are identified by the result class; only the idempotent
+ * operations are retried (and hedged). Hedging sends a second request, if the
+ * first one isn't answered within the 95th percentile of the latencies of the
+ * operation, and the first response wins.
+ *
+ * The calls with ItemConsumers (see ParseOptions) are never retried or
+ * hedged: the items of a failed or a losing attempt would be delivered to
+ * the consumers again, and the consumers would be fed by two threads.
+ *
+ * The policy can be shared between Transport instances, it is thread safe.
+ *
+ * @author sabo
+ */
+public final class RetryPolicy
+{
+
+  /**
+   * The default maximum number of attempts.
+   */
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  /**
+   * The default backoff before the first retry (in milliseconds).
+   */
+  private static final long DEFAULT_INITIAL_BACKOFF = 100;
+  /**
+   * The default maximum backoff (in milliseconds).
+   */
+  private static final long DEFAULT_MAX_BACKOFF = 5000;
+  /**
+   * The default multiplier of the backoff.
+   */
+  private static final double DEFAULT_MULTIPLIER = 2.0;
+  /**
+   * The default jitter.
+   */
+  private static final double DEFAULT_JITTER = 0.5;
+  /**
+   * The default minimum delay of the hedged requests (in milliseconds).
+   */
+  private static final long DEFAULT_MIN_HEDGE_DELAY = 50;
+  /**
+   * The Bad Gateway status code.
+   */
+  private static final int HTTP_STATUS_BAD_GATEWAY = 502;
+  /**
+   * The Service Unavailable status code.
+   */
+  private static final int HTTP_STATUS_SERVICE_UNAVAILABLE = 503;
+  /**
+   * The Gateway Timeout status code.
+   */
+  private static final int HTTP_STATUS_GATEWAY_TIMEOUT = 504;
+  /**
+   * The random generator of the jitter.
+   */
+  private static final Random RANDOM = new Random();
+  /**
+   * The result classes of the idempotent operations.
+   */
+  private final Set<Class> idempotentOperations = new CopyOnWriteArraySet<Class>();
+  /**
+   * The retryable HTTP status codes.
+   */
+  private final Set<Integer> retryableStatusCodes = new CopyOnWriteArraySet<Integer>();
+  /**
+   * The retryable exception classes.
+   */
+  private final Set<Class> retryableExceptions = new CopyOnWriteArraySet<Class>();
+  /**
+   * True, if every operation is idempotent.
+   */
+  private volatile boolean allOperationsIdempotent;
+  /**
+   * The maximum number of attempts.
+   */
+  private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  /**
+   * The backoff before the first retry (in milliseconds).
+   */
+  private volatile long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+  /**
+   * The maximum backoff (in milliseconds).
+   */
+  private volatile long maxBackoff = DEFAULT_MAX_BACKOFF;
+  /**
+   * The multiplier of the backoff.
+   */
+  private volatile double multiplier = DEFAULT_MULTIPLIER;
+  /**
+   * The jitter, the random part of the backoff (0-1).
+   */
+  private volatile double jitter = DEFAULT_JITTER;
+  /**
+   * True, if the slow requests are hedged.
+   */
+  private volatile boolean hedging;
+  /**
+   * The minimum delay of the hedged requests (in milliseconds).
+   */
+  private volatile long minHedgeDelay = DEFAULT_MIN_HEDGE_DELAY;
+
+  /**
+   * Creates a new instance with the default settings.
+   */
+  public RetryPolicy()
+  {
+    retryableStatusCodes.add(HTTP_STATUS_BAD_GATEWAY);
+    retryableStatusCodes.add(HTTP_STATUS_SERVICE_UNAVAILABLE);
+    retryableStatusCodes.add(HTTP_STATUS_GATEWAY_TIMEOUT);
+    retryableExceptions.add(ConnectTimeoutException.class);
+    retryableExceptions.add(ConnectException.class);
+    retryableExceptions.add(NoHttpResponseException.class);
+  }
+
+  /**
+   * Marks the operation as idempotent, so its calls are retried.
+   *
+   * @param resultClass The result class of the operation
+   */
+  public void addIdempotentOperation(final Class resultClass)
+  {
+    idempotentOperations.add(resultClass);
+  }
+
+  /**
+   * Marks every operation as idempotent.
+   *
+   * @param idempotent True, if every operation is idempotent
+   */
+  public void setAllOperationsIdempotent(final boolean idempotent)
+  {
+    this.allOperationsIdempotent = idempotent;
+  }
+
+  /**
+   * Returns true, if the operation is idempotent.
+   *
+   * @param resultClass The result class of the operation
+   * @return True, if the operation is idempotent
+   */
+  public boolean isIdempotent(final Class resultClass)
+  {
+    return allOperationsIdempotent || idempotentOperations.contains(resultClass);
+  }
+
+  /**
+   * Adds a retryable HTTP status code.
+   *
+   * @param statusCode The status code
+   */
+  public void addRetryableStatusCode(final int statusCode)
+  {
+    retryableStatusCodes.add(statusCode);
+  }
+
+  /**
+   * Adds a retryable exception class, its subclasses are retryable too.
+   *
+   * @param exceptionClass The exception class
+   */
+  public void addRetryableException(final Class<? extends Exception> exceptionClass)
+  {
+    retryableExceptions.add(exceptionClass);
+  }
+
+  /**
+   * Returns true, if the failure is retryable: the exception or one of its
+   * causes is an HttpStatusException with a retryable status code or an
+   * instance of a retryable exception class.
+   *
+   * @param except The failure
+   * @return True, if the failure is retryable
+   */
+  public boolean isRetryable(final Throwable except)
+  {
+    for (Throwable cause = except; cause != null; cause = cause.getCause())
+    {
+      if (cause instanceof HttpStatusException
+              && retryableStatusCodes.contains(((HttpStatusException) cause).getStatusCode()))
+      {
+        return true;
+      }
+      for (Class exceptionClass : retryableExceptions)
+      {
+        if (exceptionClass.isInstance(cause))
+        {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Sets the maximum number of attempts, including the first one.
+   *
+   * @param attempts The number of attempts
+   */
+  public void setMaxAttempts(final int attempts)
+  {
+    if (attempts < 1)
+    {
+      throw new IllegalArgumentException("The number of attempts must be positive");
+    }
+    this.maxAttempts = attempts;
+  }
+
+  /**
+   * Returns the maximum number of attempts.
+   *
+   * @return The number of attempts
+   */
+  public int getMaxAttempts()
+  {
+    return maxAttempts;
+  }
+
+  /**
+   * Sets the backoff: the delay before the first retry, the maximum delay and
+   * the multiplier of the delay between the retries.
+   *
+   * @param initial The delay before the first retry in milliseconds
+   * @param maximum The maximum delay in milliseconds
+   * @param factor The multiplier of the delay
+   */
+  public void setBackoff(final long initial, final long maximum, final double factor)
+  {
+    if (initial < 0 || maximum < initial || factor < 1.0)
+    {
+      throw new IllegalArgumentException("Invalid backoff: " + initial + "/" + maximum + "/" + factor);
+    }
+    this.initialBackoff = initial;
+    this.maxBackoff = maximum;
+    this.multiplier = factor;
+  }
+
+  /**
+   * Sets the jitter: the random part of the backoff, 0 means a fixed delay,
+   * 1 means a random delay between 0 and the backoff.
+   *
+   * @param jitter The jitter (0-1)
+   */
+  public void setJitter(final double jitter)
+  {
+    if (jitter < 0.0 || jitter > 1.0)
+    {
+      throw new IllegalArgumentException("Invalid jitter: " + jitter);
+    }
+    this.jitter = jitter;
+  }
+
+  /**
+   * Returns the delay before the retry.
+   *
+   * @param attempt The number of the failed attempts (1 before the first
+   * retry)
+   * @return The delay in milliseconds
+   */
+  public long getBackoff(final int attempt)
+  {
+    double backoff = initialBackoff;
+    for (int count = 1; count < attempt && backoff < maxBackoff; count++)
+    {
+      backoff *= multiplier;
+    }
+    backoff = Math.min(backoff, maxBackoff);
+
+    return (long) (backoff * (1.0 - jitter * RANDOM.nextDouble()));
+  }
+
+  /**
+   * Turns on or off the hedging of the idempotent operations.
+   *
+   * @param hedging True, if the slow requests are hedged
+   */
+  public void setHedging(final boolean hedging)
+  {
+    this.hedging = hedging;
+  }
+
+  /**
+   * Returns true, if the slow requests are hedged.
+   *
+   * @return True, if the slow requests are hedged
+   */
+  public boolean isHedging()
+  {
+    return hedging;
+  }
+
+  /**
+   * Sets the minimum delay of the hedged requests, the hedged request is sent
+   * after the 95th percentile of the latencies, but not before this delay.
+   *
+   * @param delay The delay in milliseconds
+   */
+  public void setMinHedgeDelay(final long delay)
+  {
+    this.minHedgeDelay = delay;
+  }
+
+  /**
+   * Returns the minimum delay of the hedged requests.
+   *
+   * @return The delay in milliseconds
+   */
+  public long getMinHedgeDelay()
+  {
+    return minHedgeDelay;
+  }
+}
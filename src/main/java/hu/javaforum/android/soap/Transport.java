@@ -4,29 +4,70 @@
  */
 package hu.javaforum.android.soap;
 
+import hu.javaforum.android.soap.parser.ParserBackend;
+import hu.javaforum.android.soap.parser.XmlPullParserBackend;
+
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.InterruptedIOException;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xmlpull.v1.XmlPullParserException;
 
 /**
  * This class provides a generic transport interface.
  *
+ * Every instance owns a long-lived HttpClient backed by a pooling connection
+ * manager, so the connections are reused between the calls. The instance
+ * should be closed with the close() method, when it is no longer used.
+ *
+ * The callAsync methods run the calls on a bounded thread pool and return
+ * with a Future instance, so one thread can issue many calls at once.
+ *
+ * The responses are requested with gzip or deflate compression, and they are
+ * decompressed while they are parsed. The requests can be compressed too,
+ * above a size threshold (see setRequestCompressionThreshold()).
+ *
+ * The responses of the idempotent operations can be cached by a
+ * ResponseCache (see setResponseCache()). The identical concurrent calls can
+ * be coalesced into one HTTP exchange (see setRequestCoalescing()). The
+ * idempotent operations can be retried and hedged (see setRetryPolicy()). A
+ * circuit breaker can reject the calls of a failing endpoint without waiting
+ * for the timeouts (see setCircuitBreaker()).
+ *
  * Changelog:
  * ANDROIDSOAP-14 - 2012-09-08
  * ANDROIDSOAP-6 - 2011-01-08
@@ -37,7 +78,7 @@ import org.xmlpull.v1.XmlPullParserException;
  * @author Chris Wolf
  * @author Kamil Bartoszek
  */
-public abstract class Transport
+public abstract class Transport implements Closeable
 {
 
   /**
@@ -68,6 +109,120 @@ public abstract class Transport
    * The custom socket timeout.
    */
   private int socketTimeout = DEFAULT_TIMEOUT;
+  /**
+   * Default maximum number of pooled connections per route.
+   */
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 4;
+  /**
+   * The custom maximum number of pooled connections per route.
+   */
+  private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+  /**
+   * Default maximum number of pooled connections.
+   */
+  private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 20;
+  /**
+   * The custom maximum number of pooled connections.
+   */
+  private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+  /**
+   * Default idle time (in milliseconds) of the pooled connections.
+   */
+  private static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30000;
+  /**
+   * The custom idle time of the pooled connections.
+   */
+  private volatile long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+  /**
+   * The minimum period (in milliseconds) of the eviction of the idle
+   * connections.
+   */
+  private static final long MIN_EVICTION_PERIOD = 1000;
+  /**
+   * Default number of the threads of the asynchronous calls.
+   */
+  private static final int DEFAULT_ASYNC_POOL_SIZE = 4;
+  /**
+   * The custom number of the threads of the asynchronous calls.
+   */
+  private int asyncPoolSize = DEFAULT_ASYNC_POOL_SIZE;
+  /**
+   * Default maximum number of the waiting asynchronous calls.
+   */
+  private static final int DEFAULT_ASYNC_QUEUE_SIZE = 64;
+  /**
+   * The custom maximum number of the waiting asynchronous calls.
+   */
+  private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+  /**
+   * The policy of the rejected asynchronous calls, the default policy throws
+   * RejectedExecutionException.
+   */
+  private RejectedExecutionHandler asyncRejectionPolicy = new ThreadPoolExecutor.AbortPolicy();
+  /**
+   * The XML parser backend of the responses.
+   */
+  private ParserBackend parserBackend = XmlPullParserBackend.INSTANCE;
+  /**
+   * True, if the compressed responses are accepted.
+   */
+  private boolean responseCompression = true;
+  /**
+   * The size (in bytes) above the requests are compressed, negative if the
+   * requests are never compressed.
+   */
+  private int requestCompressionThreshold = -1;
+  /**
+   * The cache of the responses, null if the responses are not cached.
+   */
+  private ResponseCache responseCache;
+  /**
+   * True, if the identical concurrent calls are coalesced.
+   */
+  private boolean requestCoalescing;
+  /**
+   * Default maximum size (in bytes) of the shared responses of the coalesced
+   * calls.
+   */
+  private static final long DEFAULT_REQUEST_COALESCING_LIMIT = 1024 * 1024;
+  /**
+   * The maximum size of the shared responses of the coalesced calls.
+   */
+  private long requestCoalescingLimit = DEFAULT_REQUEST_COALESCING_LIMIT;
+  /**
+   * The running coalesced calls by key.
+   */
+  private final ConcurrentMap<String, InFlightCall> inFlightCalls = new ConcurrentHashMap<String, InFlightCall>();
+  /**
+   * The retry policy of the idempotent operations, null if the calls are not
+   * retried.
+   */
+  private RetryPolicy retryPolicy;
+  /**
+   * The percentile of the latencies, after the requests are hedged.
+   */
+  private static final int HEDGE_PERCENTILE = 95;
+  /**
+   * The nanoseconds of a millisecond.
+   */
+  private static final long NANOS_PER_MILLI = 1000000L;
+  /**
+   * The latencies of the hedged operations by result class.
+   */
+  private final ConcurrentMap<Class, LatencyTracker> latencyTrackers = new ConcurrentHashMap<Class, LatencyTracker>();
+  /**
+   * The idle time (in milliseconds) of the threads of the hedged requests.
+   */
+  private static final long HEDGE_THREAD_KEEP_ALIVE = 60000;
+  /**
+   * The executor of the hedged requests, it is created on the first hedged
+   * call.
+   */
+  private ExecutorService hedgeExecutor;
+  /**
+   * The circuit breaker of the endpoint, null if it isn't used.
+   */
+  private CircuitBreaker circuitBreaker;
   /**
    * The default encoding.
    */
@@ -84,6 +239,23 @@ public abstract class Transport
    * The username, it can be null.
    */
   private final String username;
+  /**
+   * The shared HttpClient instance, it is created on the first call.
+   */
+  private HttpClient httpClient;
+  /**
+   * The evictor of the idle and the expired pooled connections, it is
+   * started with the HttpClient instance.
+   */
+  private ScheduledExecutorService connectionEvictor;
+  /**
+   * The executor of the asynchronous calls, it is created on the first call.
+   */
+  private ExecutorService asyncExecutor;
+  /**
+   * True, if the executor is created by the transport (and closed by it).
+   */
+  private boolean asyncExecutorOwned;
 
   /**
    * Creates a new instance.
@@ -135,173 +307,982 @@ public abstract class Transport
    */
   public final <T, E> T call(final Envelope envelope, final Class<T> resultClass, final Class<E> exceptionClass,
           final Map<String, String> httpHeaders) throws IOException
+  {
+    return call(envelope, resultClass, exceptionClass, httpHeaders, null);
+  }
+
+  /**
+   * Call the service with parse options, e.g. the items of the large
+   * collections can be streamed to ItemConsumer instances instead of
+   * collecting them into the result.
+   *
+   * @param <T> The return type
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param httpHeaders The custom Http headers
+   * @param parseOptions The parse options, it can be null
+   * @return The response
+   * @throws IOException An exception from SOAP message
+   */
+  public final <T, E> T call(final Envelope envelope, final Class<T> resultClass, final Class<E> exceptionClass,
+          final Map<String, String> httpHeaders, final ParseOptions parseOptions) throws IOException
   {
     try
     {
-      HttpPost post = createHttpPost(envelope, httpHeaders);
-      HttpParams httpParameters = createHttpParams();
-      HttpClient client = createHttpClient(httpParameters);
-
-      HttpResponse response = client.execute(post);
-      int statusCode = response.getStatusLine().getStatusCode();
-      LOGGER.info("Status code is: {}", statusCode);
-      InputStream is = debugResponseStream(response.getEntity().getContent());
+      ResponseCache cache = responseCache;
+      boolean cacheable = cache != null && cache.isCached(resultClass);
+      /**
+       * The items of the ItemConsumers cannot be delivered from a shared
+       * response, and the streamed responses must not be buffered
+       */
+      boolean coalesced = requestCoalescing && (parseOptions == null || !parseOptions.hasItemConsumers());
+      String key = null;
+      if (cacheable || coalesced)
+      {
+        key = ResponseCache.createKey(url, username, envelope, httpHeaders, resultClass);
+      }
 
-      if (statusCode == HTTP_STATUS_OK)
+      if (cacheable)
       {
-        GenericHandler responseHandler = new GenericHandler(resultClass);
-        responseHandler.parseWithPullParser(is);
-        LOGGER.info("The reply has been parsed");
-        return (T) responseHandler.getObject();
-      } else if (statusCode == HTTP_STATUS_ERROR)
+        ResponseCache.Entry cached = cache.get(key);
+        if (cached != null)
+        {
+          LOGGER.info("The reply has been found in the cache");
+          if (cached.getResult() != null && parseOptions == null)
+          {
+            return (T) cached.getResult();
+          }
+          return (T) parseResult(resultClass, parseOptions, new ByteArrayInputStream(cached.getContent()));
+        }
+      }
+
+      long captureLimit = cacheable ? cache.getMaxBytes() : -1;
+      if (coalesced)
       {
-        /**
-         * TODO: http://traq.javaforum.hu/browse/ANDROIDSOAP-8
-         * Assumed that status code 500 is returned in case of SOAP exception,
-         * this has to change in the future
-         */
-        GenericHandler exceptionHandler = new GenericHandler(resultClass, Boolean.TRUE);
-        exceptionHandler.parseWithPullParser(is);
-        LOGGER.info("The reply has been parsed");
-        throw encapsulateIOException((Exception) exceptionHandler.getObject());
-      } else
+        InFlightCall call = new InFlightCall();
+        InFlightCall running = inFlightCalls.putIfAbsent(key, call);
+        if (running == null)
+        {
+          return (T) executeCoalesced(call, key, cacheable ? cache : null, envelope, resultClass, httpHeaders,
+                  parseOptions, Math.max(captureLimit, requestCoalescingLimit));
+        }
+
+        LOGGER.info("The call is coalesced with a running call");
+        byte[] content = running.await();
+        if (content != null)
+        {
+          return (T) parseResult(resultClass, parseOptions, new ByteArrayInputStream(content));
+        }
+        LOGGER.info("The response of the running call isn't shared, the request is sent");
+      }
+
+      Exchange exchange = executeWithRetry(envelope, resultClass, httpHeaders, parseOptions, captureLimit);
+      if (exchange.content != null)
       {
-        throw new IOException("Can't parse the response, status: " + statusCode);
+        cacheResponse(cache, key, resultClass, exchange.content);
       }
-    } catch (XmlPullParserException ex)
-    {
-      throw encapsulateIOException(ex);
-    } catch (NoSuchFieldException ex)
-    {
-      throw encapsulateIOException(ex);
+      return (T) exchange.result;
     } catch (InstantiationException ex)
     {
       throw encapsulateIOException(ex);
     } catch (IllegalAccessException ex)
     {
       throw encapsulateIOException(ex);
-    } finally
-    {
     }
   }
 
   /**
-   * Creates a HttpPost instance.
+   * Sends the request of the first (leading) coalesced call, and shares its
+   * raw response with the waiting calls. If the response is larger than the
+   * limit, it isn't shared, and the waiting calls send their own requests.
    *
-   * @param envelope The envelope
-   * @param httpHeaders The Http headers
-   * @return The instance
-   * @throws UnsupportedEncodingException UnsupportedEncodingException
+   * @param call The running call
+   * @param key The key of the call
+   * @param cache The cache of the response, null if it isn't cached
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param httpHeaders The custom Http headers
+   * @param parseOptions The parse options, it can be null
+   * @param captureLimit The maximum size of the shared response
+   * @return The result
+   * @throws IOException An exception from SOAP message
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
    */
-  protected final HttpPost createHttpPost(final Envelope envelope,
-          final Map<String, String> httpHeaders) throws UnsupportedEncodingException
+  private Object executeCoalesced(final InFlightCall call, final String key, final ResponseCache cache,
+          final Envelope envelope, final Class resultClass, final Map<String, String> httpHeaders,
+          final ParseOptions parseOptions, final long captureLimit)
+          throws IOException, InstantiationException, IllegalAccessException
   {
     try
     {
-      final String envelopeXml = envelope.toString();
-      LOGGER.debug("Request is:\n{}", envelopeXml);
-
-      HttpPost post = new HttpPost(this.getUrl());
-      post.setEntity(new StringEntity(envelopeXml));
-      post.setHeader("Content-type", "text/xml; charset=" + DEFAULT_ENCODING);
-      if (httpHeaders != null)
-      {
-        for (Map.Entry<String, String> entry : httpHeaders.entrySet())
-        {
-          post.setHeader(entry.getKey(), entry.getValue());
-          LOGGER.debug("setHeader('{}', '{}')", entry.getKey(), entry.getValue());
-        }
-      }
-      if (this.getUsername() != null && this.getPassword() != null)
+      Exchange exchange = executeWithRetry(envelope, resultClass, httpHeaders, parseOptions, captureLimit);
+      call.complete(exchange.content);
+      if (exchange.content != null && cache != null)
       {
-        String basic = this.getUsername() + ":" + this.getPassword();
-        String authorizationHeader = "Basic "
-                + new String(Base64.encodeBase64(basic.getBytes(DEFAULT_ENCODING)), DEFAULT_ENCODING);
-        post.addHeader("Authorization", authorizationHeader);
-        LOGGER.debug("addHeader('Authorization', '%1$s')", authorizationHeader);
+        cacheResponse(cache, key, resultClass, exchange.content);
       }
-
-      return post;
+      return exchange.result;
+    } catch (IOException except)
+    {
+      call.fail(except);
+      throw except;
     } finally
     {
+      call.fail(null);
+      inFlightCalls.remove(key, call);
     }
   }
 
   /**
-   * Creates a HttpParams instance.
+   * Stores the response in the cache, if it isn't larger than the cache. If
+   * the operation shares its results, the shared result is parsed from the
+   * response, so the result of the miss, which is returned to the caller, is
+   * never shared.
    *
-   * @return The instance
+   * @param cache The cache
+   * @param key The key of the call
+   * @param resultClass The class of the result in the response
+   * @param content The raw response
+   * @throws IOException IOException
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
    */
-  protected final HttpParams createHttpParams()
+  private void cacheResponse(final ResponseCache cache, final String key, final Class resultClass,
+          final byte[] content) throws IOException, InstantiationException, IllegalAccessException
   {
-    try
+    if (content.length > cache.getMaxBytes())
     {
-      HttpParams httpParameters = new BasicHttpParams();
-      HttpConnectionParams.setConnectionTimeout(httpParameters, connectionTimeout);
-      LOGGER.debug("Connection timeout: {}", connectionTimeout);
-      HttpConnectionParams.setSoTimeout(httpParameters, socketTimeout);
-      LOGGER.debug("Socket timeout: {}", socketTimeout);
+      return;
+    }
 
-      return httpParameters;
-    } finally
+    Object sharedResult = null;
+    if (cache.isResultShared(resultClass))
     {
+      sharedResult = parseResult(resultClass, null, new ByteArrayInputStream(content));
     }
+    cache.put(key, resultClass, content, sharedResult);
   }
 
   /**
-   * Creates a HttpClient implementation instance.
+   * Sends the request, and parses the response. The idempotent operations
+   * are retried and hedged by the retry policy, except the calls with
+   * ItemConsumers.
    *
-   * @param params The HttpParams
-   * @return The instance
-   * @throws IOException IOException
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param httpHeaders The custom Http headers
+   * @param parseOptions The parse options, it can be null
+   * @param captureLimit The maximum size of the copy of the raw response,
+   * negative if the response isn't copied
+   * @return The result and the copy of the raw response
+   * @throws IOException An exception from SOAP message
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
    */
-  protected abstract HttpClient createHttpClient(HttpParams params)
-          throws IOException;
+  private Exchange executeWithRetry(final Envelope envelope, final Class resultClass,
+          final Map<String, String> httpHeaders, final ParseOptions parseOptions, final long captureLimit)
+          throws IOException, InstantiationException, IllegalAccessException
+  {
+    RetryPolicy policy = retryPolicy;
+    /**
+     * The items, which are delivered to the ItemConsumers by a failed or a
+     * losing attempt, cannot be taken back, so these calls are sent once
+     */
+    if (policy == null || !policy.isIdempotent(resultClass)
+            || parseOptions != null && parseOptions.hasItemConsumers())
+    {
+      return execute(envelope, resultClass, httpHeaders, parseOptions, captureLimit, null);
+    }
+
+    for (int attempt = 1;; attempt++)
+    {
+      try
+      {
+        if (policy.isHedging() && !isCircuitBreakerHalfOpen())
+        {
+          return executeHedged(policy, envelope, resultClass, httpHeaders, parseOptions, captureLimit);
+        }
+        return execute(envelope, resultClass, httpHeaders, parseOptions, captureLimit, null);
+      } catch (IOException except)
+      {
+        if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(except))
+        {
+          throw except;
+        }
+
+        long backoff = policy.getBackoff(attempt);
+        LOGGER.info("The attempt {} has failed ({}), retrying after {} ms", new Object[]
+                {
+                  attempt, except.toString(), backoff
+                });
+        try
+        {
+          Thread.sleep(backoff);
+        } catch (InterruptedException interrupted)
+        {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for the retry");
+        }
+      }
+    }
+  }
 
   /**
-   * Prints out the reply of the server when the loglevel is DEBUG.
+   * Sends the request, and a second (hedged) request, if the first one isn't
+   * answered within the 95th percentile of the latencies of the operation;
+   * the first successful response wins, the other request is aborted. The
+   * requests run on the hedging executor of the transport.
    *
-   * @param stream The stream
-   * @return The reply stream
-   * @throws IOException When IO error occurred
+   * @param policy The retry policy
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param httpHeaders The custom Http headers
+   * @param parseOptions The parse options, it can be null
+   * @param captureLimit The maximum size of the copy of the raw response,
+   * negative if the response isn't copied
+   * @return The result and the copy of the raw response
+   * @throws IOException An exception from SOAP message
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
    */
-  protected final InputStream debugResponseStream(final InputStream stream) throws IOException
+  private Exchange executeHedged(final RetryPolicy policy, final Envelope envelope, final Class resultClass,
+          final Map<String, String> httpHeaders, final ParseOptions parseOptions, final long captureLimit)
+          throws IOException, InstantiationException, IllegalAccessException
   {
-    InputStream replyStream = stream;
+    LatencyTracker tracker = latencyTrackers.get(resultClass);
+    if (tracker == null)
+    {
+      tracker = new LatencyTracker();
+      LatencyTracker registered = latencyTrackers.putIfAbsent(resultClass, tracker);
+      if (registered != null)
+      {
+        tracker = registered;
+      }
+    }
+
+    long percentile = tracker.getPercentile(HEDGE_PERCENTILE);
+    CompletionService<Exchange> completion = new ExecutorCompletionService<Exchange>(getHedgeExecutor());
+    Attempt primary = new Attempt(envelope, resultClass, httpHeaders, parseOptions, captureLimit, tracker);
+    Attempt hedge = null;
     try
     {
-      if (LOGGER.isDebugEnabled())
+      Future<Exchange> done;
+      int pending = 1;
+      try
       {
-        InputStreamReader isr = new InputStreamReader(stream, DEFAULT_ENCODING);
-        BufferedReader br = new BufferedReader(isr);
-        StringBuilder sb = new StringBuilder();
-        for (String line = br.readLine(); line != null; line = br.readLine())
+        completion.submit(primary);
+        if (percentile < 0)
         {
-          sb.append(line);
-          sb.append("\n");
+          done = completion.take();
+        } else
+        {
+          long delay = Math.max(percentile, policy.getMinHedgeDelay());
+          done = completion.poll(delay, TimeUnit.MILLISECONDS);
+          if (done == null && !isCircuitBreakerHalfOpen())
+          {
+            hedge = new Attempt(envelope, resultClass, httpHeaders, parseOptions, captureLimit, tracker);
+            completion.submit(hedge);
+            pending++;
+            LOGGER.info("The request is hedged after {} ms", delay);
+          }
         }
-        br.close();
-        isr.close();
-        stream.close();
+      } catch (RejectedExecutionException except)
+      {
+        if (hedge == null)
+        {
+          LOGGER.debug("The hedging executor is full, the request isn't hedged");
+          return execute(envelope, resultClass, httpHeaders, parseOptions, captureLimit, null);
+        }
+        hedge = null;
+        done = null;
+      }
 
-        replyStream = new ByteArrayInputStream(sb.toString().getBytes(DEFAULT_ENCODING));
-        LOGGER.debug("Response:\n{}", sb.toString());
+      Throwable failure = null;
+      for (; pending > 0; pending--)
+      {
+        if (done == null)
+        {
+          done = completion.take();
+        }
+        try
+        {
+          return done.get();
+        } catch (ExecutionException except)
+        {
+          failure = except.getCause();
+        }
+        done = null;
+      }
+
+      if (failure instanceof IOException)
+      {
+        throw (IOException) failure;
+      } else if (failure instanceof InstantiationException)
+      {
+        throw (InstantiationException) failure;
+      } else if (failure instanceof IllegalAccessException)
+      {
+        throw (IllegalAccessException) failure;
+      } else if (failure instanceof RuntimeException)
+      {
+        throw (RuntimeException) failure;
       }
+      throw (Error) failure;
+    } catch (InterruptedException except)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the response");
     } finally
     {
+      primary.cancel();
+      if (hedge != null)
+      {
+        hedge.cancel();
+      }
     }
-
-    return replyStream;
   }
 
   /**
-   * Gets the password.
+   * Sends the request, and parses the response.
    *
-   * @return The password
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param httpHeaders The custom Http headers
+   * @param parseOptions The parse options, it can be null
+   * @param captureLimit The maximum size of the copy of the raw response,
+   * negative if the response isn't copied
+   * @param attempt The hedged attempt, it can be null
+   * @return The result and the copy of the raw response
+   * @throws IOException An exception from SOAP message
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
    */
-  public final String getPassword()
+  private Exchange execute(final Envelope envelope, final Class resultClass,
+          final Map<String, String> httpHeaders, final ParseOptions parseOptions, final long captureLimit,
+          final Attempt attempt) throws IOException, InstantiationException, IllegalAccessException
   {
-    return password;
+    CircuitBreaker breaker = circuitBreaker;
+    long permission = acquirePermission(breaker);
+    long start = System.nanoTime();
+    HttpPost post = null;
+    HttpEntity entity = null;
+    InputStream content = null;
+    boolean completed = false;
+    Boolean healthy = null;
+    try
+    {
+      post = createHttpPost(envelope, httpHeaders);
+      if (attempt != null && !attempt.start(post))
+      {
+        throw new InterruptedIOException("The request has been cancelled");
+      }
+      HttpClient client = getHttpClient();
+
+      HttpResponse response = client.execute(post);
+      int statusCode = response.getStatusLine().getStatusCode();
+      LOGGER.info("Status code is: {}", statusCode);
+      entity = response.getEntity();
+      content = ContentEncoding.decode(entity);
+      InputStream is = debugResponseStream(content);
+
+      if (statusCode == HTTP_STATUS_OK)
+      {
+        ResponseCache.CapturingInputStream capture = captureLimit < 0
+                ? null : new ResponseCache.CapturingInputStream(is, captureLimit);
+        Exchange exchange = new Exchange();
+        exchange.result = parseResult(resultClass, parseOptions, capture == null ? is : capture);
+        completed = true;
+        healthy = Boolean.TRUE;
+        exchange.content = capture == null ? null : capture.toByteArray();
+        return exchange;
+      } else if (statusCode == HTTP_STATUS_ERROR)
+      {
+        IOException fault = parseFault(resultClass, is);
+        completed = true;
+        healthy = Boolean.TRUE;
+        throw fault;
+      } else
+      {
+        throw new HttpStatusException(statusCode);
+      }
+    } catch (IOException except)
+    {
+      if (healthy == null)
+      {
+        healthy = Boolean.FALSE;
+      }
+      throw except;
+    } finally
+    {
+      releaseConnection(post, entity, content, completed);
+      recordOutcome(breaker, permission, attempt != null && attempt.isCancelled() ? null : healthy, start);
+    }
+  }
+
+  /**
+   * Records the outcome of the call in the circuit breaker. The failed calls
+   * are the transport level failures (IOException, e.g. HttpStatusException
+   * or a broken response); the client side errors (e.g. a RuntimeException
+   * of an ItemConsumer, or a result class which cannot be instantiated) and
+   * the cancelled hedged requests are not recorded.
+   *
+   * @param breaker The circuit breaker, it can be null
+   * @param permission The permission of the call
+   * @param healthy True, if the endpoint answered; false, if the call failed
+   * on the transport level; null, if the outcome is not recorded
+   * @param start The start of the call (System.nanoTime())
+   */
+  private static void recordOutcome(final CircuitBreaker breaker, final long permission, final Boolean healthy,
+          final long start)
+  {
+    if (breaker == null)
+    {
+      return;
+    }
+
+    if (healthy == null)
+    {
+      breaker.onIgnored(permission);
+    } else
+    {
+      breaker.onResult(permission, healthy.booleanValue(), (System.nanoTime() - start) / NANOS_PER_MILLI);
+    }
+  }
+
+  /**
+   * Returns true, if the circuit breaker is half open; the hedged requests
+   * would take the permits of the probe calls.
+   *
+   * @return True, if the circuit breaker is half open
+   */
+  private boolean isCircuitBreakerHalfOpen()
+  {
+    CircuitBreaker breaker = circuitBreaker;
+    return breaker != null && breaker.getState() == CircuitBreaker.State.HALF_OPEN;
+  }
+
+  /**
+   * Acquires the permission of a call from the circuit breaker.
+   *
+   * @param breaker The circuit breaker, it can be null
+   * @return The permission, it is passed back with the outcome of the call;
+   * NOT_PERMITTED, if the circuit breaker isn't used
+   * @throws CircuitBreakerOpenException If the call isn't permitted
+   */
+  private long acquirePermission(final CircuitBreaker breaker) throws CircuitBreakerOpenException
+  {
+    if (breaker == null)
+    {
+      return CircuitBreaker.NOT_PERMITTED;
+    }
+
+    long permission = breaker.tryAcquirePermission();
+    if (permission == CircuitBreaker.NOT_PERMITTED)
+    {
+      throw new CircuitBreakerOpenException(url);
+    }
+
+    return permission;
+  }
+
+  /**
+   * Parses the result of the response.
+   *
+   * @param resultClass The class of the result in the response
+   * @param parseOptions The parse options, it can be null
+   * @param is The stream of the response
+   * @return The result
+   * @throws IOException IOException
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
+   */
+  private Object parseResult(final Class resultClass, final ParseOptions parseOptions, final InputStream is)
+          throws IOException, InstantiationException, IllegalAccessException
+  {
+    GenericHandler responseHandler = new GenericHandler(resultClass, parseOptions);
+    responseHandler.parse(is, parserBackend);
+    LOGGER.info("The reply has been parsed");
+    return responseHandler.getObject();
+  }
+
+  /**
+   * Call the service, and iterate over the items of a repeated element of
+   * the response. The response is parsed lazily, when the iterator is
+   * advanced, so the memory usage doesn't depend on the number of items.
+   *
+   * The iterator should be closed, if it is not iterated to the end: it
+   * aborts the connection and stops the reading of the response.
+   *
+   * @param <T> The type of the items
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param collectionPath The path of the repeated element, see ParseOptions
+   * @param itemClass The class of the items
+   * @return The iterator
+   * @throws IOException An exception from SOAP message
+   */
+  public final <T, E> CloseableIterator<T> callIterator(final Envelope envelope, final Class<?> resultClass,
+          final Class<E> exceptionClass, final String collectionPath, final Class<T> itemClass) throws IOException
+  {
+    return callIterator(envelope, resultClass, exceptionClass, collectionPath, itemClass, null);
+  }
+
+  /**
+   * Call the service, and iterate over the items of a repeated element of
+   * the response.
+   *
+   * @param <T> The type of the items
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param collectionPath The path of the repeated element, see ParseOptions
+   * @param itemClass The class of the items
+   * @param httpHeaders The custom Http headers
+   * @return The iterator
+   * @throws IOException An exception from SOAP message
+   */
+  public final <T, E> CloseableIterator<T> callIterator(final Envelope envelope, final Class<?> resultClass,
+          final Class<E> exceptionClass, final String collectionPath, final Class<T> itemClass,
+          final Map<String, String> httpHeaders) throws IOException
+  {
+    CircuitBreaker breaker = circuitBreaker;
+    long permission = acquirePermission(breaker);
+    long start = System.nanoTime();
+    HttpPost post = null;
+    HttpEntity entity = null;
+    InputStream content = null;
+    boolean completed = false;
+    Boolean healthy = null;
+    ResponseIterator<T> iterator = null;
+    try
+    {
+      post = createHttpPost(envelope, httpHeaders);
+      HttpClient client = getHttpClient();
+
+      HttpResponse response = client.execute(post);
+      int statusCode = response.getStatusLine().getStatusCode();
+      LOGGER.info("Status code is: {}", statusCode);
+      entity = response.getEntity();
+      content = ContentEncoding.decode(entity);
+      InputStream is = debugResponseStream(content);
+
+      if (statusCode == HTTP_STATUS_OK)
+      {
+        ResponseIterator<T> responseIterator = new ResponseIterator<T>(post, entity, content, itemClass);
+        ParseOptions parseOptions = new ParseOptions();
+        parseOptions.addItemConsumer(collectionPath, responseIterator);
+        responseIterator.start(new GenericHandler(resultClass, parseOptions), is, parserBackend);
+        healthy = Boolean.TRUE;
+        /**
+         * The iterator releases the connection from now on
+         */
+        iterator = responseIterator;
+        return iterator;
+      } else if (statusCode == HTTP_STATUS_ERROR)
+      {
+        IOException fault = parseFault(resultClass, is);
+        completed = true;
+        healthy = Boolean.TRUE;
+        throw fault;
+      } else
+      {
+        throw new HttpStatusException(statusCode);
+      }
+    } catch (IOException except)
+    {
+      if (healthy == null)
+      {
+        healthy = Boolean.FALSE;
+      }
+      throw except;
+    } catch (InstantiationException ex)
+    {
+      throw encapsulateIOException(ex);
+    } catch (IllegalAccessException ex)
+    {
+      throw encapsulateIOException(ex);
+    } finally
+    {
+      if (iterator == null)
+      {
+        releaseConnection(post, entity, content, completed);
+      }
+      recordOutcome(breaker, permission, healthy, start);
+    }
+  }
+
+  /**
+   * Parses the SOAP fault of the response.
+   *
+   * TODO: http://traq.javaforum.hu/browse/ANDROIDSOAP-8
+   * Assumed that status code 500 is returned in case of SOAP exception,
+   * this has to change in the future
+   *
+   * @param resultClass The class of the result in the response
+   * @param is The stream of the response
+   * @return The exception of the fault
+   * @throws IOException IOException
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
+   */
+  private IOException parseFault(final Class resultClass, final InputStream is) throws IOException,
+          InstantiationException, IllegalAccessException
+  {
+    GenericHandler exceptionHandler = new GenericHandler(resultClass, Boolean.TRUE);
+    exceptionHandler.parse(is, parserBackend);
+    LOGGER.info("The reply has been parsed");
+
+    return encapsulateIOException((Exception) exceptionHandler.getObject());
+  }
+
+  /**
+   * Call the service asynchronously.
+   *
+   * @param <T> The return type
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param exceptionClass The class of the exception in the response
+   * @return The Future of the response
+   */
+  public final <T, E> Future<T> callAsync(final Envelope envelope, final Class<T> resultClass,
+          final Class<E> exceptionClass)
+  {
+    return callAsync(envelope, resultClass, exceptionClass, null);
+  }
+
+  /**
+   * Call the service asynchronously. The call runs on the bounded executor of
+   * the transport; when the queue of the executor is full, the rejection
+   * policy decides what happens (by default RejectedExecutionException is
+   * thrown).
+   *
+   * @param <T> The return type
+   * @param envelope The request envelope
+   * @param resultClass The class of the result in the response
+   * @param exceptionClass The class of the exception in the response
+   * @param httpHeaders The custom Http headers
+   * @return The Future of the response, its get() method throws
+   * ExecutionException with the IOException of the call
+   */
+  public final <T, E> Future<T> callAsync(final Envelope envelope, final Class<T> resultClass,
+          final Class<E> exceptionClass, final Map<String, String> httpHeaders)
+  {
+    return getAsyncExecutor().submit(new Callable<T>()
+    {
+
+      /**
+       * Runs the call.
+       *
+       * @return The response
+       * @throws IOException An exception from SOAP message
+       */
+      public T call() throws IOException
+      {
+        return Transport.this.call(envelope, resultClass, exceptionClass, httpHeaders);
+      }
+    });
+  }
+
+  /**
+   * Returns the executor of the asynchronous calls, it creates a bounded
+   * thread pool on the first call, if no custom executor was set.
+   *
+   * @return The executor
+   */
+  protected final synchronized ExecutorService getAsyncExecutor()
+  {
+    if (asyncExecutor == null)
+    {
+      asyncExecutor = new ThreadPoolExecutor(asyncPoolSize, asyncPoolSize,
+              0L, TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<Runnable>(asyncQueueSize),
+              new AsyncThreadFactory("Transport-async-"), asyncRejectionPolicy);
+      asyncExecutorOwned = true;
+      LOGGER.debug("Async executor has been created: {}/{}", asyncPoolSize, asyncQueueSize);
+    }
+
+    return asyncExecutor;
+  }
+
+  /**
+   * Returns the executor of the hedged requests, it creates a thread pool on
+   * the first call; the pool has no queue, and it is bounded by the maximum
+   * number of pooled connections.
+   *
+   * @return The executor
+   */
+  private synchronized ExecutorService getHedgeExecutor()
+  {
+    if (hedgeExecutor == null)
+    {
+      hedgeExecutor = new ThreadPoolExecutor(0, maxTotalConnections,
+              HEDGE_THREAD_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+              new SynchronousQueue<Runnable>(), new AsyncThreadFactory("Transport-hedge-"));
+      LOGGER.debug("Hedging executor has been created: {}", maxTotalConnections);
+    }
+
+    return hedgeExecutor;
+  }
+
+  /**
+   * Gives back the connection of the request to the pool. The remaining
+   * content of a completely processed response is consumed, so the connection
+   * is reusable; otherwise the request is aborted and the connection is
+   * dropped.
+   *
+   * The decoded content is closed after the release, so the inflater of a
+   * compressed response frees its native memory.
+   *
+   * @param post The request
+   * @param entity The response entity, it can be null
+   * @param content The decoded content of the entity, it can be null
+   * @param completed True, if the response was processed completely
+   */
+  static void releaseConnection(final HttpPost post, final HttpEntity entity, final InputStream content,
+          final boolean completed)
+  {
+    if (post == null)
+    {
+      return;
+    }
+
+    try
+    {
+      if (completed && entity != null)
+      {
+        entity.consumeContent();
+      } else
+      {
+        post.abort();
+      }
+    } catch (IOException except)
+    {
+      LOGGER.debug("Cannot release the connection: {}", except.toString());
+      post.abort();
+    } finally
+    {
+      closeContent(content);
+    }
+  }
+
+  /**
+   * Closes the decoded content of a released response.
+   *
+   * @param content The decoded content, it can be null
+   */
+  private static void closeContent(final InputStream content)
+  {
+    if (content == null)
+    {
+      return;
+    }
+
+    try
+    {
+      content.close();
+    } catch (IOException except)
+    {
+      LOGGER.debug("Cannot close the content: {}", except.toString());
+    }
+  }
+
+  /**
+   * Creates a HttpPost instance. The envelope is serialized by a streaming
+   * entity, when the request is sent; it is gzip compressed, if it is longer
+   * than the request compression threshold.
+   *
+   * @param envelope The envelope
+   * @param httpHeaders The Http headers
+   * @return The instance
+   * @throws IOException When the envelope cannot be serialized
+   */
+  protected final HttpPost createHttpPost(final Envelope envelope,
+          final Map<String, String> httpHeaders) throws IOException
+  {
+    try
+    {
+      if (LOGGER.isDebugEnabled())
+      {
+        LOGGER.debug("Request is:\n{}", envelope.toString());
+      }
+
+      HttpPost post = new HttpPost(this.getUrl());
+      HttpConnectionParams.setConnectionTimeout(post.getParams(), connectionTimeout);
+      HttpConnectionParams.setSoTimeout(post.getParams(), socketTimeout);
+      boolean compressed = requestCompressionThreshold >= 0
+              && ContentEncoding.isLongerThan(envelope, DEFAULT_ENCODING, requestCompressionThreshold);
+      post.setEntity(new EnvelopeEntity(envelope, DEFAULT_ENCODING, compressed));
+      post.setHeader("Content-type", "text/xml; charset=" + DEFAULT_ENCODING);
+      if (responseCompression)
+      {
+        post.setHeader("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
+      }
+      if (httpHeaders != null)
+      {
+        for (Map.Entry<String, String> entry : httpHeaders.entrySet())
+        {
+          post.setHeader(entry.getKey(), entry.getValue());
+          LOGGER.debug("setHeader('{}', '{}')", entry.getKey(), entry.getValue());
+        }
+      }
+      if (this.getUsername() != null && this.getPassword() != null)
+      {
+        String basic = this.getUsername() + ":" + this.getPassword();
+        String authorizationHeader = "Basic "
+                + new String(Base64.encodeBase64(basic.getBytes(DEFAULT_ENCODING)), DEFAULT_ENCODING);
+        post.addHeader("Authorization", authorizationHeader);
+        LOGGER.debug("addHeader('Authorization', '%1$s')", authorizationHeader);
+      }
+
+      return post;
+    } finally
+    {
+    }
+  }
+
+  /**
+   * Creates a HttpParams instance.
+   *
+   * @return The instance
+   */
+  protected final HttpParams createHttpParams()
+  {
+    try
+    {
+      HttpParams httpParameters = new BasicHttpParams();
+      HttpConnectionParams.setConnectionTimeout(httpParameters, connectionTimeout);
+      LOGGER.debug("Connection timeout: {}", connectionTimeout);
+      HttpConnectionParams.setSoTimeout(httpParameters, socketTimeout);
+      LOGGER.debug("Socket timeout: {}", socketTimeout);
+      ConnManagerParams.setMaxTotalConnections(httpParameters, maxTotalConnections);
+      ConnManagerParams.setMaxConnectionsPerRoute(httpParameters, new ConnPerRouteBean(maxConnectionsPerRoute));
+      ConnManagerParams.setTimeout(httpParameters, connectionTimeout);
+      LOGGER.debug("Connection pool size: {}/{}", maxConnectionsPerRoute, maxTotalConnections);
+
+      return httpParameters;
+    } finally
+    {
+    }
+  }
+
+  /**
+   * Creates a HttpClient implementation instance. The implementation should
+   * use a thread safe (pooling) connection manager, because the instance is
+   * shared between the calls of the transport.
+   *
+   * @param params The HttpParams
+   * @return The instance
+   * @throws IOException IOException
+   */
+  protected abstract HttpClient createHttpClient(HttpParams params)
+          throws IOException;
+
+  /**
+   * Returns the shared HttpClient instance, it creates the instance on the
+   * first call. The connections which are idle longer than the idle
+   * connection timeout, and the expired connections are evicted from the
+   * pool by a daemon thread in every half of the timeout (see close()), so
+   * the connections closed by the server are not kept after the traffic
+   * stops.
+   *
+   * @return The instance
+   * @throws IOException IOException
+   */
+  protected final synchronized HttpClient getHttpClient() throws IOException
+  {
+    if (httpClient == null)
+    {
+      httpClient = createHttpClient(createHttpParams());
+      LOGGER.debug("HttpClient has been created");
+
+      long period = Math.max(idleConnectionTimeout / 2, MIN_EVICTION_PERIOD);
+      connectionEvictor = new ScheduledThreadPoolExecutor(1, new AsyncThreadFactory("Transport-evictor-"));
+      connectionEvictor.scheduleWithFixedDelay(new ConnectionEvictor(httpClient), period, period,
+              TimeUnit.MILLISECONDS);
+    }
+
+    return httpClient;
+  }
+
+  /**
+   * Shuts down the shared HttpClient instance and closes the pooled
+   * connections. The own executor of the asynchronous calls is shut down too
+   * (the already submitted calls are finished). The transport creates new
+   * instances, when it is called again after closing.
+   */
+  public synchronized void close()
+  {
+    if (asyncExecutor != null && asyncExecutorOwned)
+    {
+      asyncExecutor.shutdown();
+    }
+    asyncExecutor = null;
+    asyncExecutorOwned = false;
+
+    if (hedgeExecutor != null)
+    {
+      hedgeExecutor.shutdown();
+      hedgeExecutor = null;
+    }
+
+    if (connectionEvictor != null)
+    {
+      connectionEvictor.shutdownNow();
+      connectionEvictor = null;
+    }
+
+    if (httpClient != null)
+    {
+      httpClient.getConnectionManager().shutdown();
+      httpClient = null;
+      LOGGER.debug("HttpClient has been shut down");
+    }
+  }
+
+  /**
+   * Prints out the reply of the server when the loglevel is DEBUG.
+   *
+   * @param stream The stream
+   * @return The reply stream
+   * @throws IOException When IO error occurred
+   */
+  protected final InputStream debugResponseStream(final InputStream stream) throws IOException
+  {
+    InputStream replyStream = stream;
+    try
+    {
+      if (LOGGER.isDebugEnabled())
+      {
+        InputStreamReader isr = new InputStreamReader(stream, DEFAULT_ENCODING);
+        BufferedReader br = new BufferedReader(isr);
+        StringBuilder sb = new StringBuilder();
+        for (String line = br.readLine(); line != null; line = br.readLine())
+        {
+          sb.append(line);
+          sb.append("\n");
+        }
+        br.close();
+        isr.close();
+        stream.close();
+
+        replyStream = new ByteArrayInputStream(sb.toString().getBytes(DEFAULT_ENCODING));
+        LOGGER.debug("Response:\n{}", sb.toString());
+      }
+    } finally
+    {
+    }
+
+    return replyStream;
+  }
+
+  /**
+   * Gets the password.
+   *
+   * @return The password
+   */
+  public final String getPassword()
+  {
+    return password;
   }
 
   /**
@@ -344,6 +1325,203 @@ public abstract class Transport
     this.connectionTimeout = timeout;
   }
 
+  /**
+   * Sets the maximum number of pooled connections per route. It takes effect
+   * on the next HttpClient instance (see close()).
+   *
+   * @param maximum The maximum number of connections
+   */
+  public final void setMaxConnectionsPerRoute(final int maximum)
+  {
+    this.maxConnectionsPerRoute = maximum;
+  }
+
+  /**
+   * Sets the maximum number of pooled connections. It takes effect on the
+   * next HttpClient instance (see close()).
+   *
+   * @param maximum The maximum number of connections
+   */
+  public final void setMaxTotalConnections(final int maximum)
+  {
+    this.maxTotalConnections = maximum;
+  }
+
+  /**
+   * Sets the time (in milliseconds) after the idle pooled connections are
+   * evicted. The period of the eviction is changed on the next HttpClient
+   * instance (see close()).
+   *
+   * @param timeout The timeout
+   */
+  public final void setIdleConnectionTimeout(final long timeout)
+  {
+    this.idleConnectionTimeout = timeout;
+  }
+
+  /**
+   * Sets the number of the threads of the asynchronous calls. It takes effect
+   * on the next executor instance (see close()).
+   *
+   * @param size The number of the threads
+   */
+  public final void setAsyncPoolSize(final int size)
+  {
+    this.asyncPoolSize = size;
+  }
+
+  /**
+   * Sets the maximum number of the waiting asynchronous calls. It takes
+   * effect on the next executor instance (see close()).
+   *
+   * @param size The size of the queue
+   */
+  public final void setAsyncQueueSize(final int size)
+  {
+    this.asyncQueueSize = size;
+  }
+
+  /**
+   * Sets the policy of the rejected asynchronous calls (for example
+   * ThreadPoolExecutor.CallerRunsPolicy). It takes effect on the next executor
+   * instance (see close()).
+   *
+   * @param policy The policy
+   */
+  public final void setAsyncRejectionPolicy(final RejectedExecutionHandler policy)
+  {
+    this.asyncRejectionPolicy = policy;
+  }
+
+  /**
+   * Sets a custom executor of the asynchronous calls. The custom executor is
+   * not shut down by the close() method.
+   *
+   * @param executor The executor
+   */
+  public final synchronized void setAsyncExecutor(final ExecutorService executor)
+  {
+    if (asyncExecutor != null && asyncExecutorOwned)
+    {
+      asyncExecutor.shutdown();
+    }
+    this.asyncExecutor = executor;
+    this.asyncExecutorOwned = false;
+  }
+
+  /**
+   * Sets the XML parser backend of the responses, the default is the
+   * XmlPullParserBackend.
+   *
+   * @param backend The parser backend
+   */
+  public final void setParserBackend(final ParserBackend backend)
+  {
+    if (backend == null)
+    {
+      throw new IllegalArgumentException("The parser backend is null");
+    }
+    this.parserBackend = backend;
+  }
+
+  /**
+   * Turns on or off the compressed responses: the Accept-Encoding header of
+   * the requests. The default is on. The compressed responses are
+   * decompressed in both cases.
+   *
+   * @param compression True, if the compressed responses are accepted
+   */
+  public final void setResponseCompression(final boolean compression)
+  {
+    this.responseCompression = compression;
+  }
+
+  /**
+   * Sets the size (in bytes) above the requests are gzip compressed; 0
+   * compresses every request, a negative value turns off the compression
+   * (this is the default). The server must accept the compressed requests.
+   *
+   * @param threshold The threshold in bytes
+   */
+  public final void setRequestCompressionThreshold(final int threshold)
+  {
+    this.requestCompressionThreshold = threshold;
+  }
+
+  /**
+   * Sets the cache of the responses, the operations are cached by the time
+   * to live settings of the cache. The cache can be shared between the
+   * transports. The callIterator methods don't use the cache.
+   *
+   * @param cache The cache, null turns off the caching
+   */
+  public final void setResponseCache(final ResponseCache cache)
+  {
+    this.responseCache = cache;
+  }
+
+  /**
+   * Turns on or off the coalescing of the identical concurrent calls. The
+   * calls with the same URL, envelope, custom Http headers and result class
+   * share one HTTP exchange: the first call sends the request, the others
+   * wait for its response and parse their own copies of the result (or get
+   * the failure of the first call). The calls with ItemConsumers are never
+   * coalesced. The default is off.
+   *
+   * @param coalescing True, if the identical calls are coalesced
+   */
+  public final void setRequestCoalescing(final boolean coalescing)
+  {
+    this.requestCoalescing = coalescing;
+  }
+
+  /**
+   * Sets the maximum size of the shared responses of the coalesced calls
+   * (the default is 1 MB). The first call keeps a copy of the response up to
+   * this size (or up to the size of the response cache, if it is larger);
+   * if the response is larger, it isn't shared, and the waiting calls send
+   * their own requests.
+   *
+   * @param limit The maximum size in bytes
+   */
+  public final void setRequestCoalescingLimit(final long limit)
+  {
+    this.requestCoalescingLimit = limit;
+  }
+
+  /**
+   * Sets the retry policy of the idempotent operations.
+   *
+   * @param policy The policy, null turns off the retries
+   */
+  public final void setRetryPolicy(final RetryPolicy policy)
+  {
+    this.retryPolicy = policy;
+  }
+
+  /**
+   * Sets the circuit breaker of the endpoint, e.g. the shared breaker of the
+   * URL: CircuitBreaker.forEndpoint(transport.getUrl()). Every HTTP exchange
+   * (including the retries and the hedged requests) needs the permission of
+   * the breaker; the rejected calls throw CircuitBreakerOpenException.
+   *
+   * @param breaker The circuit breaker, null turns off the breaker
+   */
+  public final void setCircuitBreaker(final CircuitBreaker breaker)
+  {
+    this.circuitBreaker = breaker;
+  }
+
+  /**
+   * Returns the circuit breaker of the endpoint, e.g. for the metrics.
+   *
+   * @return The circuit breaker, null if it isn't used
+   */
+  public final CircuitBreaker getCircuitBreaker()
+  {
+    return circuitBreaker;
+  }
+
   /**
    * Encapsulate Exception to IOException with cause (ANDROIDSOAP-14).
    *
@@ -356,5 +1534,225 @@ public abstract class Transport
             ? new IOException() : new IOException(except.getMessage());
     ioException.initCause(except);
     return ioException;
-}
+  }
+
+  /**
+   * The result and the raw response of an HTTP exchange.
+   */
+  private static final class Exchange
+  {
+
+    /**
+     * The parsed result.
+     */
+    private Object result;
+    /**
+     * The copy of the raw response, null if it isn't copied.
+     */
+    private byte[] content;
+  }
+
+  /**
+   * A hedged request: it can be cancelled before and during the HTTP
+   * exchange, the latency of the successful exchange is recorded.
+   */
+  private final class Attempt implements Callable<Exchange>
+  {
+
+    /**
+     * The request envelope.
+     */
+    private final Envelope envelope;
+    /**
+     * The class of the result in the response.
+     */
+    private final Class resultClass;
+    /**
+     * The custom Http headers.
+     */
+    private final Map<String, String> httpHeaders;
+    /**
+     * The parse options, it can be null.
+     */
+    private final ParseOptions parseOptions;
+    /**
+     * The maximum size of the copy of the raw response.
+     */
+    private final long captureLimit;
+    /**
+     * The latencies of the operation.
+     */
+    private final LatencyTracker tracker;
+    /**
+     * The running request, null if it isn't started yet.
+     */
+    private HttpPost post;
+    /**
+     * True, if the attempt is cancelled.
+     */
+    private boolean cancelled;
+    /**
+     * True, if the attempt is finished.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param envelope The request envelope
+     * @param resultClass The class of the result in the response
+     * @param httpHeaders The custom Http headers
+     * @param parseOptions The parse options, it can be null
+     * @param captureLimit The maximum size of the copy of the raw response
+     * @param tracker The latencies of the operation
+     */
+    Attempt(final Envelope envelope, final Class resultClass, final Map<String, String> httpHeaders,
+            final ParseOptions parseOptions, final long captureLimit, final LatencyTracker tracker)
+    {
+      this.envelope = envelope;
+      this.resultClass = resultClass;
+      this.httpHeaders = httpHeaders;
+      this.parseOptions = parseOptions;
+      this.captureLimit = captureLimit;
+      this.tracker = tracker;
+    }
+
+    /**
+     * Sends the request, and parses the response.
+     *
+     * @return The result and the copy of the raw response
+     * @throws Exception The failure of the exchange
+     */
+    public Exchange call() throws Exception
+    {
+      long start = System.nanoTime();
+      try
+      {
+        Exchange exchange = execute(envelope, resultClass, httpHeaders, parseOptions, captureLimit, this);
+        tracker.record((System.nanoTime() - start) / NANOS_PER_MILLI);
+        return exchange;
+      } finally
+      {
+        synchronized (this)
+        {
+          finished = true;
+        }
+      }
+    }
+
+    /**
+     * Registers the request, when it is created.
+     *
+     * @param request The request
+     * @return False, if the attempt is already cancelled
+     */
+    synchronized boolean start(final HttpPost request)
+    {
+      this.post = request;
+      return !cancelled;
+    }
+
+    /**
+     * Returns true, if the attempt is cancelled.
+     *
+     * @return True, if the attempt is cancelled
+     */
+    synchronized boolean isCancelled()
+    {
+      return cancelled;
+    }
+
+    /**
+     * Cancels the attempt, the running request is aborted.
+     */
+    synchronized void cancel()
+    {
+      cancelled = true;
+      if (post != null && !finished)
+      {
+        post.abort();
+      }
+    }
+  }
+
+    /**
+   * Evicts the idle and the expired connections of the pool.
+   */
+  private final class ConnectionEvictor implements Runnable
+  {
+
+    /**
+     * The HttpClient instance.
+     */
+    private final HttpClient client;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param client The HttpClient instance
+     */
+    ConnectionEvictor(final HttpClient client)
+    {
+      this.client = client;
+    }
+
+    /**
+     * Closes the expired connections, and the connections which are idle
+     * longer than the idle connection timeout.
+     */
+    public void run()
+    {
+      try
+      {
+        client.getConnectionManager().closeExpiredConnections();
+        client.getConnectionManager().closeIdleConnections(idleConnectionTimeout, TimeUnit.MILLISECONDS);
+      } catch (RuntimeException except)
+      {
+        /**
+         * The next runs must not be cancelled
+         */
+        LOGGER.debug("Cannot evict the idle connections: {}", except.toString());
+      }
+    }
+  }
+
+/**
+   * Creates the daemon threads of the asynchronous calls and the hedged
+   * requests.
+   */
+  private static final class AsyncThreadFactory implements ThreadFactory
+  {
+
+    /**
+     * The number of the created threads.
+     */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    /**
+     * The prefix of the thread names.
+     */
+    private final String namePrefix;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param namePrefix The prefix of the thread names
+     */
+    AsyncThreadFactory(final String namePrefix)
+    {
+      this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Creates a new daemon thread.
+     *
+     * @param runnable The runnable
+     * @return The thread
+     */
+    public Thread newThread(final Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, namePrefix + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
@@ -7,6 +7,8 @@ package hu.javaforum.android.soap.impl;
 import hu.javaforum.android.soap.Body;
 import hu.javaforum.commons.CommonBean;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Map;
 
 /**
@@ -52,24 +54,33 @@ public class SimpleBody extends Body
   @Override
   protected final String getBody()
   {
-    StringBuilder sb = new StringBuilder();
+    return writeToString();
+  }
 
-    sb.append("<soapenv:Body>");
-    sb.append("<ns:");
-    sb.append(operationName);
-    sb.append(">");
+  /**
+   * Writes the body in the SOAP envelope to the writer, the parameters are
+   * serialized straight to the writer.
+   *
+   * @param writer The writer
+   * @throws IOException When IO error occurred
+   */
+  @Override
+  protected final void writeTo(final Writer writer) throws IOException
+  {
+    writer.write("<soapenv:Body>");
+    writer.write("<ns:");
+    writer.write(operationName);
+    writer.write(">");
     if (parameters != null)
     {
       for (Map.Entry<String, Object> entry : parameters.entrySet())
       {
-        sb.append(CommonBean.dumpXml(entry.getValue(), entry.getKey(), null));
+        CommonBean.dumpXml(writer, entry.getValue(), entry.getKey(), null);
       }
     }
-    sb.append("</ns:");
-    sb.append(operationName);
-    sb.append(">");
-    sb.append("</soapenv:Body>");
-
-    return sb.toString();
+    writer.write("</ns:");
+    writer.write(operationName);
+    writer.write(">");
+    writer.write("</soapenv:Body>");
   }
 }
@@ -0,0 +1,32 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The XML parser backend of the response handlers. The default backend is the
+ * XmlPullParserBackend; an other one can be set on the Transport instance.
+ *
+ * The implementations must be thread safe: one instance opens the sessions
+ * of the concurrent calls.
+ *
+ * @author sabo
+ */
+public interface ParserBackend
+{
+
+  /**
+   * Opens a parser session on the stream. The session reports the events to
+   * the callback, when its next() method is called.
+   *
+   * @param is The stream of the XML
+   * @param callback The callback
+   * @return The session
+   * @throws IOException If the parser can't be initialized
+   */
+  ParserSession open(InputStream is, ParserCallback callback) throws IOException;
+}
@@ -0,0 +1,52 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.parser;
+
+/**
+ * Receives the events of a ParserSession.
+ *
+ * @author sabo
+ */
+public interface ParserCallback
+{
+
+  /**
+   * The text of the element is not needed, the backend may skip its decoding.
+   */
+  int SKIP_TEXT = 0;
+  /**
+   * The text of the element is needed.
+   */
+  int READ_TEXT = 1;
+  /**
+   * The element is not needed: the backend may skip its content to the
+   * matching end tag, only the end tag is reported.
+   */
+  int SKIP_SUBTREE = 2;
+
+  /**
+   * Start tag event.
+   *
+   * @param localName The local name of the element
+   * @return SKIP_TEXT, READ_TEXT or SKIP_SUBTREE
+   */
+  int startTag(String localName);
+
+  /**
+   * Text event; the text can be reported in more than one event.
+   *
+   * @param ch The buffer of the text, it is valid only during the call
+   * @param start The first char of the text
+   * @param length The length of the text
+   */
+  void text(char[] ch, int start, int length);
+
+  /**
+   * End tag event.
+   *
+   * @param localName The local name of the element
+   */
+  void endTag(String localName);
+}
@@ -0,0 +1,44 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.parser;
+
+import java.io.IOException;
+
+/**
+ * The parser backends report the XML errors with this exception, the cause
+ * is the exception of the underlying parser.
+ *
+ * @author sabo
+ */
+public class ParserException extends IOException
+{
+
+  /**
+   * The serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The constructor of the errors, which are found by the backend itself.
+   *
+   * @param message The message
+   */
+  public ParserException(final String message)
+  {
+    super(message);
+  }
+
+  /**
+   * The constructor.
+   *
+   * @param message The message
+   * @param cause The exception of the underlying parser
+   */
+  public ParserException(final String message, final Throwable cause)
+  {
+    super(message);
+    initCause(cause);
+  }
+}
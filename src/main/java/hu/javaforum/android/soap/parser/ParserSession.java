@@ -0,0 +1,31 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.parser;
+
+import java.io.IOException;
+
+/**
+ * A step by step parsing of an XML document. The session is not thread safe.
+ *
+ * @author sabo
+ */
+public interface ParserSession
+{
+
+  /**
+   * Parses the next event of the document, and reports it to the callback.
+   * The session is closed at the end of the document, or if the parsing
+   * fails.
+   *
+   * @return False, if the end of the document is reached
+   * @throws IOException If the document can't be read or parsed
+   */
+  boolean next() throws IOException;
+
+  /**
+   * Releases the parser; the method can be called more than once.
+   */
+  void close();
+}
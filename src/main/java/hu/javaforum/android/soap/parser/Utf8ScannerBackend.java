@@ -0,0 +1,1111 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * UTF-8 byte level backend for the SOAP responses. It scans the bytes of the
+ * response without a Reader: the element names are looked up from a name
+ * table by their bytes, so the String of a name is created only once, and
+ * the text is decoded only for the elements, which need it (see the return
+ * value of ParserCallback.startTag). The skipped subtrees are scanned to the
+ * matching end tag by the depth, without the name lookups.
+ *
+ * It supports the XML subset of the SOAP messages: UTF-8 (or US-ASCII)
+ * encoding, the predefined entities and the character references, CDATA
+ * sections, comments and processing instructions. The DTDs are rejected, the
+ * attributes are skipped, and the namespace prefixes are dropped from the
+ * element names. Only the text directly inside a leaf element is reported.
+ *
+ * Every thread keeps an idle scanner with its buffers and name table.
+ *
+ * @author sabo
+ */
+public final class Utf8ScannerBackend implements ParserBackend
+{
+
+  /**
+   * The shared instance.
+   */
+  public static final Utf8ScannerBackend INSTANCE = new Utf8ScannerBackend();
+  /**
+   * The idle scanner of the thread. The scanner is taken out while it is in
+   * use, so the nested parsing on the same thread creates an other instance.
+   */
+  private static final ThreadLocal<Scanner> IDLE_SCANNER = new ThreadLocal<Scanner>();
+
+  /**
+   * The private constructor, use the INSTANCE.
+   */
+  private Utf8ScannerBackend()
+  {
+    super();
+  }
+
+  /**
+   * Opens a scanner session on the stream.
+   *
+   * @param is The stream of the XML
+   * @param callback The callback
+   * @return The session
+   * @throws IOException If the stream can't be read
+   */
+  public ParserSession open(final InputStream is, final ParserCallback callback) throws IOException
+  {
+    Scanner scanner = IDLE_SCANNER.get();
+    if (scanner == null)
+    {
+      scanner = new Scanner();
+    } else
+    {
+      IDLE_SCANNER.set(null);
+    }
+
+    ScannerSession session = new ScannerSession(scanner);
+    boolean started = false;
+    try
+    {
+      scanner.start(is, callback);
+      started = true;
+    } finally
+    {
+      if (!started)
+      {
+        session.close();
+      }
+    }
+
+    return session;
+  }
+
+  /**
+   * The session of a document, it holds the scanner until it is closed.
+   */
+  private static final class ScannerSession implements ParserSession
+  {
+
+    /**
+     * The scanner, it is null after the session is closed.
+     */
+    private Scanner scanner;
+
+    /**
+     * The constructor.
+     *
+     * @param scanner The scanner
+     */
+    ScannerSession(final Scanner scanner)
+    {
+      this.scanner = scanner;
+    }
+
+    /**
+     * Scans the next event.
+     *
+     * @return False, if the end of the document is reached
+     * @throws IOException If the document can't be read or parsed
+     */
+    public boolean next() throws IOException
+    {
+      if (scanner == null)
+      {
+        return false;
+      }
+
+      boolean more = false;
+      try
+      {
+        more = scanner.scan();
+
+        return more;
+      } finally
+      {
+        if (!more)
+        {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Gives back the scanner to the idle scanner of the thread.
+     */
+    public void close()
+    {
+      Scanner closedScanner = scanner;
+      if (closedScanner != null)
+      {
+        scanner = null;
+        closedScanner.reset();
+        IDLE_SCANNER.set(closedScanner);
+      }
+    }
+  }
+
+  /**
+   * The scanner and its reusable buffers.
+   */
+  private static final class Scanner
+  {
+
+    /**
+     * The size of the byte buffer.
+     */
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * The size of the name table, it is a power of two.
+     */
+    private static final int NAME_TABLE_SIZE = 1024;
+    /**
+     * The maximum number of the names in the name table.
+     */
+    private static final int NAME_TABLE_LIMIT = 512;
+    /**
+     * The initial size of the text buffer.
+     */
+    private static final int TEXT_SIZE = 256;
+    /**
+     * The largest text buffer, which is kept for the next document.
+     */
+    private static final int RETAINED_TEXT_SIZE = 65536;
+    /**
+     * The longest entity reference.
+     */
+    private static final int MAX_REFERENCE_LENGTH = 10;
+    /**
+     * The byte buffer.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * The next byte in the buffer.
+     */
+    private int position;
+    /**
+     * The end of the bytes in the buffer.
+     */
+    private int limit;
+    /**
+     * The number of the bytes before the buffer.
+     */
+    private long offset;
+    /**
+     * The stream, it is null, when the scanner is idle.
+     */
+    private InputStream is;
+    /**
+     * The callback.
+     */
+    private ParserCallback callback;
+    /**
+     * The bytes of the last name or entity reference.
+     */
+    private byte[] nameBytes = new byte[64];
+    /**
+     * The length of the last name.
+     */
+    private int nameLength;
+    /**
+     * The bytes of the known names.
+     */
+    private final byte[][] tableKeys = new byte[NAME_TABLE_SIZE][];
+    /**
+     * The hashes of the known names.
+     */
+    private final int[] tableHashes = new int[NAME_TABLE_SIZE];
+    /**
+     * The known names.
+     */
+    private final String[] tableNames = new String[NAME_TABLE_SIZE];
+    /**
+     * The number of the known names.
+     */
+    private int tableCount;
+    /**
+     * The names of the open elements.
+     */
+    private String[] openElements = new String[16];
+    /**
+     * The number of the open elements.
+     */
+    private int depth;
+    /**
+     * True, if the root element is started.
+     */
+    private boolean rootStarted;
+    /**
+     * The text of the current leaf element.
+     */
+    private char[] text = new char[TEXT_SIZE];
+    /**
+     * The length of the text.
+     */
+    private int textLength;
+    /**
+     * True, if the text of the current element is decoded.
+     */
+    private boolean collecting;
+    /**
+     * The content of the XML declaration.
+     */
+    private final StringBuilder declaration = new StringBuilder();
+
+    /**
+     * Starts the scanning of a document, and skips the byte order mark.
+     *
+     * @param is The stream
+     * @param callback The callback
+     * @throws IOException If the stream can't be read or it isn't UTF-8
+     */
+    void start(final InputStream is, final ParserCallback callback) throws IOException
+    {
+      this.is = is;
+      this.callback = callback;
+      this.position = 0;
+      this.limit = 0;
+      this.offset = 0;
+
+      int first = peek();
+      if (first == 0xEF)
+      {
+        position++;
+        if (read() != 0xBB || read() != 0xBF)
+        {
+          throw error("Malformed byte order mark");
+        }
+      } else if (first == 0xFE || first == 0xFF)
+      {
+        throw error("Unsupported encoding: UTF-16");
+      }
+    }
+
+    /**
+     * Releases the stream and the callback, and clears the state.
+     */
+    void reset()
+    {
+      is = null;
+      callback = null;
+      while (depth > 0)
+      {
+        openElements[--depth] = null;
+      }
+      rootStarted = false;
+      collecting = false;
+      textLength = 0;
+      declaration.setLength(0);
+      if (text.length > RETAINED_TEXT_SIZE)
+      {
+        text = new char[TEXT_SIZE];
+      }
+    }
+
+    /**
+     * Scans to the next tag, and reports it.
+     *
+     * @return False, if the end of the document is reached
+     * @throws IOException If the document can't be read or parsed
+     */
+    boolean scan() throws IOException
+    {
+      while (true)
+      {
+        if (!skipToMarkup())
+        {
+          if (depth > 0 || !rootStarted)
+          {
+            throw error("Unexpected end of the document");
+          }
+          return false;
+        }
+
+        int b = read();
+        if (b == '/')
+        {
+          scanEndTag();
+          return true;
+        } else if (b == '?')
+        {
+          skipProcessingInstruction();
+        } else if (b == '!')
+        {
+          skipDeclaration();
+        } else if (b < 0)
+        {
+          throw error("Unexpected end of the document");
+        } else
+        {
+          scanStartTag(b);
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Reads the text to the next '<' character; the text is decoded, if it is
+     * collected.
+     *
+     * @return False, if the end of the stream is reached
+     * @throws IOException If the document can't be read or parsed
+     */
+    private boolean skipToMarkup() throws IOException
+    {
+      if (collecting)
+      {
+        while (true)
+        {
+          int b = read();
+          if (b < 0)
+          {
+            return false;
+          } else if (b == '<')
+          {
+            return true;
+          }
+          appendText(b, true);
+        }
+      }
+
+      while (true)
+      {
+        if (position == limit && !fill())
+        {
+          return false;
+        }
+
+        byte[] bytes = buffer;
+        int end = limit;
+        for (int index = position; index < end; index++)
+        {
+          byte b = bytes[index];
+          if (b == '<')
+          {
+            position = index + 1;
+            return true;
+          } else if (depth == 0 && !isWhitespace(b))
+          {
+            position = index;
+            throw error("Text is not allowed outside of the root element");
+          }
+        }
+        position = end;
+      }
+    }
+
+    /**
+     * Scans a start tag, the '<' and the first byte of the name are read.
+     *
+     * @param first The first byte of the name
+     * @throws IOException If the document can't be read or parsed
+     */
+    private void scanStartTag(final int first) throws IOException
+    {
+      if (depth == 0 && rootStarted)
+      {
+        throw error("Only one root element is allowed");
+      }
+
+      String name = readName(first);
+      boolean empty = skipAttributes();
+      rootStarted = true;
+      textLength = 0;
+
+      if (empty)
+      {
+        collecting = false;
+        callback.startTag(name);
+        callback.endTag(name);
+      } else
+      {
+        if (depth == openElements.length)
+        {
+          String[] newOpenElements = new String[depth * 2];
+          System.arraycopy(openElements, 0, newOpenElements, 0, depth);
+          openElements = newOpenElements;
+        }
+        openElements[depth++] = name;
+        int action = callback.startTag(name);
+        collecting = action == ParserCallback.READ_TEXT;
+        if (action == ParserCallback.SKIP_SUBTREE)
+        {
+          skipSubtree();
+          scanEndTag();
+        }
+      }
+    }
+
+    /**
+     * Skips the content of the current element without the name lookups, the
+     * '</' of the matching end tag is read.
+     *
+     * @throws IOException If the document can't be read or parsed
+     */
+    private void skipSubtree() throws IOException
+    {
+      int level = 0;
+      while (true)
+      {
+        if (!skipToMarkup())
+        {
+          throw error("Unexpected end of the document");
+        }
+
+        int b = read();
+        if (b == '/')
+        {
+          if (level == 0)
+          {
+            return;
+          }
+          level--;
+          do
+          {
+            b = read();
+            if (b < 0)
+            {
+              throw error("Unexpected end of the document");
+            }
+          } while (b != '>');
+        } else if (b == '?')
+        {
+          skipProcessingInstruction();
+        } else if (b == '!')
+        {
+          skipDeclaration();
+        } else if (b < 0)
+        {
+          throw error("Unexpected end of the document");
+        } else if (!skipAttributes())
+        {
+          level++;
+        }
+      }
+    }
+
+    /**
+     * Scans an end tag, the '</' is read. The collected text is reported
+     * before the end tag.
+     *
+     * @throws IOException If the document can't be read or parsed
+     */
+    private void scanEndTag() throws IOException
+    {
+      String name = readName(read());
+      int b = read();
+      while (isWhitespace(b))
+      {
+        b = read();
+      }
+      if (b != '>')
+      {
+        throw error("Malformed end tag: " + name);
+      }
+
+      String openName = depth > 0 ? openElements[depth - 1] : null;
+      if (openName == null || (openName != name && !openName.equals(name)))
+      {
+        throw error("Unexpected end tag: " + name);
+      }
+      openElements[--depth] = null;
+
+      if (collecting && textLength > 0)
+      {
+        callback.text(text, 0, textLength);
+      }
+      collecting = false;
+      textLength = 0;
+      callback.endTag(name);
+    }
+
+    /**
+     * Reads a name, the local part of a prefixed name is returned.
+     *
+     * @param first The first byte of the name
+     * @return The name from the name table
+     * @throws IOException If the document can't be read or parsed
+     */
+    private String readName(final int first) throws IOException
+    {
+      if (isWhitespace(first) || first == '/' || first == '>' || first == '=')
+      {
+        throw error("Missing name");
+      }
+
+      nameLength = 0;
+      int hash = 0;
+      int b = first;
+      while (true)
+      {
+        if (b < 0)
+        {
+          throw error("Unexpected end of the document");
+        } else if (b == ':')
+        {
+          nameLength = 0;
+          hash = 0;
+        } else
+        {
+          if (nameLength == nameBytes.length)
+          {
+            byte[] newNameBytes = new byte[nameLength * 2];
+            System.arraycopy(nameBytes, 0, newNameBytes, 0, nameLength);
+            nameBytes = newNameBytes;
+          }
+          nameBytes[nameLength++] = (byte) b;
+          hash = 31 * hash + b;
+        }
+
+        b = peek();
+        if (isWhitespace(b) || b == '/' || b == '>' || b == '=')
+        {
+          break;
+        }
+        position++;
+      }
+
+      if (nameLength == 0)
+      {
+        throw error("Missing name");
+      }
+
+      return lookupName(hash);
+    }
+
+    /**
+     * Returns the String of the name bytes from the name table, or creates it
+     * and puts it into the table.
+     *
+     * @param hash The hash of the name bytes
+     * @return The name
+     * @throws IOException If the name isn't a valid UTF-8 sequence
+     */
+    private String lookupName(final int hash) throws IOException
+    {
+      int index = hash & (NAME_TABLE_SIZE - 1);
+      byte[] key = tableKeys[index];
+      while (key != null)
+      {
+        if (tableHashes[index] == hash && key.length == nameLength && equalsName(key))
+        {
+          return tableNames[index];
+        }
+        index = (index + 1) & (NAME_TABLE_SIZE - 1);
+        key = tableKeys[index];
+      }
+
+      String name = new String(nameBytes, 0, nameLength, "UTF-8");
+      if (tableCount < NAME_TABLE_LIMIT)
+      {
+        key = new byte[nameLength];
+        System.arraycopy(nameBytes, 0, key, 0, nameLength);
+        tableKeys[index] = key;
+        tableHashes[index] = hash;
+        tableNames[index] = name;
+        tableCount++;
+      }
+
+      return name;
+    }
+
+    /**
+     * Compares the name bytes with a key of the name table.
+     *
+     * @param key The key
+     * @return True, if the bytes are equal
+     */
+    private boolean equalsName(final byte[] key)
+    {
+      for (int index = 0; index < nameLength; index++)
+      {
+        if (key[index] != nameBytes[index])
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * Skips the attributes of a start tag.
+     *
+     * @return True, if the element is empty ('/>')
+     * @throws IOException If the document can't be read or parsed
+     */
+    private boolean skipAttributes() throws IOException
+    {
+      while (true)
+      {
+        int b = read();
+        if (b == '>')
+        {
+          return false;
+        } else if (b == '/')
+        {
+          if (read() != '>')
+          {
+            throw error("Malformed empty element");
+          }
+          return true;
+        } else if (b == '"' || b == '\'')
+        {
+          int quote = b;
+          do
+          {
+            b = read();
+            if (b < 0)
+            {
+              throw error("Unexpected end of the document");
+            }
+          } while (b != quote);
+        } else if (b < 0)
+        {
+          throw error("Unexpected end of the document");
+        }
+      }
+    }
+
+    /**
+     * Skips a processing instruction, the '<?' is read. The encoding of the
+     * XML declaration is checked.
+     *
+     * @throws IOException If the document can't be read or parsed
+     */
+    private void skipProcessingInstruction() throws IOException
+    {
+      boolean prolog = !rootStarted;
+      int previous = 0;
+      while (true)
+      {
+        int b = read();
+        if (b < 0)
+        {
+          throw error("Unexpected end of the document");
+        } else if (previous == '?' && b == '>')
+        {
+          break;
+        }
+        if (prolog)
+        {
+          declaration.append((char) b);
+        }
+        previous = b;
+      }
+
+      if (prolog)
+      {
+        checkDeclaration();
+        declaration.setLength(0);
+      }
+    }
+
+    /**
+     * Checks the encoding of the XML declaration.
+     *
+     * @throws ParserException If the encoding isn't UTF-8 or US-ASCII
+     */
+    private void checkDeclaration() throws ParserException
+    {
+      if (declaration.length() < 4 || declaration.indexOf("xml") != 0 || !isWhitespace(declaration.charAt(3)))
+      {
+        return;
+      }
+
+      int index = declaration.indexOf("encoding");
+      if (index < 0)
+      {
+        return;
+      }
+      index = declaration.indexOf("=", index);
+      while (index >= 0 && index < declaration.length() && declaration.charAt(index) != '"'
+              && declaration.charAt(index) != '\'')
+      {
+        index++;
+      }
+      if (index < 0 || index >= declaration.length())
+      {
+        throw error("Malformed XML declaration");
+      }
+
+      int end = declaration.indexOf(String.valueOf(declaration.charAt(index)), index + 1);
+      if (end < 0)
+      {
+        throw error("Malformed XML declaration");
+      }
+
+      String encoding = declaration.substring(index + 1, end);
+      if (!"UTF-8".equalsIgnoreCase(encoding) && !"UTF8".equalsIgnoreCase(encoding)
+              && !"US-ASCII".equalsIgnoreCase(encoding) && !"ASCII".equalsIgnoreCase(encoding))
+      {
+        throw error("Unsupported encoding: " + encoding);
+      }
+    }
+
+    /**
+     * Skips a comment or reads a CDATA section, the '<!' is read. The DTDs are
+     * not supported.
+     *
+     * @throws IOException If the document can't be read or parsed
+     */
+    private void skipDeclaration() throws IOException
+    {
+      int b = read();
+      if (b == '-')
+      {
+        if (read() != '-')
+        {
+          throw error("Malformed comment");
+        }
+
+        int dashes = 0;
+        while (true)
+        {
+          b = read();
+          if (b < 0)
+          {
+            throw error("Unexpected end of the document");
+          } else if (b == '>' && dashes >= 2)
+          {
+            return;
+          }
+          dashes = b == '-' ? dashes + 1 : 0;
+        }
+      } else if (b == '[')
+      {
+        if (depth == 0 || read() != 'C' || read() != 'D' || read() != 'A' || read() != 'T'
+                || read() != 'A' || read() != '[')
+        {
+          throw error("Malformed CDATA section");
+        }
+
+        int brackets = 0;
+        while (true)
+        {
+          b = read();
+          if (b < 0)
+          {
+            throw error("Unexpected end of the document");
+          } else if (b == '>' && brackets >= 2)
+          {
+            if (collecting)
+            {
+              textLength -= 2;
+            }
+            return;
+          }
+          brackets = b == ']' ? brackets + 1 : 0;
+          if (collecting)
+          {
+            appendText(b, false);
+          }
+        }
+      }
+
+      throw error("DTDs are not supported");
+    }
+
+    /**
+     * Decodes a byte of the text (and the following bytes of a multi-byte
+     * sequence or an entity reference) to the text buffer.
+     *
+     * @param b The byte
+     * @param references True, if the entity references are resolved
+     * @throws IOException If the document can't be read or parsed
+     */
+    private void appendText(final int b, final boolean references) throws IOException
+    {
+      if (b < 0x80)
+      {
+        if (b == '&' && references)
+        {
+          appendCodePoint(readReference());
+        } else if (b == '\r')
+        {
+          /**
+           * Line end normalization
+           */
+          if (peek() == '\n')
+          {
+            position++;
+          }
+          appendChar('\n');
+        } else
+        {
+          appendChar((char) b);
+        }
+      } else
+      {
+        appendCodePoint(readMultiByte(b));
+      }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence.
+     *
+     * @param lead The first byte of the sequence
+     * @return The code point
+     * @throws IOException If the sequence is malformed
+     */
+    private int readMultiByte(final int lead) throws IOException
+    {
+      int count;
+      int codePoint;
+      if ((lead & 0xE0) == 0xC0)
+      {
+        count = 1;
+        codePoint = lead & 0x1F;
+      } else if ((lead & 0xF0) == 0xE0)
+      {
+        count = 2;
+        codePoint = lead & 0x0F;
+      } else if ((lead & 0xF8) == 0xF0)
+      {
+        count = 3;
+        codePoint = lead & 0x07;
+      } else
+      {
+        throw error("Malformed UTF-8 sequence");
+      }
+
+      for (int index = 0; index < count; index++)
+      {
+        int b = read();
+        if (b < 0 || (b & 0xC0) != 0x80)
+        {
+          throw error("Malformed UTF-8 sequence");
+        }
+        codePoint = (codePoint << 6) | (b & 0x3F);
+      }
+      if (codePoint > Character.MAX_CODE_POINT)
+      {
+        throw error("Malformed UTF-8 sequence");
+      }
+
+      return codePoint;
+    }
+
+    /**
+     * Reads an entity reference, the '&' is read.
+     *
+     * @return The code point of the reference
+     * @throws IOException If the reference is malformed or unknown
+     */
+    private int readReference() throws IOException
+    {
+      nameLength = 0;
+      while (true)
+      {
+        int b = read();
+        if (b == ';')
+        {
+          break;
+        } else if (b < 0 || nameLength == MAX_REFERENCE_LENGTH)
+        {
+          throw error("Malformed entity reference");
+        }
+        nameBytes[nameLength++] = (byte) b;
+      }
+
+      if (nameLength > 1 && nameBytes[0] == '#')
+      {
+        return readCharacterReference();
+      } else if (equalsReference("lt"))
+      {
+        return '<';
+      } else if (equalsReference("gt"))
+      {
+        return '>';
+      } else if (equalsReference("amp"))
+      {
+        return '&';
+      } else if (equalsReference("quot"))
+      {
+        return '"';
+      } else if (equalsReference("apos"))
+      {
+        return '\'';
+      }
+
+      throw error("Unknown entity reference: " + new String(nameBytes, 0, nameLength, "UTF-8"));
+    }
+
+    /**
+     * Returns the code point of the character reference in the name bytes.
+     *
+     * @return The code point
+     * @throws ParserException If the reference is malformed
+     */
+    private int readCharacterReference() throws ParserException
+    {
+      int radix = 10;
+      int index = 1;
+      if (nameBytes[1] == 'x')
+      {
+        radix = 16;
+        index = 2;
+      }
+      if (index == nameLength)
+      {
+        throw error("Malformed character reference");
+      }
+
+      int codePoint = 0;
+      for (; index < nameLength; index++)
+      {
+        int digit = Character.digit((char) nameBytes[index], radix);
+        if (digit < 0)
+        {
+          throw error("Malformed character reference");
+        }
+        codePoint = codePoint * radix + digit;
+      }
+      if (codePoint > Character.MAX_CODE_POINT)
+      {
+        throw error("Malformed character reference");
+      }
+
+      return codePoint;
+    }
+
+    /**
+     * Compares the name bytes with an ASCII entity name.
+     *
+     * @param reference The name of the entity
+     * @return True, if they are equal
+     */
+    private boolean equalsReference(final String reference)
+    {
+      if (reference.length() != nameLength)
+      {
+        return false;
+      }
+      for (int index = 0; index < nameLength; index++)
+      {
+        if (reference.charAt(index) != nameBytes[index])
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * Appends a code point to the text buffer.
+     *
+     * @param codePoint The code point
+     */
+    private void appendCodePoint(final int codePoint)
+    {
+      if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+      {
+        appendChar((char) codePoint);
+      } else
+      {
+        int offsetCodePoint = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        appendChar((char) ((offsetCodePoint >>> 10) + Character.MIN_HIGH_SURROGATE));
+        appendChar((char) ((offsetCodePoint & 0x3FF) + Character.MIN_LOW_SURROGATE));
+      }
+    }
+
+    /**
+     * Appends a char to the text buffer.
+     *
+     * @param ch The char
+     */
+    private void appendChar(final char ch)
+    {
+      if (textLength == text.length)
+      {
+        char[] newText = new char[textLength * 2];
+        System.arraycopy(text, 0, newText, 0, textLength);
+        text = newText;
+      }
+      text[textLength++] = ch;
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return The byte or -1 at the end of the stream
+     * @throws IOException If the stream can't be read
+     */
+    private int read() throws IOException
+    {
+      if (position == limit && !fill())
+      {
+        return -1;
+      }
+
+      return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Returns the next byte without reading it.
+     *
+     * @return The byte or -1 at the end of the stream
+     * @throws IOException If the stream can't be read
+     */
+    private int peek() throws IOException
+    {
+      if (position == limit && !fill())
+      {
+        return -1;
+      }
+
+      return buffer[position] & 0xFF;
+    }
+
+    /**
+     * Reads the next bytes from the stream to the buffer.
+     *
+     * @return False, if the end of the stream is reached
+     * @throws IOException If the stream can't be read
+     */
+    private boolean fill() throws IOException
+    {
+      offset += limit;
+      position = 0;
+      limit = 0;
+
+      int count;
+      do
+      {
+        count = is.read(buffer, 0, buffer.length);
+      } while (count == 0);
+
+      if (count < 0)
+      {
+        return false;
+      }
+      limit = count;
+
+      return true;
+    }
+
+    /**
+     * Returns true, if the byte is an XML whitespace.
+     *
+     * @param b The byte
+     * @return True, if it is a whitespace
+     */
+    private static boolean isWhitespace(final int b)
+    {
+      return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * Creates the exception of a parse error with the position.
+     *
+     * @param message The message
+     * @return The exception
+     */
+    private ParserException error(final String message)
+    {
+      return new ParserException(message + " (at byte " + (offset + position) + ")");
+    }
+  }
+}
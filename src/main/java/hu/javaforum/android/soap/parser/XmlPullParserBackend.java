@@ -0,0 +1,326 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.util.Xml;
+
+/**
+ * XmlPullParser based backend: the Android's parser, or the MXParser, when it
+ * is not available (e.g. when not running code in emulator or device).
+ *
+ * The result of the Android's parser probe is cached, and every thread keeps
+ * an idle parser instance, which is reset with the setInput method for the
+ * next document.
+ *
+ * @author sabo
+ */
+public final class XmlPullParserBackend implements ParserBackend
+{
+
+  /**
+   * The shared instance.
+   */
+  public static final XmlPullParserBackend INSTANCE = new XmlPullParserBackend();
+  /**
+   * The LOGGER instance.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(XmlPullParserBackend.class.getSimpleName());
+  /**
+   * The class name of the parser, if the Android's parser is not available.
+   */
+  private static final String FALLBACK_PARSER_CLASS = "org.xmlpull.mxp1.MXParser";
+  /**
+   * The idle parser of the thread. The parser is taken out while it is in
+   * use, so the nested parsing on the same thread creates an other instance.
+   */
+  private static final ThreadLocal<XmlPullParser> IDLE_PARSER = new ThreadLocal<XmlPullParser>();
+  /**
+   * True, if the Android's parser is available; null, until the first probe.
+   */
+  private static volatile Boolean androidParserAvailable;
+  /**
+   * The class of the fallback parser, it is loaded once.
+   */
+  private static volatile Class fallbackParserClass;
+
+  /**
+   * The private constructor, use the INSTANCE.
+   */
+  private XmlPullParserBackend()
+  {
+    super();
+  }
+
+  /**
+   * Opens a parser session on the stream.
+   *
+   * @param is The stream of the XML
+   * @param callback The callback
+   * @return The session
+   * @throws IOException If the parser can't be initialized
+   */
+  public ParserSession open(final InputStream is, final ParserCallback callback) throws IOException
+  {
+    return new PullSession(is, callback);
+  }
+
+  /**
+   * Parser factory to allow parser implementations other then Android's native
+   * Expat pull parser. The result of the Android's parser probe is cached, so
+   * the failed probe runs only once.
+   *
+   * @return An instance of XmlPullParser
+   */
+  private static XmlPullParser createParser()
+  {
+    try
+    {
+      if (!Boolean.FALSE.equals(androidParserAvailable))
+      {
+        try
+        {
+          XmlPullParser androidParser = Xml.newPullParser();
+          androidParserAvailable = Boolean.TRUE;
+          return androidParser;
+        } catch (RuntimeException except)
+        {
+          disableAndroidParser(except);
+        } catch (LinkageError except)
+        {
+          disableAndroidParser(except);
+        }
+      }
+
+      try
+      {
+        Class parserClass = fallbackParserClass;
+        if (parserClass == null)
+        {
+          parserClass = Class.forName(FALLBACK_PARSER_CLASS);
+          fallbackParserClass = parserClass;
+        }
+
+        return (XmlPullParser) parserClass.newInstance();
+      } catch (Exception ex)
+      {
+        LOGGER.error("Cannot initialize XML parser: {}", ex.toString());
+        throw new IllegalStateException("Cannot initialize XML parser", ex);
+      }
+    } finally
+    {
+    }
+  }
+
+  /**
+   * Disables the Android's parser after a failed probe.
+   *
+   * @param cause The cause of the failure
+   */
+  private static void disableAndroidParser(final Throwable cause)
+  {
+    androidParserAvailable = Boolean.FALSE;
+    LOGGER.warn("Cannot initialize Android's XML parser: {}", cause.toString());
+  }
+
+  /**
+   * Takes the idle parser of the thread, or creates a new one.
+   *
+   * @return The parser
+   * @throws XmlPullParserException XmlPullParserException
+   */
+  private static XmlPullParser acquireParser() throws XmlPullParserException
+  {
+    XmlPullParser idleParser = IDLE_PARSER.get();
+    if (idleParser != null)
+    {
+      IDLE_PARSER.set(null);
+      return idleParser;
+    }
+
+    XmlPullParser newParser = createParser();
+    newParser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+
+    return newParser;
+  }
+
+  /**
+   * Gives back the parser to the idle parser of the thread.
+   *
+   * @param parser The parser
+   */
+  private static void releaseParser(final XmlPullParser parser)
+  {
+    try
+    {
+      /**
+       * Drops the reference of the stream
+       */
+      parser.setInput(null);
+    } catch (Exception except)
+    {
+      LOGGER.debug("The parser is not reusable: {}", except.toString());
+      return;
+    }
+    IDLE_PARSER.set(parser);
+  }
+
+  /**
+   * The session of a document.
+   */
+  private static final class PullSession implements ParserSession
+  {
+
+    /**
+     * The callback.
+     */
+    private final ParserCallback callback;
+    /**
+     * The start and length holder of the getTextCharacters method.
+     */
+    private final int[] textHolder = new int[2];
+    /**
+     * The parser, it is null after the session is closed.
+     */
+    private XmlPullParser parser;
+
+    /**
+     * The constructor, it reports the first event.
+     *
+     * @param is The stream of the XML
+     * @param callback The callback
+     * @throws IOException If the parser can't be initialized
+     */
+    PullSession(final InputStream is, final ParserCallback callback) throws IOException
+    {
+      this.callback = callback;
+      boolean started = false;
+      try
+      {
+        parser = acquireParser();
+        parser.setInput(is, null);
+        int eventType = parser.getEventType();
+        processEvent(eventType);
+        started = eventType != XmlPullParser.END_DOCUMENT;
+      } catch (XmlPullParserException except)
+      {
+        throw new ParserException(except.getMessage(), except);
+      } finally
+      {
+        if (!started)
+        {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Parses the next event.
+     *
+     * @return False, if the end of the document is reached
+     * @throws IOException If the document can't be read or parsed
+     */
+    public boolean next() throws IOException
+    {
+      if (parser == null)
+      {
+        return false;
+      }
+
+      boolean more = false;
+      try
+      {
+        int eventType = parser.next();
+        processEvent(eventType);
+        more = eventType != XmlPullParser.END_DOCUMENT;
+
+        return more;
+      } catch (XmlPullParserException except)
+      {
+        throw new ParserException(except.getMessage(), except);
+      } finally
+      {
+        if (!more)
+        {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Releases the parser.
+     */
+    public void close()
+    {
+      XmlPullParser closedParser = parser;
+      if (closedParser != null)
+      {
+        parser = null;
+        releaseParser(closedParser);
+      }
+    }
+
+    /**
+     * Skips the events to the matching end tag by the depth.
+     *
+     * @throws XmlPullParserException If the document can't be parsed
+     * @throws IOException If the document can't be read
+     */
+    private void skipSubtree() throws XmlPullParserException, IOException
+    {
+      int level = 1;
+      while (level > 0)
+      {
+        int eventType = parser.next();
+        if (XmlPullParser.START_TAG == eventType)
+        {
+          level++;
+        } else if (XmlPullParser.END_TAG == eventType)
+        {
+          level--;
+        } else if (XmlPullParser.END_DOCUMENT == eventType)
+        {
+          throw new XmlPullParserException("Unexpected end of the document");
+        }
+      }
+    }
+
+    /**
+     * Reports the event to the callback.
+     *
+     * @param eventType The type of the event
+     * @throws XmlPullParserException If a skipped subtree can't be parsed
+     * @throws IOException If a skipped subtree can't be read
+     */
+    private void processEvent(final int eventType) throws XmlPullParserException, IOException
+    {
+      if (XmlPullParser.START_TAG == eventType)
+      {
+        if (callback.startTag(parser.getName()) == ParserCallback.SKIP_SUBTREE)
+        {
+          skipSubtree();
+          callback.endTag(parser.getName());
+        }
+      } else if (XmlPullParser.TEXT == eventType)
+      {
+        char[] ch = parser.getTextCharacters(textHolder);
+        if (ch != null)
+        {
+          callback.text(ch, textHolder[0], textHolder[1]);
+        }
+      } else if (XmlPullParser.END_TAG == eventType)
+      {
+        callback.endTag(parser.getName());
+      }
+    }
+  }
+}
@@ -0,0 +1,9 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ *
+ * Android SOAP XML parser backends.
+ *
+ * @author sabo
+ */
+package hu.javaforum.android.soap.parser;
@@ -46,7 +46,7 @@ public final class HttpsClientFactory {
 	}
 
 	/**
-	 * Creates a DefaultHttpClient instance.
+	 * Creates a DefaultHttpClient instance with the default socket factories.
 	 * 
 	 * @param params
 	 *            The HttpParams
@@ -54,7 +54,7 @@ public final class HttpsClientFactory {
 	 */
 	public static HttpClient createDefaultInstance(final HttpParams params) {
 		try {
-			return new DefaultHttpClient(params);
+			return createClient(SSLSocketFactory.getSocketFactory(), params);
 		} finally {
 		}
 	}
@@ -109,7 +109,8 @@ public final class HttpsClientFactory {
 	}
 
 	/**
-	 * Create client with the specified SSLSocketFactory.
+	 * Create client with the specified SSLSocketFactory. The client uses a thread safe connection manager, so it is shareable between the threads and it
+	 * keeps alive the connections between the requests; the pool size comes from the ConnManagerParams of the HttpParams.
 	 * 
 	 * @param sslSocketFactory
 	 *            The factory
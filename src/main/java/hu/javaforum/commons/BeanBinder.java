@@ -0,0 +1,66 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+/**
+ * Creates a bean and accesses its properties without reflection. The
+ * implementations are generated by the annotation processor (see
+ * GenerateBinding); the properties are addressed by index, the index of a
+ * field is resolved once, when the binding table of the class is built.
+ *
+ * @author sabo
+ */
+public interface BeanBinder
+{
+
+  /**
+   * Creates a new instance of the bean.
+   *
+   * @return The instance
+   */
+  Object newInstance();
+
+  /**
+   * Returns the index of the field.
+   *
+   * @param fieldName The name of the field
+   * @return The index; -1, if the field is not bound
+   */
+  int indexOf(String fieldName);
+
+  /**
+   * Returns true, if the field has getter method.
+   *
+   * @param index The index of the field
+   * @return True, if the field is readable
+   */
+  boolean isReadable(int index);
+
+  /**
+   * Returns true, if the field has setter method.
+   *
+   * @param index The index of the field
+   * @return True, if the field is writable
+   */
+  boolean isWritable(int index);
+
+  /**
+   * Returns the value of the field.
+   *
+   * @param bean The bean
+   * @param index The index of the field
+   * @return The value
+   */
+  Object get(Object bean, int index);
+
+  /**
+   * Sets the value of the field.
+   *
+   * @param bean The bean
+   * @param index The index of the field
+   * @param value The value, it has to be an instance of the field type
+   */
+  void set(Object bean, int index, Object value);
+}
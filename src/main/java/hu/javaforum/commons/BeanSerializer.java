@@ -0,0 +1,32 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Serializes a bean class into XML without reflection. The implementations
+ * are generated by the annotation processor (see GenerateBinding), and they
+ * produce the same XML as the reflection based CommonBean.dumpXml method.
+ *
+ * @author sabo
+ */
+public interface BeanSerializer
+{
+
+  /**
+   * Dumps the bean in XML format.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param object The bean
+   * @param fieldName The name of the field
+   * @param level The level of the recursion, the enclosing element is
+   * suppressed, when it is negative
+   * @throws IOException When IO error occurred
+   */
+  void dumpXml(Writer writer, char[] nsPrefix, Object object, char[] fieldName, int level) throws IOException;
+}
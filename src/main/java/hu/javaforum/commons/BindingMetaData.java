@@ -0,0 +1,142 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class holds the binding table of a bean class: it maps the XML element
+ * names to the resolved field bindings. The table is built once per class and
+ * cached, so the name resolution doesn't need reflection lookups nor
+ * NoSuchFieldException and NoSuchMethodException as control flow.
+ *
+ * @author sabo
+ */
+public final class BindingMetaData
+{
+
+  /**
+   * The name of the wrapped result field.
+   */
+  private static final String RETURN_NAME = "return";
+  /**
+   * The cached instances by class.
+   */
+  private static final ConcurrentMap<Class, BindingMetaData> CACHE = new ConcurrentHashMap<Class, BindingMetaData>();
+  /**
+   * The bindings by XML name.
+   */
+  private final Map<String, FieldBinding> bindings;
+
+  /**
+   * Builds the binding table of the class, the fields of the class hides the
+   * same named fields of the superclasses. The fields are accessed through the
+   * generated binder of the class, if it is exists.
+   *
+   * @param objectClass The class
+   */
+  private BindingMetaData(final Class objectClass)
+  {
+    BeanBinder binder = GeneratedCode.getBinder(objectClass);
+    Map<String, FieldBinding> internalBindings = new HashMap<String, FieldBinding>();
+    for (Class c = objectClass; c != null && !Object.class.equals(c); c = c.getSuperclass())
+    {
+      for (Field field : c.getDeclaredFields())
+      {
+        if ((field.getModifiers() & Modifier.STATIC) != 0)
+        {
+          continue;
+        }
+
+        addBinding(internalBindings, objectClass, binder, field.getName(), field);
+        if (("_" + RETURN_NAME).equals(field.getName()))
+        {
+          addBinding(internalBindings, objectClass, binder, RETURN_NAME, field);
+        }
+      }
+    }
+
+    this.bindings = Collections.unmodifiableMap(internalBindings);
+  }
+
+  /**
+   * Adds a binding to the table, if the name isn't exists yet.
+   *
+   * @param internalBindings The table
+   * @param objectClass The class of the bean
+   * @param binder The generated binder of the class, it can be null
+   * @param name The XML name of the field
+   * @param field The field
+   */
+  private static void addBinding(final Map<String, FieldBinding> internalBindings,
+          final Class objectClass, final BeanBinder binder, final String name, final Field field)
+  {
+    if (!internalBindings.containsKey(name))
+    {
+      internalBindings.put(name, new FieldBinding(objectClass, name, field, binder));
+    }
+  }
+
+  /**
+   * Returns the cached binding table of the class, it builds the table on the
+   * first call.
+   *
+   * @param objectClass The class
+   * @return The binding table
+   */
+  public static BindingMetaData getInstance(final Class objectClass)
+  {
+    BindingMetaData bmd = CACHE.get(objectClass);
+    if (bmd == null)
+    {
+      bmd = new BindingMetaData(objectClass);
+      BindingMetaData cached = CACHE.putIfAbsent(objectClass, bmd);
+      if (cached != null)
+      {
+        bmd = cached;
+      }
+    }
+
+    return bmd;
+  }
+
+  /**
+   * Drops the cached binding tables, they are built again on the next use
+   * (e.g. with the newly registered converters).
+   */
+  static void clearCache()
+  {
+    CACHE.clear();
+  }
+
+  /**
+   * Returns the binding of the XML element.
+   *
+   * @param objectClass The class of the bean
+   * @param name The XML name of the field
+   * @return The binding; null, if the class has no such field
+   */
+  public static FieldBinding getBinding(final Class objectClass, final String name)
+  {
+    return getInstance(objectClass).getBinding(name);
+  }
+
+  /**
+   * Returns the binding of the XML element.
+   *
+   * @param name The XML name of the field
+   * @return The binding; null, if the class has no such field
+   */
+  public FieldBinding getBinding(final String name)
+  {
+    return bindings.get(name);
+  }
+}
@@ -4,9 +4,9 @@
  */
 package hu.javaforum.commons;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -46,6 +46,10 @@ public abstract class CommonBean extends CommonBeanHelper
    * The " of " constant.
    */
   private static final String CONSTANT_OF = " of ";
+  /**
+   * The maximum length of the printed date and time.
+   */
+  private static final int DATE_TIME_LENGTH = 32;
 
   /**
    * This method prints recursive the bean fields in XML format. This XML is
@@ -70,11 +74,35 @@ public abstract class CommonBean extends CommonBeanHelper
   public static StringBuilder dumpXml(final Object object,
           final String firstName, final String nsPrefixName)
   {
-    final StringBuilder sb = new StringBuilder();
+    final StringBuilderWriter writer = new StringBuilderWriter(new StringBuilder());
+
+    try
+    {
+      dumpXml(writer, object, firstName, nsPrefixName);
+    } catch (IOException except)
+    {
+      throw new IllegalStateException("The StringBuilder cannot throw IOException", except);
+    }
+
+    return writer.getBuilder();
+  }
 
+  /**
+   * Entry point of the reflection based content dump method, the XML is
+   * written straight to the writer, without building it in the memory.
+   *
+   * @param writer The writer
+   * @param object The object
+   * @param firstName The first enclosing element name
+   * @param nsPrefixName The namespace prefix
+   * @throws IOException When IO error occurred
+   */
+  public static void dumpXml(final Writer writer, final Object object,
+          final String firstName, final String nsPrefixName) throws IOException
+  {
     if (object == null)
     {
-      return sb;
+      return;
     }
 
     /**
@@ -86,44 +114,50 @@ public abstract class CommonBean extends CommonBeanHelper
     /**
      * Starts a recursive dump... :)
      */
-    dumpXml(sb, NameHelper.createNsPrefix(nsPrefixName), object,
+    dumpXml(writer, NameHelper.createNsPrefix(nsPrefixName), object,
             NameHelper.createFirstName(firstName, object), startLevel);
-
-    return sb;
   }
 
   /**
    * Reflection based content dump method.
    *
-   * @param sb The StringBuilder instance
+   * @param writer The writer
    * @param nsPrefix The namespace prefix
    * @param object The object
    * @param fieldName The name of the field
    * @param level The level of the recursion
+   * @throws IOException When IO error occurred
    */
-  protected static void dumpXml(final StringBuilder sb,
+  protected static void dumpXml(final Writer writer,
           final char[] nsPrefix, final Object object,
-          final char[] fieldName, final int level)
+          final char[] fieldName, final int level) throws IOException
   {
+    /**
+     * Uses the generated serializer of the class, if it is exists.
+     */
+    final BeanSerializer serializer = GeneratedCode.getSerializer(object.getClass());
+    if (serializer != null)
+    {
+      serializer.dumpXml(writer, nsPrefix, object, fieldName, level);
+      return;
+    }
+
     /**
      * Processes the usable fields in the object.
      */
-    final FieldsMetaData fmd = new FieldsMetaData(object);
+    final FieldsMetaData fmd = FieldsMetaData.getInstance(object.getClass());
 
     if (level >= 0)
     {
-      sb.append(getIndentString(level)).append("<").append(nsPrefix);
-      sb.append(fieldName).append(">");
-      sb.append("\n");
+      appendStartTag(writer, nsPrefix, fieldName, level);
     }
 
     /**
      * Iterate through the fields.
      */
-    for (int count = 0; count < fmd.getFields().length; count++)
+    for (int count = 0; count < fmd.size(); count++)
     {
-      final Field field = fmd.getFields()[count];
-      Object value = getFieldValue(field, object);
+      Object value = fmd.getFieldValue(count, object);
 
       if (value == null)
       {
@@ -132,143 +166,247 @@ public abstract class CommonBean extends CommonBeanHelper
 
       if (object instanceof CommonBean)
       {
-        if (!fmd.getPrintFields()[count])
+        if (!fmd.isPrintField(count))
         {
           continue;
         }
-        if (fmd.getHiddenFields()[count])
+        if (fmd.isHiddenField(count))
         {
           value = "***hidden***";
         }
       }
 
-      appendSubClass(sb, nsPrefix, value, fmd, count, ReflectionHelper.getFieldName(field),
-              level + 1);
+      appendSubClass(writer, nsPrefix, value, fmd, count, fmd.getFieldName(count), level + 1);
     }
 
     if (level >= 0)
     {
-      sb.append(getIndentString(level)).append("</").append(nsPrefix);
-      sb.append(fieldName).append(">");
-      sb.append("\n");
+      appendEndTag(writer, nsPrefix, fieldName, level);
     }
   }
 
   /**
-   * Append the XML content of sub-class to the StringBuilder instance.
+   * Appends the indented start tag of the bean to the writer.
    *
-   * @param sb The StringBuilder instance
+   * @param writer The writer
    * @param nsPrefix The namespace prefix
-   * @param value The sub-class instance
-   * @param fmd FieldMetaData instance of the parent class
-   * @param metaDataIndex The current index of FieldsMetaData instance
+   * @param fieldName The name of the field
+   * @param level The level of the recursion
+   * @throws IOException When IO error occurred
+   */
+  public static void appendStartTag(final Writer writer,
+          final char[] nsPrefix, final char[] fieldName, final int level) throws IOException
+  {
+    writer.write(getIndentString(level));
+    writer.write("<");
+    writer.write(nsPrefix);
+    writer.write(fieldName);
+    writer.write(">");
+    writer.write("\n");
+  }
+
+  /**
+   * Appends the indented end tag of the bean to the writer.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param fieldName The name of the field
+   * @param level The level of the recursion
+   * @throws IOException When IO error occurred
+   */
+  public static void appendEndTag(final Writer writer,
+          final char[] nsPrefix, final char[] fieldName, final int level) throws IOException
+  {
+    writer.write(getIndentString(level));
+    writer.write("</");
+    writer.write(nsPrefix);
+    writer.write(fieldName);
+    writer.write(">");
+    writer.write("\n");
+  }
+
+  /**
+   * Append the XML content of a field value to the writer.
+   * It is used by the generated serializers.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param value The value of the field, not null
+   * @param maximumItemDump The maximum element of the lists or arrays
+   * @param maximumHexDump The maximum elements of the byte arrays
    * @param fieldName The name of the current field
    * @param level The level of the recursion
+   * @throws IOException When IO error occurred
    */
-  protected static void appendSubClass(final StringBuilder sb,
+  public static void appendField(final Writer writer,
           final char[] nsPrefix, final Object value,
-          final FieldsMetaData fmd, final int metaDataIndex,
-          final char[] fieldName, final int level)
+          final int maximumItemDump, final int maximumHexDump,
+          final char[] fieldName, final int level) throws IOException
   {
     if (value instanceof Object[])
     {
-      appendObjectArray(sb, nsPrefix, value, fmd, metaDataIndex, fieldName, level);
+      appendObjectArray(writer, nsPrefix, value, maximumItemDump, fieldName, level);
     } else if (value.getClass().isArray())
     {
-      appendPrimitiveArray(sb, nsPrefix, value, fmd, metaDataIndex, fieldName, level);
+      appendPrimitiveArray(writer, nsPrefix, value, maximumItemDump, maximumHexDump, fieldName, level);
     } else if (value instanceof Collection)
     {
-      appendCollection(sb, nsPrefix, value, fmd, metaDataIndex, fieldName, level);
+      appendCollection(writer, nsPrefix, value, maximumItemDump, fieldName, level);
     } else
     {
-      appendValue(sb, nsPrefix, value, fieldName, level);
+      appendValue(writer, nsPrefix, value, fieldName, level);
     }
   }
 
+  /**
+   * Append the XML content of sub-class to the writer.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param value The sub-class instance
+   * @param fmd FieldMetaData instance of the parent class
+   * @param metaDataIndex The current index of FieldsMetaData instance
+   * @param fieldName The name of the current field
+   * @param level The level of the recursion
+   * @throws IOException When IO error occurred
+   */
+  protected static void appendSubClass(final Writer writer,
+          final char[] nsPrefix, final Object value,
+          final FieldsMetaData fmd, final int metaDataIndex,
+          final char[] fieldName, final int level) throws IOException
+  {
+    appendField(writer, nsPrefix, value, fmd.getMaximumItemDump(metaDataIndex),
+            fmd.getMaximumHexDump(metaDataIndex), fieldName, level);
+  }
+
   /**
    * Dumps an Object array.
    *
-   * @param sb The StringBuilder instance
+   * @param writer The writer
    * @param nsPrefix The namespace prefix
    * @param value The sub-class instance
    * @param fmd The FieldMetaData instance of the parent class
    * @param metaDataIndex The current index of FieldsMetaData instance
    * @param fieldName THe name of the current field
    * @param level The level of the recursion
+   * @throws IOException When IO error occurred
    */
-  protected static void appendObjectArray(final StringBuilder sb,
+  protected static void appendObjectArray(final Writer writer,
           final char[] nsPrefix, final Object value,
           final FieldsMetaData fmd, final int metaDataIndex,
-          final char[] fieldName, final int level)
+          final char[] fieldName, final int level) throws IOException
+  {
+    appendObjectArray(writer, nsPrefix, value, fmd.getMaximumItemDump(metaDataIndex), fieldName, level);
+  }
+
+  /**
+   * Dumps an Object array.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param value The sub-class instance
+   * @param maximumItemDump The maximum element of the array
+   * @param fieldName THe name of the current field
+   * @param level The level of the recursion
+   * @throws IOException When IO error occurred
+   */
+  private static void appendObjectArray(final Writer writer,
+          final char[] nsPrefix, final Object value,
+          final int maximumItemDump,
+          final char[] fieldName, final int level) throws IOException
   {
     Object[] array = (Object[]) value;
     for (int arrayCount = 0; arrayCount < array.length; arrayCount++)
     {
-      if (arrayCount >= fmd.getMaximumItemDumpFields()[metaDataIndex])
+      if (arrayCount >= maximumItemDump)
       {
-        sb.append(getIndentString(level)).append("<!--").append(nsPrefix);
-        sb.append(fieldName).append(">");
-        sb.append("LIMIT REACHED (").append(arrayCount).append(CONSTANT_OF).append(array.length).append(")");
-        sb.append("</").append(nsPrefix);
-        sb.append(fieldName).append("-->").append("\n");
+        appendLimitReached(writer, nsPrefix, fieldName, level, arrayCount, array.length);
         break;
       }
-      appendValue(sb, nsPrefix, array[arrayCount], fieldName, level);
+      appendValue(writer, nsPrefix, array[arrayCount], fieldName, level);
     }
   }
 
   /**
    * Dumps a primitive array.
    *
-   * @param sb The StringBuilder instance
+   * @param writer The writer
    * @param nsPrefix The namespace prefix
    * @param value The sub-class instance
    * @param fmd The FieldMetaData instance of the parent class
    * @param metaDataIndex The current index of FieldsMetaData instance
    * @param fieldName THe name of the current field
    * @param level The level of the recursion
+   * @throws IOException When IO error occurred
    */
-  protected static void appendPrimitiveArray(final StringBuilder sb,
+  protected static void appendPrimitiveArray(final Writer writer,
           final char[] nsPrefix, final Object value,
           final FieldsMetaData fmd, final int metaDataIndex,
-          final char[] fieldName, final int level)
+          final char[] fieldName, final int level) throws IOException
+  {
+    appendPrimitiveArray(writer, nsPrefix, value, fmd.getMaximumItemDump(metaDataIndex),
+            fmd.getMaximumHexDump(metaDataIndex), fieldName, level);
+  }
+
+  /**
+   * Dumps a primitive array.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param value The sub-class instance
+   * @param maximumItemDump The maximum element of the arrays
+   * @param maximumHexDump The maximum elements of the byte arrays
+   * @param fieldName THe name of the current field
+   * @param level The level of the recursion
+   * @throws IOException When IO error occurred
+   */
+  private static void appendPrimitiveArray(final Writer writer,
+          final char[] nsPrefix, final Object value,
+          final int maximumItemDump, final int maximumHexDump,
+          final char[] fieldName, final int level) throws IOException
   {
     int arrayLength = Array.getLength(value);
     if (byte.class.equals(value.getClass().getComponentType()))
     {
-      sb.append(getIndentString(level)).append("<").append(nsPrefix);
-      sb.append(fieldName).append("><!-- HEX VALUE -->");
+      writer.write(getIndentString(level));
+      writer.write("<");
+      writer.write(nsPrefix);
+      writer.write(fieldName);
+      writer.write("><!-- HEX VALUE -->");
       byte[] byteArray = (byte[]) value;
       for (int arrayCount = 0; arrayCount < arrayLength; arrayCount++)
       {
-        if (arrayCount == fmd.getMaximumHexDumpFields()[metaDataIndex])
+        if (arrayCount == maximumHexDump)
         {
-          sb.append("<!--LIMIT REACHED (").append(arrayCount).append(CONSTANT_OF).append(arrayLength).append(")-->");
+          writer.write("<!--LIMIT REACHED (");
+          writer.write(String.valueOf(arrayCount));
+          writer.write(CONSTANT_OF);
+          writer.write(String.valueOf(arrayLength));
+          writer.write(")-->");
           break;
         }
         if (byteArray[arrayCount] >= 0 && byteArray[arrayCount] < HEX_BASE)
         {
-          sb.append('0');
+          writer.write('0');
         }
         int unsignedValue = byteArray[arrayCount] < 0 ? byteArray[arrayCount] + BYTE_BASE : byteArray[arrayCount];
-        sb.append(Integer.toHexString(unsignedValue));
+        writer.write(Integer.toHexString(unsignedValue));
       }
-      sb.append("</").append(nsPrefix);
-      sb.append(fieldName).append(">").append("\n");
+      writer.write("</");
+      writer.write(nsPrefix);
+      writer.write(fieldName);
+      writer.write(">");
+      writer.write("\n");
     } else
     {
       for (int arrayCount = 0; arrayCount < arrayLength; arrayCount++)
       {
-        if (arrayCount == fmd.getMaximumItemDumpFields()[metaDataIndex])
+        if (arrayCount == maximumItemDump)
         {
-          sb.append(getIndentString(level)).append("<!--").append(nsPrefix);
-          sb.append(fieldName).append(">");
-          sb.append("LIMIT REACHED (").append(arrayCount).append(CONSTANT_OF).append(arrayLength).append(")");
-          sb.append("</").append(nsPrefix);
-          sb.append(fieldName).append("-->").append("\n");
+          appendLimitReached(writer, nsPrefix, fieldName, level, arrayCount, arrayLength);
           break;
         }
-        appendValue(sb, nsPrefix, Array.get(value, arrayCount), fieldName, level);
+        appendValue(writer, nsPrefix, Array.get(value, arrayCount), fieldName, level);
       }
     }
   }
@@ -276,48 +414,65 @@ public abstract class CommonBean extends CommonBeanHelper
   /**
    * Dumps a collection.
    *
-   * @param sb The StringBuilder instance
+   * @param writer The writer
    * @param nsPrefix The namespace prefix
    * @param value The sub-class instance
    * @param fmd The FieldMetaData instance of the parent class
    * @param metaDataIndex The current index of FieldsMetaData instance
    * @param fieldName THe name of the current field
    * @param level The level of the recursion
+   * @throws IOException When IO error occurred
    */
-  protected static void appendCollection(final StringBuilder sb,
+  protected static void appendCollection(final Writer writer,
           final char[] nsPrefix, final Object value,
           final FieldsMetaData fmd, final int metaDataIndex,
-          final char[] fieldName, final int level)
+          final char[] fieldName, final int level) throws IOException
+  {
+    appendCollection(writer, nsPrefix, value, fmd.getMaximumItemDump(metaDataIndex), fieldName, level);
+  }
+
+  /**
+   * Dumps a collection.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param value The sub-class instance
+   * @param maximumItemDump The maximum element of the collection
+   * @param fieldName THe name of the current field
+   * @param level The level of the recursion
+   * @throws IOException When IO error occurred
+   */
+  private static void appendCollection(final Writer writer,
+          final char[] nsPrefix, final Object value,
+          final int maximumItemDump,
+          final char[] fieldName, final int level) throws IOException
   {
     Collection collection = (Collection) value;
     Iterator collectionIterator = collection.iterator();
     for (int collectionCount = 0; collectionIterator.hasNext(); collectionCount++)
     {
-      if (collectionCount == fmd.getMaximumItemDumpFields()[metaDataIndex])
+      if (collectionCount == maximumItemDump)
       {
-        sb.append(getIndentString(level)).append("<!--").append(nsPrefix);
-        sb.append(fieldName).append(">");
-        sb.append("LIMIT REACHED (").append(collectionCount).append(CONSTANT_OF).append(collection.size()).append(")");
-        sb.append("</").append(nsPrefix);
-        sb.append(fieldName).append("-->").append("\n");
+        appendLimitReached(writer, nsPrefix, fieldName, level, collectionCount, collection.size());
         break;
       }
-      appendValue(sb, nsPrefix, collectionIterator.next(), fieldName, level);
+      appendValue(writer, nsPrefix, collectionIterator.next(), fieldName, level);
     }
   }
 
   /**
-   * Append value to the StringBuilder instance.
+   * Append value to the writer.
    *
-   * @param sb The StringBuilder instance
+   * @param writer The writer
    * @param nsPrefix The namespace prefix
    * @param itemValue The item value
    * @param fieldName The name of the field
    * @param level The level of recursion
+   * @throws IOException When IO error occurred
    */
-  protected static void appendValue(final StringBuilder sb,
+  protected static void appendValue(final Writer writer,
           final char[] nsPrefix, final Object itemValue,
-          final char[] fieldName, final int level)
+          final char[] fieldName, final int level) throws IOException
   {
     if (itemValue == null)
     {
@@ -327,25 +482,67 @@ public abstract class CommonBean extends CommonBeanHelper
     Object value = itemValue;
     if (value.getClass().getName().startsWith("java.") || value.getClass().isEnum())
     {
-      sb.append(getIndentString(level));
-      sb.append("<").append(nsPrefix);
-      sb.append(fieldName).append(">");
+      writer.write(getIndentString(level));
+      writer.write("<");
+      writer.write(nsPrefix);
+      writer.write(fieldName);
+      writer.write(">");
 
       if (value instanceof Date)
       {
-        value = ((SimpleDateFormat) DATETIME_FORMAT.get()).format((Date) value);
+        StringBuilder sb = new StringBuilder(DATE_TIME_LENGTH);
+        DateTimeHelper.appendDateTime(sb, (Date) value);
+        writer.append(sb);
       } else if (value instanceof Calendar)
       {
-        value = ((SimpleDateFormat) DATETIME_TIMEZONE_FORMAT.get()).format(((Calendar) value).getTime());
+        StringBuilder sb = new StringBuilder(DATE_TIME_LENGTH);
+        DateTimeHelper.appendDateTimeWithZone(sb, ((Calendar) value).getTime());
+        writer.append(sb);
+      } else
+      {
+        writer.write(quoteXMLValue(value));
       }
-      sb.append(quoteXMLValue(value));
 
-      sb.append("</").append(nsPrefix);
-      sb.append(fieldName).append(">");
-      sb.append("\n");
+      writer.write("</");
+      writer.write(nsPrefix);
+      writer.write(fieldName);
+      writer.write(">");
+      writer.write("\n");
     } else
     {
-      dumpXml(sb, nsPrefix, value, fieldName, level);
+      dumpXml(writer, nsPrefix, value, fieldName, level);
     }
   }
+
+  /**
+   * Appends the comment of the truncated lists or arrays.
+   *
+   * @param writer The writer
+   * @param nsPrefix The namespace prefix
+   * @param fieldName The name of the field
+   * @param level The level of the recursion
+   * @param count The number of the dumped items
+   * @param total The number of all items
+   * @throws IOException When IO error occurred
+   */
+  private static void appendLimitReached(final Writer writer,
+          final char[] nsPrefix, final char[] fieldName, final int level,
+          final int count, final int total) throws IOException
+  {
+    writer.write(getIndentString(level));
+    writer.write("<!--");
+    writer.write(nsPrefix);
+    writer.write(fieldName);
+    writer.write(">");
+    writer.write("LIMIT REACHED (");
+    writer.write(String.valueOf(count));
+    writer.write(CONSTANT_OF);
+    writer.write(String.valueOf(total));
+    writer.write(")");
+    writer.write("</");
+    writer.write(nsPrefix);
+    writer.write(fieldName);
+    writer.write("-->");
+    writer.write("\n");
+  }
 }
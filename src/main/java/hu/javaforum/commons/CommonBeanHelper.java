@@ -38,7 +38,7 @@ public abstract class CommonBeanHelper implements Serializable
   private static final int ASCII_LIMIT = 192;
   /**
    * Prints the date and time in the local thread, because the SimpleDateFormat is
-   * not thread safe.
+   * not thread safe. The CommonBean uses the DateTimeHelper instead of it.
    */
   protected static final ThreadLocal DATETIME_FORMAT = new ThreadLocal()
   {
@@ -51,7 +51,8 @@ public abstract class CommonBeanHelper implements Serializable
   };
   /**
    * Prints the date and time with timw zone in the local thread, because the
-   * SimpleDateFormat is not thread safe.
+   * SimpleDateFormat is not thread safe. The CommonBean uses the
+   * DateTimeHelper instead of it.
    */
   protected static final ThreadLocal DATETIME_TIMEZONE_FORMAT = new ThreadLocal()
   {
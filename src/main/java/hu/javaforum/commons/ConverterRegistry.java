@@ -0,0 +1,305 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * The registry of the value converters by target class. The converter of a
+ * field is resolved once, when its binding is built, so the custom converters
+ * should be registered before the first parsing; the registration drops the
+ * already built bindings.
+ *
+ * The built-in converters handle the primitives and their wrappers, String,
+ * BigDecimal, BigInteger, byte[] (Base64), Date, Calendar, UUID and the
+ * enums. Other types (e.g. the java.time classes on the server JVMs) can be
+ * registered by the application:
+ *
+ * ConverterRegistry.register(LocalDate.class, new ValueConverter() { ... });
+ *
+ * @author sabo
+ */
+public final class ConverterRegistry
+{
+
+  /**
+   * The converters by target class.
+   */
+  private static final ConcurrentMap<Class, ValueConverter> CONVERTERS
+          = new ConcurrentHashMap<Class, ValueConverter>();
+
+  static
+  {
+    registerBuiltIn(BuiltInConverter.STRING, String.class, null);
+    registerBuiltIn(BuiltInConverter.BOOLEAN, Boolean.class, boolean.class);
+    registerBuiltIn(BuiltInConverter.BYTE, Byte.class, byte.class);
+    registerBuiltIn(BuiltInConverter.SHORT, Short.class, short.class);
+    registerBuiltIn(BuiltInConverter.INT, Integer.class, int.class);
+    registerBuiltIn(BuiltInConverter.LONG, Long.class, long.class);
+    registerBuiltIn(BuiltInConverter.FLOAT, Float.class, float.class);
+    registerBuiltIn(BuiltInConverter.DOUBLE, Double.class, double.class);
+    registerBuiltIn(BuiltInConverter.BIG_DECIMAL, BigDecimal.class, null);
+    registerBuiltIn(BuiltInConverter.BIG_INTEGER, BigInteger.class, null);
+    registerBuiltIn(BuiltInConverter.BASE64, byte[].class, null);
+    registerBuiltIn(BuiltInConverter.DATE, Date.class, null);
+    registerBuiltIn(BuiltInConverter.CALENDAR, Calendar.class, null);
+    registerBuiltIn(BuiltInConverter.UNIQUE_ID, UUID.class, null);
+  }
+
+  /**
+   * Private constructor, because all methods are static.
+   */
+  private ConverterRegistry()
+  {
+    super();
+  }
+
+  /**
+   * Registers a built-in converter.
+   *
+   * @param kind The kind of the converter
+   * @param type The target class
+   * @param primitiveType The primitive pair of the target class, it can be null
+   */
+  private static void registerBuiltIn(final int kind, final Class type, final Class primitiveType)
+  {
+    ValueConverter converter = new BuiltInConverter(kind);
+    CONVERTERS.put(type, converter);
+    if (primitiveType != null)
+    {
+      CONVERTERS.put(primitiveType, converter);
+    }
+  }
+
+  /**
+   * Registers (or replaces) the converter of the target class. The already
+   * built field bindings are dropped, so they are resolved again with the new
+   * converter.
+   *
+   * @param type The target class
+   * @param converter The converter
+   */
+  public static void register(final Class type, final ValueConverter converter)
+  {
+    if (type == null)
+    {
+      throw new IllegalArgumentException("The type is null");
+    }
+    if (converter == null)
+    {
+      throw new IllegalArgumentException("The converter is null");
+    }
+
+    CONVERTERS.put(type, converter);
+    BindingMetaData.clearCache();
+  }
+
+  /**
+   * Returns the converter of the target class. The converters of the enums
+   * are created on demand.
+   *
+   * @param type The target class
+   * @return The converter, or null if the class isn't supported
+   */
+  public static ValueConverter getConverter(final Class type)
+  {
+    ValueConverter converter = CONVERTERS.get(type);
+    if (converter == null && type.isEnum())
+    {
+      converter = new EnumConverter(type);
+      ValueConverter registered = CONVERTERS.putIfAbsent(type, converter);
+      if (registered != null)
+      {
+        converter = registered;
+      }
+    }
+
+    return converter;
+  }
+
+  /**
+   * The converter of the built-in types.
+   */
+  private static final class BuiltInConverter implements ValueConverter
+  {
+
+    /**
+     * String.
+     */
+    static final int STRING = 0;
+    /**
+     * boolean and Boolean.
+     */
+    static final int BOOLEAN = 1;
+    /**
+     * byte and Byte.
+     */
+    static final int BYTE = 2;
+    /**
+     * short and Short.
+     */
+    static final int SHORT = 3;
+    /**
+     * int and Integer.
+     */
+    static final int INT = 4;
+    /**
+     * long and Long.
+     */
+    static final int LONG = 5;
+    /**
+     * float and Float.
+     */
+    static final int FLOAT = 6;
+    /**
+     * double and Double.
+     */
+    static final int DOUBLE = 7;
+    /**
+     * BigDecimal.
+     */
+    static final int BIG_DECIMAL = 8;
+    /**
+     * BigInteger.
+     */
+    static final int BIG_INTEGER = 9;
+    /**
+     * byte[], Base64 encoded.
+     */
+    static final int BASE64 = 10;
+    /**
+     * Date.
+     */
+    static final int DATE = 11;
+    /**
+     * Calendar.
+     */
+    static final int CALENDAR = 12;
+    /**
+     * UUID.
+     */
+    static final int UNIQUE_ID = 13;
+    /**
+     * The kind of the converter.
+     */
+    private final int kind;
+
+    /**
+     * Creates the converter.
+     *
+     * @param kind The kind of the converter
+     */
+    BuiltInConverter(final int kind)
+    {
+      this.kind = kind;
+    }
+
+    /**
+     * Converts the text to an instance of the target class.
+     *
+     * @param text The text
+     * @return The converted instance
+     * @throws ParseException If the date isn't parseable
+     */
+    public Object convert(final String text) throws ParseException
+    {
+      switch (kind)
+      {
+        case STRING:
+          return text;
+        case BOOLEAN:
+          return Boolean.valueOf(Boolean.parseBoolean(text));
+        case BYTE:
+          return Byte.valueOf(Byte.parseByte(text));
+        case SHORT:
+          return Short.valueOf(Short.parseShort(text));
+        case INT:
+          return Integer.valueOf(Integer.parseInt(text));
+        case LONG:
+          return Long.valueOf(Long.parseLong(text));
+        case FLOAT:
+          return Float.valueOf(Float.parseFloat(text));
+        case DOUBLE:
+          return Double.valueOf(Double.parseDouble(text));
+        case BIG_DECIMAL:
+          return new BigDecimal(text);
+        case BIG_INTEGER:
+          return new BigInteger(text);
+        case BASE64:
+          return decodeBase64(text);
+        case DATE:
+          return DateTimeHelper.parseDateTime(text);
+        case CALENDAR:
+          Calendar cal = Calendar.getInstance();
+          cal.setTime(DateTimeHelper.parseDateTime(text));
+          return cal;
+        case UNIQUE_ID:
+          return UUID.fromString(text);
+        default:
+          throw new IllegalStateException("Unknown converter: " + kind);
+      }
+    }
+
+    /**
+     * Decodes the Base64 text.
+     *
+     * @param text The text
+     * @return The decoded bytes
+     */
+    private static byte[] decodeBase64(final String text)
+    {
+      try
+      {
+        return Base64.decodeBase64(text.getBytes("UTF-8"));
+      } catch (UnsupportedEncodingException except)
+      {
+        throw new IllegalStateException(except.toString());
+      }
+    }
+  }
+
+  /**
+   * The converter of an enum class, it uses the constant names.
+   */
+  private static final class EnumConverter implements ValueConverter
+  {
+
+    /**
+     * The enum class.
+     */
+    private final Class<Enum> type;
+
+    /**
+     * Creates the converter.
+     *
+     * @param type The enum class
+     */
+    EnumConverter(final Class type)
+    {
+      this.type = type;
+    }
+
+    /**
+     * Returns the constant of the name.
+     *
+     * @param text The name of the constant
+     * @return The constant
+     */
+    public Object convert(final String text)
+    {
+      return Enum.valueOf(type, text);
+    }
+  }
+}
@@ -0,0 +1,505 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+/**
+ * Helper class for the xsd:dateTime and xsd:date values. The parser and the
+ * writer are hand written, they don't use regular expressions nor
+ * SimpleDateFormat instances, and they don't allocate anything except the
+ * result.
+ *
+ * Supported shapes:
+ * - yyyy-MM-dd'T'HH:mm:ss[.fraction][zone]
+ * - yyyy-MM-dd'T'HH:mm[zone]
+ * - yyyy-MM-dd HH:mm:ss[.fraction][zone]
+ * - yyyy-MM-dd HH:mm[zone]
+ * - yyyy-MM-dd[zone]
+ * where the zone is 'Z', +hh:mm, +hhmm or +hh (or the same with '-'), or the
+ * general time zone of the SimpleDateFormat: GMT or UTC, optionally followed
+ * by +h:mm or +hh:mm (e.g. GMT+01:00). The values without zone are in the
+ * default time zone of the JVM.
+ *
+ * @author sabo
+ */
+public final class DateTimeHelper
+{
+
+  /**
+   * Milliseconds in a second.
+   */
+  private static final long MILLIS_PER_SECOND = 1000L;
+  /**
+   * Milliseconds in a minute.
+   */
+  private static final long MILLIS_PER_MINUTE = 60L * MILLIS_PER_SECOND;
+  /**
+   * Milliseconds in an hour.
+   */
+  private static final long MILLIS_PER_HOUR = 60L * MILLIS_PER_MINUTE;
+  /**
+   * Milliseconds in a day.
+   */
+  private static final long MILLIS_PER_DAY = 24L * MILLIS_PER_HOUR;
+  /**
+   * The first year which is calculated without GregorianCalendar; the
+   * earlier dates are calculated with the Julian-Gregorian calendar, like
+   * the SimpleDateFormat does.
+   */
+  private static final int FIRST_PROLEPTIC_YEAR = 1583;
+  /**
+   * The first millisecond of the Gregorian calendar (1582-10-15T00:00:00,
+   * local time); the earlier dates are formatted with SimpleDateFormat.
+   */
+  private static final long GREGORIAN_CUTOVER = -12219292800000L;
+  /**
+   * The last year which is printed with 4 digits.
+   */
+  private static final int MAX_PADDED_YEAR = 9999;
+  /**
+   * The number of the digits of the milliseconds.
+   */
+  private static final int MILLIS_DIGITS = 3;
+  /**
+   * The maximum value of the hour field (24:00:00 is the end of the day).
+   */
+  private static final int MAX_HOUR = 24;
+  /**
+   * The maximum value of the minute field.
+   */
+  private static final int MAX_MINUTE = 59;
+  /**
+   * The maximum value of the second field (60 is a leap second).
+   */
+  private static final int MAX_SECOND = 60;
+  /**
+   * The maximum value of the day field.
+   */
+  private static final int MAX_DAY = 31;
+  /**
+   * The maximum value of the month field.
+   */
+  private static final int MAX_MONTH = 12;
+  /**
+   * The prefix of the general time zone.
+   */
+  private static final String GMT = "GMT";
+  /**
+   * The other prefix of the general time zone.
+   */
+  private static final String UTC = "UTC";
+
+  /**
+   * The private constructor, because all methods are static.
+   */
+  private DateTimeHelper()
+  {
+    super();
+  }
+
+  /**
+   * Parses a xsd:dateTime or xsd:date value.
+   *
+   * @param text The text
+   * @return The Date instance
+   * @throws ParseException If the text is not parseable
+   */
+  public static Date parseDateTime(final String text) throws ParseException
+  {
+    final int length = text.length();
+    int pos = 0;
+
+    /**
+     * The date part: yyyy-MM-dd (the year has at least 4 digits).
+     */
+    int yearEnd = pos;
+    while (yearEnd < length && isDigit(text.charAt(yearEnd)))
+    {
+      yearEnd++;
+    }
+    if (yearEnd - pos < 4)
+    {
+      throw new ParseException("Unparseable date: \"" + text + "\"", yearEnd);
+    }
+    final int year = parseDigits(text, pos, yearEnd);
+    pos = expect(text, yearEnd, '-');
+    final int month = parseField(text, pos, 1, MAX_MONTH);
+    pos = expect(text, pos + 2, '-');
+    final int day = parseField(text, pos, 1, MAX_DAY);
+    pos += 2;
+
+    /**
+     * The optional time part: 'T' or ' ' separated HH:mm[:ss[.fraction]].
+     */
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int millis = 0;
+    if (pos < length && (text.charAt(pos) == 'T' || text.charAt(pos) == ' '))
+    {
+      pos++;
+      hour = parseField(text, pos, 0, MAX_HOUR);
+      pos = expect(text, pos + 2, ':');
+      minute = parseField(text, pos, 0, MAX_MINUTE);
+      pos += 2;
+      if (pos < length && text.charAt(pos) == ':')
+      {
+        pos++;
+        second = parseField(text, pos, 0, MAX_SECOND);
+        pos += 2;
+        if (pos < length && text.charAt(pos) == '.')
+        {
+          pos++;
+          int fractionStart = pos;
+          int scale = 100;
+          while (pos < length && isDigit(text.charAt(pos)))
+          {
+            if (pos - fractionStart < MILLIS_DIGITS)
+            {
+              millis += (text.charAt(pos) - '0') * scale;
+              scale /= 10;
+            }
+            pos++;
+          }
+          if (pos == fractionStart)
+          {
+            throw new ParseException("Unparseable date: \"" + text + "\"", pos);
+          }
+        }
+      }
+      if (hour == MAX_HOUR && (minute != 0 || second != 0 || millis != 0))
+      {
+        throw new ParseException("Unparseable date: \"" + text + "\"", pos);
+      }
+      if (second == MAX_SECOND)
+      {
+        second = MAX_SECOND - 1;
+      }
+    }
+
+    /**
+     * The optional zone: Z, +hh:mm, +hhmm or +hh; or the general time zone of
+     * the SimpleDateFormat: GMT (or UTC) with an optional +h:mm or +hh:mm.
+     */
+    boolean zoned = false;
+    int offsetMillis = 0;
+    boolean general = text.startsWith(GMT, pos) || text.startsWith(UTC, pos);
+    if (general)
+    {
+      zoned = true;
+      pos += GMT.length();
+    }
+    if (pos < length)
+    {
+      char ch = text.charAt(pos);
+      if (ch == 'Z' && !general)
+      {
+        zoned = true;
+        pos++;
+      } else if (ch == '+' || ch == '-')
+      {
+        zoned = true;
+        pos++;
+        int offsetHours;
+        if (general && pos < length && isDigit(text.charAt(pos))
+                && (pos + 1 == length || !isDigit(text.charAt(pos + 1))))
+        {
+          offsetHours = text.charAt(pos) - '0';
+          pos++;
+        } else
+        {
+          offsetHours = parseField(text, pos, 0, MAX_HOUR - 1);
+          pos += 2;
+        }
+        int offsetMinutes = 0;
+        if (pos < length && text.charAt(pos) == ':')
+        {
+          pos++;
+        }
+        if (pos < length)
+        {
+          offsetMinutes = parseField(text, pos, 0, MAX_MINUTE);
+          pos += 2;
+        }
+        offsetMillis = (int) (offsetHours * MILLIS_PER_HOUR + offsetMinutes * MILLIS_PER_MINUTE);
+        if (ch == '-')
+        {
+          offsetMillis = -offsetMillis;
+        }
+      }
+    }
+    if (pos != length)
+    {
+      throw new ParseException("Unparseable date: \"" + text + "\"", pos);
+    }
+
+    if (year < FIRST_PROLEPTIC_YEAR)
+    {
+      return calendarDate(year, month, day, hour, minute, second, millis, zoned, offsetMillis);
+    }
+
+    long localMillis = daysFromCivil(year, month, day) * MILLIS_PER_DAY + hour * MILLIS_PER_HOUR
+            + minute * MILLIS_PER_MINUTE + second * MILLIS_PER_SECOND + millis;
+    if (zoned)
+    {
+      return new Date(localMillis - offsetMillis);
+    }
+
+    TimeZone zone = TimeZone.getDefault();
+    int offset = zone.getOffset(localMillis - zone.getRawOffset());
+    long utcMillis = localMillis - offset;
+    int correctedOffset = zone.getOffset(utcMillis);
+    if (correctedOffset != offset)
+    {
+      utcMillis = localMillis - correctedOffset;
+    }
+
+    return new Date(utcMillis);
+  }
+
+  /**
+   * Appends the date in "yyyy-MM-dd'T'HH:mm:ss" format (in the default time
+   * zone of the JVM) to the StringBuilder instance.
+   *
+   * @param sb The StringBuilder instance
+   * @param date The date
+   */
+  public static void appendDateTime(final StringBuilder sb, final Date date)
+  {
+    appendDateTime(sb, date, false);
+  }
+
+  /**
+   * Appends the date in "yyyy-MM-dd'T'HH:mm:ssZ" format (in the default time
+   * zone of the JVM, the zone is printed as +hhmm) to the StringBuilder
+   * instance.
+   *
+   * @param sb The StringBuilder instance
+   * @param date The date
+   */
+  public static void appendDateTimeWithZone(final StringBuilder sb, final Date date)
+  {
+    appendDateTime(sb, date, true);
+  }
+
+  /**
+   * Appends the date to the StringBuilder instance.
+   *
+   * @param sb The StringBuilder instance
+   * @param date The date
+   * @param withZone True, if the zone offset is printed
+   */
+  private static void appendDateTime(final StringBuilder sb, final Date date, final boolean withZone)
+  {
+    final long utcMillis = date.getTime();
+    final int offset = TimeZone.getDefault().getOffset(utcMillis);
+    final long localMillis = utcMillis + offset;
+    if (localMillis < GREGORIAN_CUTOVER)
+    {
+      String pattern = withZone ? "yyyy-MM-dd'T'HH:mm:ssZ" : "yyyy-MM-dd'T'HH:mm:ss";
+      sb.append(new SimpleDateFormat(pattern, Locale.ENGLISH).format(date));
+      return;
+    }
+
+    long days = localMillis / MILLIS_PER_DAY;
+    long millisOfDay = localMillis % MILLIS_PER_DAY;
+    if (millisOfDay < 0)
+    {
+      days--;
+      millisOfDay += MILLIS_PER_DAY;
+    }
+
+    /**
+     * The civil date of the days since 1970-01-01 (proleptic Gregorian).
+     */
+    final long shifted = days + 719468L;
+    final long era = (shifted >= 0 ? shifted : shifted - 146096L) / 146097L;
+    final int dayOfEra = (int) (shifted - era * 146097L);
+    final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    final int monthIndex = (5 * dayOfYear + 2) / 153;
+    final int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+    final int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+    final int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+    final int secondOfDay = (int) (millisOfDay / MILLIS_PER_SECOND);
+    if (year > MAX_PADDED_YEAR)
+    {
+      sb.append(year);
+    } else
+    {
+      appendTwoDigits(sb, year / 100);
+      appendTwoDigits(sb, year % 100);
+    }
+    sb.append('-');
+    appendTwoDigits(sb, month);
+    sb.append('-');
+    appendTwoDigits(sb, day);
+    sb.append('T');
+    appendTwoDigits(sb, secondOfDay / 3600);
+    sb.append(':');
+    appendTwoDigits(sb, secondOfDay / 60 % 60);
+    sb.append(':');
+    appendTwoDigits(sb, secondOfDay % 60);
+
+    if (withZone)
+    {
+      int offsetMinutes = (int) (offset / MILLIS_PER_MINUTE);
+      if (offsetMinutes < 0)
+      {
+        sb.append('-');
+        offsetMinutes = -offsetMinutes;
+      } else
+      {
+        sb.append('+');
+      }
+      appendTwoDigits(sb, offsetMinutes / 60);
+      appendTwoDigits(sb, offsetMinutes % 60);
+    }
+  }
+
+  /**
+   * Appends a two digits number to the StringBuilder instance.
+   *
+   * @param sb The StringBuilder instance
+   * @param value The value (0-99)
+   */
+  private static void appendTwoDigits(final StringBuilder sb, final int value)
+  {
+    sb.append((char) ('0' + value / 10));
+    sb.append((char) ('0' + value % 10));
+  }
+
+  /**
+   * Calculates the date with GregorianCalendar (for the dates before the
+   * Gregorian cutover).
+   *
+   * @param year The year
+   * @param month The month (1-12)
+   * @param day The day
+   * @param hour The hour
+   * @param minute The minute
+   * @param second The second
+   * @param millis The milliseconds
+   * @param zoned True, if the offset is specified
+   * @param offsetMillis The offset
+   * @return The Date instance
+   */
+  private static Date calendarDate(final int year, final int month, final int day, final int hour,
+          final int minute, final int second, final int millis, final boolean zoned, final int offsetMillis)
+  {
+    TimeZone zone = zoned ? new SimpleTimeZone(offsetMillis, "GMT") : TimeZone.getDefault();
+    Calendar calendar = new GregorianCalendar(zone);
+    calendar.clear();
+    calendar.set(year, month - 1, day, hour, minute, second);
+    calendar.set(Calendar.MILLISECOND, millis);
+
+    return calendar.getTime();
+  }
+
+  /**
+   * Returns the number of days since 1970-01-01 in the proleptic Gregorian
+   * calendar.
+   *
+   * @param year The year
+   * @param month The month (1-12)
+   * @param day The day
+   * @return The number of days
+   */
+  static long daysFromCivil(final int year, final int month, final int day)
+  {
+    final int y = month <= 2 ? year - 1 : year;
+    final int era = (y >= 0 ? y : y - 399) / 400;
+    final int yearOfEra = y - era * 400;
+    final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+    return era * 146097L + dayOfEra - 719468L;
+  }
+
+  /**
+   * Returns true, if the char is an ASCII digit.
+   *
+   * @param ch The char
+   * @return True, if the char is a digit
+   */
+  private static boolean isDigit(final char ch)
+  {
+    return ch >= '0' && ch <= '9';
+  }
+
+  /**
+   * Parses the digits of the text.
+   *
+   * @param text The text
+   * @param start The first index
+   * @param end The index after the last digit
+   * @return The value
+   */
+  private static int parseDigits(final String text, final int start, final int end)
+  {
+    int value = 0;
+    for (int count = start; count < end; count++)
+    {
+      value = value * 10 + (text.charAt(count) - '0');
+    }
+
+    return value;
+  }
+
+  /**
+   * Parses a two digits field, and checks its range.
+   *
+   * @param text The text
+   * @param pos The index of the field
+   * @param minimum The minimum value
+   * @param maximum The maximum value
+   * @return The value
+   * @throws ParseException If the field is not parseable
+   */
+  private static int parseField(final String text, final int pos, final int minimum, final int maximum)
+          throws ParseException
+  {
+    if (pos + 2 > text.length() || !isDigit(text.charAt(pos)) || !isDigit(text.charAt(pos + 1)))
+    {
+      throw new ParseException("Unparseable date: \"" + text + "\"", pos);
+    }
+
+    int value = parseDigits(text, pos, pos + 2);
+    if (value < minimum || value > maximum)
+    {
+      throw new ParseException("Unparseable date: \"" + text + "\"", pos);
+    }
+
+    return value;
+  }
+
+  /**
+   * Checks the separator char.
+   *
+   * @param text The text
+   * @param pos The index of the separator
+   * @param separator The expected separator
+   * @return The index after the separator
+   * @throws ParseException If the separator is not found
+   */
+  private static int expect(final String text, final int pos, final char separator) throws ParseException
+  {
+    if (pos >= text.length() || text.charAt(pos) != separator)
+    {
+      throw new ParseException("Unparseable date: \"" + text + "\"", pos);
+    }
+
+    return pos + 1;
+  }
+}
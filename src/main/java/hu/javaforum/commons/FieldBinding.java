@@ -0,0 +1,279 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class holds the resolved binding of a field: the type, the generic
+ * (element) type, the converter of the text values and the accessor of the
+ * setter and getter methods. The instances are immutable and created by the
+ * BindingMetaData class.
+ *
+ * @author sabo
+ */
+public final class FieldBinding
+{
+
+  /**
+   * The LOGGER instance.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(FieldBinding.class);
+  /**
+   * The XML name of the field.
+   */
+  private final String name;
+  /**
+   * The field.
+   */
+  private final Field field;
+  /**
+   * The type of the field.
+   */
+  private final Class type;
+  /**
+   * The element type of the List or array field, null otherwise.
+   */
+  private final Class genericType;
+  /**
+   * The accessor of the getter and setter methods.
+   */
+  private final PropertyAccessor accessor;
+  /**
+   * The converter of the text values, null if the type isn't convertible.
+   */
+  private final ValueConverter converter;
+
+  /**
+   * Resolves the binding of the field. The generated binder of the class is
+   * used to access the field, if it is exists; otherwise the getter and setter
+   * methods are resolved.
+   *
+   * @param objectClass The class of the bean
+   * @param name The XML name of the field
+   * @param field The field
+   * @param binder The generated binder of the class, it can be null
+   */
+  FieldBinding(final Class objectClass, final String name, final Field field, final BeanBinder binder)
+  {
+    this.name = name;
+    this.field = field;
+    this.type = field.getType();
+    this.genericType = resolveGenericType(field);
+    this.converter = ConverterRegistry.getConverter(this.type);
+    int binderIndex = binder == null ? -1 : binder.indexOf(field.getName());
+    if (binderIndex >= 0)
+    {
+      this.accessor = PropertyAccessor.forBinder(binder, binderIndex);
+    } else
+    {
+      this.accessor = PropertyAccessor.forMethods(ReflectionHelper.getGetterMethod(objectClass, null, name),
+              resolveSetter(objectClass, name, this.type));
+    }
+  }
+
+  /**
+   * Resolves the first generic class of the field, or the component type of
+   * the array field.
+   *
+   * @param field The field
+   * @return The class, null if the field is not generic nor array
+   */
+  private static Class resolveGenericType(final Field field)
+  {
+    Type genericFieldType = field.getGenericType();
+    if (genericFieldType instanceof ParameterizedType)
+    {
+      Type[] typeArguments = ((ParameterizedType) genericFieldType).getActualTypeArguments();
+      if (typeArguments.length > 0 && typeArguments[0] instanceof Class)
+      {
+        return (Class) typeArguments[0];
+      }
+    } else if (field.getType().isArray())
+    {
+      return field.getType().getComponentType();
+    }
+
+    return null;
+  }
+
+  /**
+   * Resolves the setter method of the field. It searches the class and its
+   * superclasses.
+   *
+   * @param objectClass The class of the bean
+   * @param name The XML name of the field
+   * @param type The type of the field
+   * @return The setter method, null if it is not exists
+   */
+  private static Method resolveSetter(final Class objectClass, final String name, final Class type)
+  {
+    StringBuilder sb = new StringBuilder(name.length() + ReflectionHelper.SET_WORD.length());
+    sb.append(ReflectionHelper.SET_WORD);
+    sb.append(name);
+    sb.setCharAt(ReflectionHelper.SET_WORD.length(),
+            Character.toUpperCase(sb.charAt(ReflectionHelper.SET_WORD.length())));
+    String setterName = sb.toString();
+
+    for (Class c = objectClass; c != null && !Object.class.equals(c); c = c.getSuperclass())
+    {
+      for (Method method : c.getDeclaredMethods())
+      {
+        if (method.getName().equals(setterName) && method.getParameterTypes().length == 1
+                && method.getParameterTypes()[0].equals(type))
+        {
+          return method;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the XML name of the field.
+   *
+   * @return The name
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * Returns the field.
+   *
+   * @return The field
+   */
+  public Field getField()
+  {
+    return field;
+  }
+
+  /**
+   * Returns the accessor of the getter and setter methods.
+   *
+   * @return The accessor
+   */
+  public PropertyAccessor getAccessor()
+  {
+    return accessor;
+  }
+
+  /**
+   * Returns the type of the field.
+   *
+   * @return The type
+   */
+  public Class getType()
+  {
+    return type;
+  }
+
+  /**
+   * Returns the element type of the List or array field.
+   *
+   * @return The element type, null if the field is not generic nor array
+   */
+  public Class getGenericType()
+  {
+    return genericType;
+  }
+
+  /**
+   * Returns the converter of the text values.
+   *
+   * @return The converter, null if the type isn't convertible
+   */
+  public ValueConverter getConverter()
+  {
+    return converter;
+  }
+
+  /**
+   * Returns true, if the field is a List or an array. The byte[] is not a
+   * collection, it is a Base64 value.
+   *
+   * @return True, if the field is a collection
+   */
+  public boolean isCollection()
+  {
+    return (type.isArray() && !type.equals(byte[].class)) || type.equals(List.class);
+  }
+
+  /**
+   * Returns a value of the field.
+   *
+   * @param instance The bean
+   * @return The value; null, if the getter is not found
+   */
+  public Object invokeGetter(final Object instance)
+  {
+    if (!accessor.isReadable())
+    {
+      return null;
+    }
+
+    try
+    {
+      return accessor.get(instance);
+    } catch (Exception except)
+    {
+      LOGGER.warn(except.toString());
+    }
+
+    return null;
+  }
+
+  /**
+   * Set the field value in the bean instance. The value is converted to the
+   * type of the field, if it is necessary; the text values are converted by
+   * the pre-resolved converter of the field.
+   *
+   * @param instance The bean instance
+   * @param value The new value
+   * @return true, if the invoke done successfully
+   */
+  public Boolean invokeSetter(final Object instance, final Object value)
+  {
+    if (!accessor.isWritable())
+    {
+      LOGGER.debug("The setter of '{}' isn't exists", name);
+      return false;
+    }
+
+    try
+    {
+      Object parameter;
+      if (converter != null && value instanceof String)
+      {
+        parameter = converter.convert((String) value);
+      } else
+      {
+        parameter = ReflectionHelper.createParameterFromValue(type, value);
+      }
+      if (parameter == null)
+      {
+        LOGGER.warn("The '{}' type isn't supported yet (fieldName was '{}')", type.getName(), name);
+        return false;
+      }
+
+      accessor.set(instance, parameter);
+      return true;
+    } catch (Exception except)
+    {
+      LOGGER.warn(except.toString());
+    }
+
+    return false;
+  }
+}
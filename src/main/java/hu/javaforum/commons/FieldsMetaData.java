@@ -6,12 +6,15 @@ package hu.javaforum.commons;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This class holds the meta-data of (reflection) fields.
+ * This class holds the meta-data of (reflection) fields. The instances are
+ * immutable, so they are cached per class (see getInstance).
  *
  * Changelog:
  * JFPORTAL-94 (2011-07-31)
@@ -26,10 +29,22 @@ public final class FieldsMetaData
    * The LOGGER instance.
    */
   private static final Logger LOGGER = LoggerFactory.getLogger(FieldsMetaData.class);
+  /**
+   * The cached instances by class.
+   */
+  private static final ConcurrentMap<Class, FieldsMetaData> CACHE = new ConcurrentHashMap<Class, FieldsMetaData>();
   /**
    * The fields.
    */
   private final Field[] fields;
+  /**
+   * The accessors of the fields.
+   */
+  private final PropertyAccessor[] accessors;
+  /**
+   * The XML names of the fields.
+   */
+  private final char[][] fieldNames;
   /**
    * The fields with PrintField annotation.
    */
@@ -53,9 +68,19 @@ public final class FieldsMetaData
    * @param object The object
    */
   public FieldsMetaData(final Object object)
+  {
+    this(object.getClass());
+  }
+
+  /**
+   * Fills up the arrays from the class.
+   *
+   * @param objectClass The class
+   */
+  private FieldsMetaData(final Class objectClass)
   {
     int filteredFieldsSize = 0;
-    Field[] internalFields = iterateFields(object.getClass());
+    Field[] internalFields = iterateFields(objectClass);
     boolean[] internalPrintFields = new boolean[internalFields.length];
     boolean[] internalHiddenFields = new boolean[internalFields.length];
     int[] internalMaximumItemDumpFields = new int[internalFields.length];
@@ -105,6 +130,8 @@ public final class FieldsMetaData
     }
 
     fields = new Field[filteredFieldsSize];
+    fieldNames = new char[filteredFieldsSize][];
+    accessors = new PropertyAccessor[filteredFieldsSize];
     printFields = new boolean[filteredFieldsSize];
     hiddenFields = new boolean[filteredFieldsSize];
     maximumHexDumpFields = new int[filteredFieldsSize];
@@ -114,6 +141,34 @@ public final class FieldsMetaData
     System.arraycopy(internalHiddenFields, 0, hiddenFields, 0, filteredFieldsSize);
     System.arraycopy(internalMaximumHexDumpFields, 0, maximumHexDumpFields, 0, filteredFieldsSize);
     System.arraycopy(internalMaximumItemDumpFields, 0, maximumItemDumpFields, 0, filteredFieldsSize);
+    for (int count = 0; count < filteredFieldsSize; count++)
+    {
+      fieldNames[count] = ReflectionHelper.getFieldName(fields[count]);
+      accessors[count] = PropertyAccessor.forField(fields[count]);
+    }
+  }
+
+  /**
+   * Returns the cached meta-data of the class, it creates the meta-data on
+   * the first call.
+   *
+   * @param objectClass The class
+   * @return The meta-data
+   */
+  public static FieldsMetaData getInstance(final Class objectClass)
+  {
+    FieldsMetaData fmd = CACHE.get(objectClass);
+    if (fmd == null)
+    {
+      fmd = new FieldsMetaData(objectClass);
+      FieldsMetaData cached = CACHE.putIfAbsent(objectClass, fmd);
+      if (cached != null)
+      {
+        fmd = cached;
+      }
+    }
+
+    return fmd;
   }
 
   /**
@@ -200,4 +255,100 @@ public final class FieldsMetaData
   {
     return (boolean[]) printFields.clone();
   }
+
+  /**
+   * Returns with the number of the fields.
+   *
+   * @return The number of the fields
+   */
+  int size()
+  {
+    return fields.length;
+  }
+
+  /**
+   * Returns with the field, without copying the array.
+   *
+   * @param index The index of the field
+   * @return The field
+   */
+  Field getField(final int index)
+  {
+    return fields[index];
+  }
+
+  /**
+   * Returns with the value of the field in the object through the cached
+   * accessor.
+   *
+   * @param index The index of the field
+   * @param object The object
+   * @return The value of the field in the object
+   */
+  Object getFieldValue(final int index, final Object object)
+  {
+    try
+    {
+      return accessors[index].get(object);
+    } catch (Exception except)
+    {
+      return "***" + except.toString() + "***";
+    }
+  }
+
+  /**
+   * Returns with the XML name of the field, without copying the array. The
+   * returned array must not be modified.
+   *
+   * @param index The index of the field
+   * @return The name of the field
+   */
+  char[] getFieldName(final int index)
+  {
+    return fieldNames[index];
+  }
+
+  /**
+   * Returns true, if the field has PrintField annotation.
+   *
+   * @param index The index of the field
+   * @return True, if the field is printable
+   */
+  boolean isPrintField(final int index)
+  {
+    return printFields[index];
+  }
+
+  /**
+   * Returns true, if the value of the field is hidden.
+   *
+   * @param index The index of the field
+   * @return True, if the field is hidden
+   */
+  boolean isHiddenField(final int index)
+  {
+    return hiddenFields[index];
+  }
+
+  /**
+   * Returns with the maximum hex dump value of the field.
+   *
+   * @param index The index of the field
+   * @return The maximum hex dump value
+   */
+  int getMaximumHexDump(final int index)
+  {
+    return maximumHexDumpFields[index];
+  }
+
+  /**
+   * Returns with the maximum item dump value of the field.
+   *
+   * @param index The index of the field
+   * @return The maximum item dump value
+   */
+  int getMaximumItemDump(final int index)
+  {
+    return maximumItemDumpFields[index];
+  }
 }
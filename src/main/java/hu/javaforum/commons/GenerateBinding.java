@@ -0,0 +1,25 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean class for the AndroidSOAP annotation processor, which generates
+ * a BeanSerializer (named &lt;Bean&gt;$$Serializer) and a BeanBinder (named
+ * &lt;Bean&gt;$$Binder) into the package of the bean. The CommonBean and the
+ * GenericHandler pick up the generated classes automatically, and fall back to
+ * the reflection, when they are not exist.
+ *
+ * @author sabo
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateBinding
+{
+}
@@ -0,0 +1,153 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Looks up the generated serializers and binders of the bean classes (see
+ * GenerateBinding). The result of the lookup is cached per class, the classes
+ * without generated code are cached too.
+ *
+ * @author sabo
+ */
+public final class GeneratedCode
+{
+
+  /**
+   * The LOGGER instance.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedCode.class);
+  /**
+   * The suffix of the generated serializer classes.
+   */
+  public static final String SERIALIZER_SUFFIX = "$$Serializer";
+  /**
+   * The suffix of the generated binder classes.
+   */
+  public static final String BINDER_SUFFIX = "$$Binder";
+  /**
+   * The marker of the classes without generated code.
+   */
+  private static final Object NONE = new Object();
+  /**
+   * The cached serializers by class.
+   */
+  private static final ConcurrentMap<Class, Object> SERIALIZERS = new ConcurrentHashMap<Class, Object>();
+  /**
+   * The cached binders by class.
+   */
+  private static final ConcurrentMap<Class, Object> BINDERS = new ConcurrentHashMap<Class, Object>();
+
+  /**
+   * The private constructor, because all methods are static.
+   */
+  private GeneratedCode()
+  {
+    super();
+  }
+
+  /**
+   * Returns the generated serializer of the class.
+   *
+   * @param beanClass The class of the bean
+   * @return The serializer; null, if it is not exists
+   */
+  public static BeanSerializer getSerializer(final Class beanClass)
+  {
+    Object serializer = lookup(SERIALIZERS, beanClass, SERIALIZER_SUFFIX);
+    return serializer == NONE ? null : (BeanSerializer) serializer;
+  }
+
+  /**
+   * Returns the generated binder of the class.
+   *
+   * @param beanClass The class of the bean
+   * @return The binder; null, if it is not exists
+   */
+  public static BeanBinder getBinder(final Class beanClass)
+  {
+    Object binder = lookup(BINDERS, beanClass, BINDER_SUFFIX);
+    return binder == NONE ? null : (BeanBinder) binder;
+  }
+
+  /**
+   * Creates a new instance of the class, with the generated binder, if it is
+   * exists.
+   *
+   * @param beanClass The class of the bean
+   * @return The instance
+   * @throws InstantiationException InstantiationException
+   * @throws IllegalAccessException IllegalAccessException
+   */
+  public static Object newInstance(final Class beanClass)
+          throws InstantiationException, IllegalAccessException
+  {
+    BeanBinder binder = getBinder(beanClass);
+    return binder == null ? beanClass.newInstance() : binder.newInstance();
+  }
+
+  /**
+   * Looks up the generated class in the cache, and loads it on the first call.
+   *
+   * @param cache The cache
+   * @param beanClass The class of the bean
+   * @param suffix The suffix of the generated class
+   * @return The instance of the generated class, or the NONE marker
+   */
+  private static Object lookup(final ConcurrentMap<Class, Object> cache, final Class beanClass,
+          final String suffix)
+  {
+    Object instance = cache.get(beanClass);
+    if (instance == null)
+    {
+      instance = load(beanClass, suffix);
+      Object cached = cache.putIfAbsent(beanClass, instance);
+      if (cached != null)
+      {
+        instance = cached;
+      }
+    }
+
+    return instance;
+  }
+
+  /**
+   * Loads and instantiates the generated class.
+   *
+   * @param beanClass The class of the bean
+   * @param suffix The suffix of the generated class
+   * @return The instance of the generated class, or the NONE marker
+   */
+  private static Object load(final Class beanClass, final String suffix)
+  {
+    if (beanClass.isPrimitive() || beanClass.isArray() || beanClass.getName().startsWith("java."))
+    {
+      return NONE;
+    }
+
+    try
+    {
+      Class generatedClass = Class.forName(beanClass.getName() + suffix, true, beanClass.getClassLoader());
+      LOGGER.debug("Generated class found: {}", generatedClass.getName());
+      return generatedClass.newInstance();
+    } catch (ClassNotFoundException except)
+    {
+      return NONE;
+    } catch (Exception except)
+    {
+      LOGGER.warn("Cannot instantiate the generated class of {}: {}", beanClass.getName(), except.toString());
+    } catch (LinkageError except)
+    {
+      LOGGER.warn("Cannot load the generated class of {}: {}", beanClass.getName(), except.toString());
+    }
+
+    return NONE;
+  }
+}
@@ -0,0 +1,370 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+/**
+ * Compiled accessor of a bean property. The getter and setter (or the field)
+ * are resolved once, and the access checks are switched off on them, so the
+ * accessor calls don't repeat the name building, the method lookup nor the
+ * access checks.
+ *
+ * The java.lang.invoke API isn't available on the Android platform, so the
+ * accessors are backed by the resolved Method and Field instances.
+ *
+ * @author sabo
+ */
+public abstract class PropertyAccessor
+{
+
+  /**
+   * The constructor of the implementations.
+   */
+  PropertyAccessor()
+  {
+    super();
+  }
+
+  /**
+   * Creates an accessor which uses the getter and the setter method.
+   *
+   * @param getter The getter method, it can be null
+   * @param setter The setter method, it can be null
+   * @return The accessor
+   */
+  public static PropertyAccessor forMethods(final Method getter, final Method setter)
+  {
+    return new MethodAccessor(makeAccessible(getter), makeAccessible(setter));
+  }
+
+  /**
+   * Creates an accessor which reads and writes the field directly.
+   *
+   * @param field The field
+   * @return The accessor
+   */
+  public static PropertyAccessor forField(final Field field)
+  {
+    return new FieldAccessor(makeAccessible(field));
+  }
+
+  /**
+   * Creates an accessor which uses the generated binder of the bean.
+   *
+   * @param binder The binder
+   * @param index The index of the field in the binder
+   * @return The accessor
+   */
+  public static PropertyAccessor forBinder(final BeanBinder binder, final int index)
+  {
+    return new BinderAccessor(binder, index);
+  }
+
+  /**
+   * Switches off the access checks of the member, if the security manager
+   * allows it.
+   *
+   * @param <T> The type of the member
+   * @param member The member, it can be null
+   * @return The member
+   */
+  private static <T extends AccessibleObject> T makeAccessible(final T member)
+  {
+    if (member == null)
+    {
+      return null;
+    }
+
+    AccessController.doPrivileged(new PrivilegedAction()
+    {
+
+      /**
+       * Run the privileged access.
+       *
+       * @return null
+       */
+      public Object run()
+      {
+        try
+        {
+          member.setAccessible(true);
+        } catch (SecurityException except)
+        {
+          /**
+           * The member remains usable with access checks.
+           */
+        }
+        return null;
+      }
+    });
+
+    return member;
+  }
+
+  /**
+   * Returns true, if the property is readable.
+   *
+   * @return True, if the property is readable
+   */
+  public abstract boolean isReadable();
+
+  /**
+   * Returns true, if the property is writable.
+   *
+   * @return True, if the property is writable
+   */
+  public abstract boolean isWritable();
+
+  /**
+   * Returns the value of the property.
+   *
+   * @param instance The bean instance
+   * @return The value
+   * @throws IllegalAccessException IllegalAccessException
+   * @throws InvocationTargetException When the getter throws an exception
+   */
+  public abstract Object get(Object instance) throws IllegalAccessException, InvocationTargetException;
+
+  /**
+   * Sets the value of the property.
+   *
+   * @param instance The bean instance
+   * @param value The value, it has to be an instance of the property type
+   * @throws IllegalAccessException IllegalAccessException
+   * @throws InvocationTargetException When the setter throws an exception
+   */
+  public abstract void set(Object instance, Object value) throws IllegalAccessException, InvocationTargetException;
+
+  /**
+   * Accessor of the getter and setter methods.
+   */
+  private static final class MethodAccessor extends PropertyAccessor
+  {
+
+    /**
+     * The getter method.
+     */
+    private final Method getter;
+    /**
+     * The setter method.
+     */
+    private final Method setter;
+
+    /**
+     * The constructor.
+     *
+     * @param getter The getter method
+     * @param setter The setter method
+     */
+    MethodAccessor(final Method getter, final Method setter)
+    {
+      super();
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    /**
+     * Returns true, if the property is readable.
+     *
+     * @return True, if the property is readable
+     */
+    @Override
+    public boolean isReadable()
+    {
+      return getter != null;
+    }
+
+    /**
+     * Returns true, if the property is writable.
+     *
+     * @return True, if the property is writable
+     */
+    @Override
+    public boolean isWritable()
+    {
+      return setter != null;
+    }
+
+    /**
+     * Returns the value of the property.
+     *
+     * @param instance The bean instance
+     * @return The value
+     * @throws IllegalAccessException IllegalAccessException
+     * @throws InvocationTargetException When the method throws an exception
+     */
+    @Override
+    public Object get(final Object instance) throws IllegalAccessException, InvocationTargetException
+    {
+      return getter.invoke(instance);
+    }
+
+    /**
+     * Sets the value of the property.
+     *
+     * @param instance The bean instance
+     * @param value The value
+     * @throws IllegalAccessException IllegalAccessException
+     * @throws InvocationTargetException When the method throws an exception
+     */
+    @Override
+    public void set(final Object instance, final Object value) throws IllegalAccessException, InvocationTargetException
+    {
+      setter.invoke(instance, value);
+    }
+  }
+
+  /**
+   * Accessor of the field.
+   */
+  private static final class FieldAccessor extends PropertyAccessor
+  {
+
+    /**
+     * The field.
+     */
+    private final Field field;
+
+    /**
+     * The constructor.
+     *
+     * @param field The field
+     */
+    FieldAccessor(final Field field)
+    {
+      super();
+      this.field = field;
+    }
+
+    /**
+     * Returns true, if the property is readable.
+     *
+     * @return True, if the property is readable
+     */
+    @Override
+    public boolean isReadable()
+    {
+      return true;
+    }
+
+    /**
+     * Returns true, if the property is writable.
+     *
+     * @return True, if the property is writable
+     */
+    @Override
+    public boolean isWritable()
+    {
+      return true;
+    }
+
+    /**
+     * Returns the value of the property.
+     *
+     * @param instance The bean instance
+     * @return The value
+     * @throws IllegalAccessException IllegalAccessException
+     */
+    @Override
+    public Object get(final Object instance) throws IllegalAccessException
+    {
+      return field.get(instance);
+    }
+
+    /**
+     * Sets the value of the property.
+     *
+     * @param instance The bean instance
+     * @param value The value
+     * @throws IllegalAccessException IllegalAccessException
+     */
+    @Override
+    public void set(final Object instance, final Object value) throws IllegalAccessException
+    {
+      field.set(instance, value);
+    }
+  }
+
+  /**
+   * Accessor of the generated binder.
+   */
+  private static final class BinderAccessor extends PropertyAccessor
+  {
+
+    /**
+     * The binder.
+     */
+    private final BeanBinder binder;
+    /**
+     * The index of the field in the binder.
+     */
+    private final int index;
+
+    /**
+     * The constructor.
+     *
+     * @param binder The binder
+     * @param index The index of the field
+     */
+    BinderAccessor(final BeanBinder binder, final int index)
+    {
+      super();
+      this.binder = binder;
+      this.index = index;
+    }
+
+    /**
+     * Returns true, if the property is readable.
+     *
+     * @return True, if the property is readable
+     */
+    @Override
+    public boolean isReadable()
+    {
+      return binder.isReadable(index);
+    }
+
+    /**
+     * Returns true, if the property is writable.
+     *
+     * @return True, if the property is writable
+     */
+    @Override
+    public boolean isWritable()
+    {
+      return binder.isWritable(index);
+    }
+
+    /**
+     * Returns the value of the property.
+     *
+     * @param instance The bean instance
+     * @return The value
+     */
+    @Override
+    public Object get(final Object instance)
+    {
+      return binder.get(instance, index);
+    }
+
+    /**
+     * Sets the value of the property.
+     *
+     * @param instance The bean instance
+     * @param value The value
+     */
+    @Override
+    public void set(final Object instance, final Object value)
+    {
+      binder.set(instance, index, value);
+    }
+  }
+}
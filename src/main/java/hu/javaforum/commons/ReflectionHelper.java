@@ -5,30 +5,18 @@
 package hu.javaforum.commons;
 
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 
 import javax.xml.bind.annotation.XmlElement;
 
-import org.apache.commons.codec.binary.Base64;
-
 /**
  * The ReflectionHelper is provides static methods to invoke getter and setter
  * methods in JavaBean instances.
@@ -55,10 +43,6 @@ public abstract class ReflectionHelper implements Serializable
 	 */
 	private static final long serialVersionUID = 1L;
 /**
-   * It contains the regex patterns and the date formatting patterns.
-   */
-  private static final Map<String, String> DATE_FORMAT_PATTERNS;
-  /**
    * Constant of "get".
    */
   protected static final String GET_WORD = "get";
@@ -77,18 +61,6 @@ public abstract class ReflectionHelper implements Serializable
 
   static
   {
-    Map<String, String> patterns = new HashMap<String, String>();
-    patterns.put("[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]T[0-9][0-9]:[0-9][0-9]:[0-9][0-9]\\.[0-9][0-9][0-9].*",
-            "yyyy-MM-dd'T'HH:mm:ss.SSSZ");
-    patterns.put("[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9] [0-9][0-9]:[0-9][0-9]:[0-9][0-9]",
-            "yyyy-MM-dd HH:mm:ss");
-    patterns.put("[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9] [0-9][0-9]:[0-9][0-9]",
-            "yyyy-MM-dd HH:mm");
-    patterns.put("[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]",
-            "yyyy-MM-dd");
-
-    DATE_FORMAT_PATTERNS = Collections.unmodifiableMap(patterns);
-
     Set<Class> classes = new HashSet<Class>();
     classes.add(Boolean.class);
     classes.add(Byte.class);
@@ -223,17 +195,16 @@ public abstract class ReflectionHelper implements Serializable
 
   /**
    * Creates a parameter from the value. If the value instance of String then
-   * this method calls the converter methods.
+   * it is converted by the converter of the field class, which is looked up in
+   * the ConverterRegistry.
    *
    * @param fieldClass The class of field
    * @param value The value
-   * @return The converted instance
-   * @throws ClassNotFoundException If class not found
+   * @return The converted instance; null, if the field class isn't supported
    * @throws ParseException If the pattern cannot be parseable
-   * @throws UnsupportedEncodingException If the Base64 stream contains non UTF-8 chars
    */
   protected static Object createParameterFromValue(final Class fieldClass,
-          final Object value) throws ClassNotFoundException, ParseException, UnsupportedEncodingException
+          final Object value) throws ParseException
   {
     Object parameter = value;
 
@@ -241,19 +212,27 @@ public abstract class ReflectionHelper implements Serializable
     {
       if (fieldClass.isArray() && value instanceof List)
       {
-        String arrayElementTypeName = fieldClass.getName().substring(2, fieldClass.getName().length() - 1);
-        Class arrayElementType = Class.forName(arrayElementTypeName);
-        Object[] at = (Object[]) Array.newInstance(arrayElementType, 0);
-        parameter = ((List<Object>) value).toArray(at);
+        List<Object> items = (List<Object>) value;
+        Class arrayElementType = fieldClass.getComponentType();
+        Object array = Array.newInstance(arrayElementType, items.size());
+        if (arrayElementType.isPrimitive())
+        {
+          for (int index = 0; index < items.size(); index++)
+          {
+            Array.set(array, index, items.get(index));
+          }
+          parameter = array;
+        } else
+        {
+          parameter = items.toArray((Object[]) array);
+        }
       } else
       {
         String stringValue = createStringFromValue(value);
         if (stringValue != null)
         {
-          parameter = convertToPrimitive(fieldClass, stringValue);
-          parameter = parameter == null ? convertToPrimitiveWrapper(fieldClass, stringValue) : parameter;
-          parameter = parameter == null ? convertToBigNumbers(fieldClass, stringValue) : parameter;
-          parameter = parameter == null ? convertToOthers(fieldClass, stringValue) : parameter;
+          ValueConverter converter = ConverterRegistry.getConverter(fieldClass);
+          parameter = converter == null ? null : converter.convert(stringValue);
         }
       }
     }
@@ -290,168 +269,4 @@ public abstract class ReflectionHelper implements Serializable
 
     return stringValue;
   }
-
-  /**
-   * Converts the string value to instance of primitive wrapper.
-   *
-   * @param fieldClass The field class
-   * @param stringValue The string value
-   * @return The instance of the field class
-   * @throws ParseException Throws when the string isn't parseable
-   */
-  private static Object convertToPrimitive(final Class fieldClass, final String stringValue)
-          throws ParseException
-  {
-    Object parameter = null;
-
-    if (fieldClass.equals(boolean.class))
-    {
-      parameter = Boolean.parseBoolean(stringValue);
-    } else if (fieldClass.equals(byte.class))
-    {
-      parameter = Byte.parseByte(stringValue);
-    } else if (fieldClass.equals(double.class))
-    {
-      parameter = Double.parseDouble(stringValue);
-    } else if (fieldClass.equals(float.class))
-    {
-      parameter = Float.parseFloat(stringValue);
-    } else if (fieldClass.equals(int.class))
-    {
-      parameter = Integer.parseInt(stringValue);
-    } else if (fieldClass.equals(long.class))
-    {
-      parameter = Long.parseLong(stringValue);
-    } else if (fieldClass.equals(short.class))
-    {
-      parameter = Short.parseShort(stringValue);
-    }
-
-    return parameter;
-  }
-
-  /**
-   * Converts the string value to instance of primitive wrapper.
-   *
-   * @param fieldClass The field class
-   * @param stringValue The string value
-   * @return The instance of the field class
-   * @throws ParseException Throws when the string isn't parseable
-   */
-  private static Object convertToPrimitiveWrapper(final Class fieldClass, final String stringValue)
-          throws ParseException
-  {
-    Object parameter = null;
-
-    if (fieldClass.equals(Boolean.class))
-    {
-      parameter = Boolean.parseBoolean(stringValue);
-    } else if (fieldClass.equals(Byte.class))
-    {
-      parameter = Byte.parseByte(stringValue);
-    } else if (fieldClass.equals(Double.class))
-    {
-      parameter = Double.parseDouble(stringValue);
-    } else if (fieldClass.equals(Float.class))
-    {
-      parameter = Float.parseFloat(stringValue);
-    } else if (fieldClass.equals(Integer.class))
-    {
-      parameter = Integer.parseInt(stringValue);
-    } else if (fieldClass.equals(Long.class))
-    {
-      parameter = Long.parseLong(stringValue);
-    } else if (fieldClass.equals(Short.class))
-    {
-      parameter = Short.parseShort(stringValue);
-    }
-
-    return parameter;
-  }
-
-  /**
-   * Converts the string value to instance of BigDecimal or BigInteger.
-   *
-   * @param fieldClass The field class
-   * @param stringValue The string value
-   * @return The instance of the field class
-   * @throws ParseException Throws when the string isn't parseable
-   */
-  private static Object convertToBigNumbers(final Class fieldClass, final String stringValue)
-          throws ParseException
-  {
-    Object parameter = null;
-
-    if (fieldClass.equals(BigDecimal.class))
-    {
-      parameter = new BigDecimal(stringValue);
-    } else if (fieldClass.equals(BigInteger.class))
-    {
-      parameter = new BigInteger(stringValue);
-    }
-
-    return parameter;
-  }
-
-  /**
-   * Converts the string value to instance of the field class.
-   *
-   * @param fieldClass The field class
-   * @param stringValue The string value
-   * @return The instance of the field class
-   * @throws ParseException Throws when the string isn't parseable
-   * @throws UnsupportedEncodingException If the Base64 stream contains non UTF-8 chars
-   */
-  private static Object convertToOthers(final Class fieldClass, final String stringValue)
-          throws ParseException, UnsupportedEncodingException
-  {
-    Object parameter = null;
-
-    if (fieldClass.isEnum())
-    {
-      parameter = Enum.valueOf((Class<Enum>) fieldClass, stringValue);
-    } else if (fieldClass.equals(byte[].class))
-    {
-      parameter = Base64.decodeBase64(stringValue.getBytes("UTF-8"));
-    } else if (fieldClass.equals(Date.class))
-    {
-      parameter = stringToDate(stringValue);
-    } else if (fieldClass.equals(Calendar.class))
-    {
-      Calendar cal = Calendar.getInstance();
-      cal.setTime(stringToDate(stringValue));
-      parameter = cal;
-    }
-
-    return parameter;
-  }
-
-  /**
-   * Converts String to Date.
-   *
-   * @param stringValue The string value
-   * @return The Date instance
-   * @throws ParseException If the string is not parseable
-   */
-  private static Date stringToDate(final String stringValue) throws ParseException
-  {
-    try
-    {
-      String pattern = "yyyy-MM-dd'T'HH:mm:ssZ";
-      for (Map.Entry<String, String> entry : DATE_FORMAT_PATTERNS.entrySet())
-      {
-        if (stringValue.matches(entry.getKey()))
-        {
-          pattern = entry.getValue();
-          break;
-        }
-      }
-
-      DateFormat format = new SimpleDateFormat(pattern, Locale.ENGLISH);
-      return format.parse(stringValue);
-    } catch (ParseException except)
-    {
-      throw except;
-    }
-  }
 }
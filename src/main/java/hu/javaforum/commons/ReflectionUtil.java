@@ -4,10 +4,7 @@
  */
 package hu.javaforum.commons;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +79,11 @@ public final class ReflectionUtil extends ReflectionHelper {
 				return null;
 			}
 
+			FieldBinding binding = BindingMetaData.getBinding(instanceClass, fieldName);
+			if (binding != null) {
+				return binding.invokeGetter(instance);
+			}
+
 			Method method = getGetterMethod(instanceClass, instance, fieldName);
 			if (method != null) {
 				return method.invoke(instance);
@@ -166,30 +168,15 @@ public final class ReflectionUtil extends ReflectionHelper {
 			}
 
 			/**
-			 * If the field's class and the value's class is not equals, then need to cast or convert the value to the field's class.
+			 * The binding resolves the field, its setter and the conversion of the value once per class.
 			 */
-			Class fieldClass = ReflectionUtil.getField(instanceClass, fieldName).getType();
-
-			Object parameter = createParameterFromValue(fieldClass, value);
-			if (parameter == null) {
-				LOGGER.warn("The '{}' type isn't supported yet (fieldName was '{}')", fieldClass.getName(), fieldName);
+			FieldBinding binding = BindingMetaData.getBinding(instanceClass, fieldName);
+			if (binding == null) {
+				LOGGER.debug("The '{}' field isn't exists in {}", fieldName, instanceClass.getName());
 				return false;
 			}
 
-			StringBuilder sb = new StringBuilder(fieldName.length() + SET_WORD.length());
-			sb.append(SET_WORD);
-			sb.append(fieldName);
-			sb.setCharAt(SET_WORD.length(), Character.toUpperCase(sb.charAt(SET_WORD.length())));
-
-			Method method = instanceClass.getDeclaredMethod(sb.toString(), fieldClass);
-			method.invoke(instance, parameter);
-			return true;
-		} catch (NoSuchMethodException except) {
-			LOGGER.debug("Invoking {}.{}(Object object) because {}", new Object[] {instanceClass.getSuperclass().getName(), fieldName, except.getMessage()});
-			return invokeSetter(instanceClass.getSuperclass(), instance, fieldName, value);
-		} catch (NoSuchFieldException except) {
-			LOGGER.debug("Invoking {}.{}(Object object) because {}", new Object[] {instanceClass.getSuperclass().getName(), fieldName, except.getMessage()});
-			return invokeSetter(instanceClass.getSuperclass(), instance, fieldName, value);
+			return binding.invokeSetter(instance, value);
 		} catch (Exception except) {
 			LOGGER.warn(except.toString());
 		} finally {
@@ -234,24 +221,12 @@ public final class ReflectionUtil extends ReflectionHelper {
 	 * @return The class
 	 */
 	public static Class getFieldGenericClass(final Class objectClass, final String fieldName) {
-		try {
-			Field field = getField(objectClass, fieldName);
-			Class fieldClass = field.getType();
-
-			Type returnType = field.getGenericType();
-			if (returnType instanceof ParameterizedType) {
-				ParameterizedType type = (ParameterizedType) returnType;
-				Type[] typeArguments = type.getActualTypeArguments();
-				return (Class) typeArguments[0];
-			} else if (fieldClass.isArray()) {
-				String arrayElementType = fieldClass.getName().substring(2, fieldClass.getName().length() - 1);
-				return Class.forName(arrayElementType);
-			}
-		} catch (Exception except) {
-			LOGGER.warn(except.toString());
-		} finally {
+		FieldBinding binding = BindingMetaData.getBinding(objectClass, fieldName);
+		if (binding == null) {
+			LOGGER.warn("The '{}' field isn't exists in {}", fieldName, objectClass.getName());
+			return null;
 		}
 
-		return null;
+		return binding.getGenericType();
 	}
 }
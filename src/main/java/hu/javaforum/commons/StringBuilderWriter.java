@@ -0,0 +1,118 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.io.Writer;
+
+/**
+ * Writes into a StringBuilder instance, without the synchronization of the
+ * StringWriter. It is used by the methods, which return the dumped XML.
+ *
+ * @author sabo
+ */
+final class StringBuilderWriter extends Writer
+{
+
+  /**
+   * The StringBuilder instance.
+   */
+  private final StringBuilder sb;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param sb The StringBuilder instance
+   */
+  StringBuilderWriter(final StringBuilder sb)
+  {
+    super();
+    this.sb = sb;
+  }
+
+  /**
+   * Returns the StringBuilder instance.
+   *
+   * @return The StringBuilder instance
+   */
+  StringBuilder getBuilder()
+  {
+    return sb;
+  }
+
+  /**
+   * Appends a char.
+   *
+   * @param c The char
+   */
+  @Override
+  public void write(final int c)
+  {
+    sb.append((char) c);
+  }
+
+  /**
+   * Appends the chars.
+   *
+   * @param cbuf The chars
+   */
+  @Override
+  public void write(final char[] cbuf)
+  {
+    sb.append(cbuf);
+  }
+
+  /**
+   * Appends a part of the chars.
+   *
+   * @param cbuf The chars
+   * @param off The offset
+   * @param len The number of chars
+   */
+  @Override
+  public void write(final char[] cbuf, final int off, final int len)
+  {
+    sb.append(cbuf, off, len);
+  }
+
+  /**
+   * Appends the string.
+   *
+   * @param str The string
+   */
+  @Override
+  public void write(final String str)
+  {
+    sb.append(str);
+  }
+
+  /**
+   * Appends a part of the string.
+   *
+   * @param str The string
+   * @param off The offset
+   * @param len The number of chars
+   */
+  @Override
+  public void write(final String str, final int off, final int len)
+  {
+    sb.append(str, off, off + len);
+  }
+
+  /**
+   * Nothing to flush.
+   */
+  @Override
+  public void flush()
+  {
+  }
+
+  /**
+   * Nothing to close.
+   */
+  @Override
+  public void close()
+  {
+  }
+}
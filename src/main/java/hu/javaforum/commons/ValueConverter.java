@@ -0,0 +1,27 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.text.ParseException;
+
+/**
+ * Converts the text of an XML element to the value of a field. The converters
+ * are registered by target class in the ConverterRegistry; the
+ * implementations must be thread safe.
+ *
+ * @author sabo
+ */
+public interface ValueConverter
+{
+
+  /**
+   * Converts the text to an instance of the target class.
+   *
+   * @param text The text, not null
+   * @return The converted instance
+   * @throws ParseException If the text isn't parseable
+   */
+  Object convert(String text) throws ParseException;
+}
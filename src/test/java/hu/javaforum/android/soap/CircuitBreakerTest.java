@@ -0,0 +1,117 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the state transitions of the CircuitBreaker.
+ *
+ * @author sabo
+ */
+public class CircuitBreakerTest
+{
+
+  /**
+   * The open duration of the breaker (in milliseconds).
+   */
+  private static final long OPEN_DURATION = 50;
+  /**
+   * The breaker.
+   */
+  private CircuitBreaker breaker;
+
+  /**
+   * Creates the breaker: it opens after 2 failed calls, and lets 2 probes
+   * through.
+   */
+  @Before
+  public void setUp()
+  {
+    breaker = new CircuitBreaker();
+    breaker.setSlidingWindow(2, 2);
+    breaker.setOpenDuration(OPEN_DURATION);
+    breaker.setHalfOpenProbes(2);
+  }
+
+  /**
+   * The failed calls open the breaker, and the successful probes close it.
+   *
+   * @throws InterruptedException If the test is interrupted
+   */
+  @Test
+  public void testProbesCloseTheBreaker() throws InterruptedException
+  {
+    open();
+
+    long first = breaker.tryAcquirePermission();
+    long second = breaker.tryAcquirePermission();
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+
+    breaker.onResult(first, true, 0);
+    breaker.onResult(second, true, 0);
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  /**
+   * The late outcome of a call permitted by the closed breaker isn't counted
+   * as a probe of the half open breaker.
+   *
+   * @throws InterruptedException If the test is interrupted
+   */
+  @Test
+  public void testStaleResultIsDropped() throws InterruptedException
+  {
+    long stale = breaker.tryAcquirePermission();
+    open();
+
+    long probe = breaker.tryAcquirePermission();
+    breaker.onResult(stale, true, 0);
+    breaker.onResult(probe, true, 0);
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    Assert.assertEquals(1, breaker.getBufferedCalls());
+  }
+
+  /**
+   * The late release of a call permitted by the closed breaker doesn't free
+   * a probe of the half open breaker.
+   *
+   * @throws InterruptedException If the test is interrupted
+   */
+  @Test
+  public void testStaleReleaseIsDropped() throws InterruptedException
+  {
+    long stale = breaker.tryAcquirePermission();
+    open();
+
+    breaker.tryAcquirePermission();
+    long probe = breaker.tryAcquirePermission();
+    breaker.onIgnored(stale);
+    Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+
+    breaker.onIgnored(probe);
+    Assert.assertTrue(breaker.tryAcquirePermission() != CircuitBreaker.NOT_PERMITTED);
+  }
+
+  /**
+   * Opens the breaker with failed calls, and waits for the open duration.
+   *
+   * @throws InterruptedException If the test is interrupted
+   */
+  private void open() throws InterruptedException
+  {
+    for (int index = 0; index < 2; index++)
+    {
+      breaker.onResult(breaker.tryAcquirePermission(), false, 0);
+    }
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertEquals(CircuitBreaker.NOT_PERMITTED, breaker.tryAcquirePermission());
+
+    Thread.sleep(OPEN_DURATION * 2);
+  }
+}
@@ -0,0 +1,445 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import hu.javaforum.android.soap.impl.SimpleBody;
+import hu.javaforum.android.soap.impl.SimpleEnvelope;
+import hu.javaforum.android.soap.impl.SimpleHeader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the compression of the requests and the responses of the Transport
+ * against a loopback HTTP stub. The stub records the Content-Encoding and the
+ * decoded body of the requests, and replies the fixture in the given
+ * encoding.
+ *
+ * @author sabo
+ */
+public class CompressionTest
+{
+
+  /**
+   * The namespace of the envelopes.
+   */
+  private static final String NAMESPACE = "urn:partner.soap.sforce.com";
+  /**
+   * The encoding of the envelopes.
+   */
+  private static final String ENCODING = "UTF-8";
+  /**
+   * The name in the response.
+   */
+  private static final String NAME = "Löwenbräu";
+  /**
+   * The long value in the response.
+   */
+  private static final long SOME_LONG = 123456789L;
+  /**
+   * The size of the copy buffer.
+   */
+  private static final int BUFFER_SIZE = 8192;
+  /**
+   * The loopback server.
+   */
+  private static HttpServer server;
+  /**
+   * The URL of the stub.
+   */
+  private static String url;
+  /**
+   * The Content-Encoding of the next response, null if it isn't encoded.
+   */
+  private static volatile String responseEncoding;
+  /**
+   * The response body in the encoding of the next response.
+   */
+  private static volatile byte[] responseBody;
+  /**
+   * The Content-Encoding of the last request.
+   */
+  private static volatile String requestEncoding;
+  /**
+   * The Accept-Encoding of the last request.
+   */
+  private static volatile String requestAcceptEncoding;
+  /**
+   * The decoded body of the last request.
+   */
+  private static volatile byte[] requestBody;
+  /**
+   * The request envelope.
+   */
+  private Envelope request;
+  /**
+   * The response.
+   */
+  private byte[] response;
+  /**
+   * The transport of the test.
+   */
+  private Transport transport;
+
+  /**
+   * Starts the stub.
+   *
+   * @throws IOException If the server cannot be started
+   */
+  @BeforeClass
+  public static void startServer() throws IOException
+  {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler()
+    {
+
+      public void handle(final HttpExchange exchange) throws IOException
+      {
+        requestEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        requestAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        InputStream is = exchange.getRequestBody();
+        if ("gzip".equals(requestEncoding))
+        {
+          is = new GZIPInputStream(is);
+        }
+        requestBody = readFully(is);
+
+        if (responseEncoding != null)
+        {
+          exchange.getResponseHeaders().set("Content-Encoding", responseEncoding);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+        byte[] body = responseBody;
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+  }
+
+  /**
+   * Stops the stub.
+   */
+  @AfterClass
+  public static void stopServer()
+  {
+    server.stop(0);
+  }
+
+  /**
+   * Creates the request, the response and the transport.
+   *
+   * @throws IOException When IO error occurred
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    EchoResult echo = new EchoResult();
+    echo.setMyName(NAME);
+    echo.setSomeLong(SOME_LONG);
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("echo", echo);
+    request = new SimpleEnvelope(NAMESPACE);
+    request.setHeader(new SimpleHeader());
+    request.setBody(new SimpleBody("echo", parameters));
+
+    response = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\""
+            + " xmlns=\"" + NAMESPACE + "\"><soapenv:Body><result>"
+            + "<myName>" + NAME + "</myName><someLong>" + SOME_LONG + "</someLong>"
+            + "</result></soapenv:Body></soapenv:Envelope>").getBytes(ENCODING);
+    responseEncoding = null;
+    responseBody = response;
+    transport = new HttpTransport(url);
+  }
+
+  /**
+   * Closes the transport.
+   */
+  @After
+  public void tearDown()
+  {
+    transport.close();
+  }
+
+  /**
+   * The response without Content-Encoding is parsed.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testIdentityResponse() throws IOException
+  {
+    assertResponse(null, response);
+  }
+
+  /**
+   * The gzip response is decompressed.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testGzipResponse() throws IOException
+  {
+    assertResponse("gzip", gzip(response));
+  }
+
+  /**
+   * The x-gzip response is decompressed.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testXGzipResponse() throws IOException
+  {
+    assertResponse("x-gzip", gzip(response));
+  }
+
+  /**
+   * The zlib wrapped deflate response is decompressed.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testZlibDeflateResponse() throws IOException
+  {
+    assertResponse("deflate", deflate(response, false));
+  }
+
+  /**
+   * The raw deflate response is decompressed.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testRawDeflateResponse() throws IOException
+  {
+    assertResponse("deflate", deflate(response, true));
+  }
+
+  /**
+   * The response in an unknown encoding fails the call.
+   */
+  @Test
+  public void testUnknownEncoding()
+  {
+    responseEncoding = "br";
+    try
+    {
+      transport.call(request, EchoResult.class, Exception.class);
+      Assert.fail("The call didn't fail");
+    } catch (IOException except)
+    {
+      Assert.assertTrue(except.toString(),
+              String.valueOf(except.getMessage()).contains("Unsupported content encoding: br"));
+    }
+  }
+
+  /**
+   * The compressed responses are requested only, if the response compression
+   * is on.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testAcceptEncoding() throws IOException
+  {
+    transport.call(request, EchoResult.class, Exception.class);
+    Assert.assertEquals("gzip, deflate", requestAcceptEncoding);
+
+    transport.setResponseCompression(false);
+    transport.call(request, EchoResult.class, Exception.class);
+    Assert.assertNull(requestAcceptEncoding);
+  }
+
+  /**
+   * The request isn't compressed, if the threshold is above its length.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testRequestBelowThreshold() throws IOException
+  {
+    assertRequest(serialize().length + 1, false);
+  }
+
+  /**
+   * The request isn't compressed, if its length is the threshold.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testRequestAtThreshold() throws IOException
+  {
+    assertRequest(serialize().length, false);
+  }
+
+  /**
+   * The request is compressed, if it is longer than the threshold.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testRequestAboveThreshold() throws IOException
+  {
+    assertRequest(serialize().length - 1, true);
+  }
+
+  /**
+   * Every request is compressed with the zero threshold.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testRequestZeroThreshold() throws IOException
+  {
+    assertRequest(0, true);
+  }
+
+  /**
+   * The request isn't compressed with the negative threshold.
+   *
+   * @throws IOException If the call fails
+   */
+  @Test
+  public void testRequestCompressionOff() throws IOException
+  {
+    assertRequest(-1, false);
+  }
+
+  /**
+   * Calls the stub with the encoded response, and checks the result.
+   *
+   * @param encoding The Content-Encoding of the response
+   * @param body The encoded response
+   * @throws IOException If the call fails
+   */
+  private void assertResponse(final String encoding, final byte[] body) throws IOException
+  {
+    responseEncoding = encoding;
+    responseBody = body;
+
+    EchoResult result = transport.call(request, EchoResult.class, Exception.class);
+    Assert.assertEquals(NAME, result.getMyName());
+    Assert.assertEquals(SOME_LONG, result.getSomeLong());
+  }
+
+  /**
+   * Calls the stub with the request compression threshold, and checks the
+   * Content-Encoding and the decoded body of the request.
+   *
+   * @param threshold The request compression threshold
+   * @param compressed True, if the request must be compressed
+   * @throws IOException If the call fails
+   */
+  private void assertRequest(final int threshold, final boolean compressed) throws IOException
+  {
+    transport.setRequestCompressionThreshold(threshold);
+    transport.call(request, EchoResult.class, Exception.class);
+
+    Assert.assertEquals(compressed ? "gzip" : null, requestEncoding);
+    Assert.assertArrayEquals(serialize(), requestBody);
+  }
+
+  /**
+   * Serializes the request envelope.
+   *
+   * @return The bytes of the envelope
+   * @throws IOException When IO error occurred
+   */
+  private byte[] serialize() throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Writer writer = new OutputStreamWriter(baos, ENCODING);
+    request.writeTo(writer);
+    writer.close();
+
+    return baos.toByteArray();
+  }
+
+  /**
+   * Compresses the bytes with gzip.
+   *
+   * @param bytes The bytes
+   * @return The compressed bytes
+   * @throws IOException When IO error occurred
+   */
+  private static byte[] gzip(final byte[] bytes) throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(baos);
+    gzip.write(bytes);
+    gzip.close();
+
+    return baos.toByteArray();
+  }
+
+  /**
+   * Compresses the bytes with deflate.
+   *
+   * @param bytes The bytes
+   * @param raw True, if the zlib header and trailer are omitted
+   * @return The compressed bytes
+   * @throws IOException When IO error occurred
+   */
+  private static byte[] deflate(final byte[] bytes, final boolean raw) throws IOException
+  {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+    try
+    {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      DeflaterOutputStream deflate = new DeflaterOutputStream(baos, deflater);
+      deflate.write(bytes);
+      deflate.close();
+
+      return baos.toByteArray();
+    } finally
+    {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Reads the stream to the end.
+   *
+   * @param is The stream
+   * @return The bytes
+   * @throws IOException When IO error occurred
+   */
+  private static byte[] readFully(final InputStream is) throws IOException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    for (int count = is.read(buffer); count >= 0; count = is.read(buffer))
+    {
+      baos.write(buffer, 0, count);
+    }
+    is.close();
+
+    return baos.toByteArray();
+  }
+}
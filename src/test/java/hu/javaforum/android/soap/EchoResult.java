@@ -0,0 +1,64 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap;
+
+/**
+ * The result element of the responses of the test stubs, and the parameter
+ * of their requests.
+ *
+ * @author sabo
+ */
+public class EchoResult
+{
+
+  /**
+   * The name.
+   */
+  private String myName;
+  /**
+   * The long value.
+   */
+  private long someLong;
+
+  /**
+   * Gets the name.
+   *
+   * @return The name
+   */
+  public final String getMyName()
+  {
+    return myName;
+  }
+
+  /**
+   * Sets the name.
+   *
+   * @param myName The name
+   */
+  public final void setMyName(final String myName)
+  {
+    this.myName = myName;
+  }
+
+  /**
+   * Gets the long value.
+   *
+   * @return The long value
+   */
+  public final long getSomeLong()
+  {
+    return someLong;
+  }
+
+  /**
+   * Sets the long value.
+   *
+   * @param someLong The long value
+   */
+  public final void setSomeLong(final long someLong)
+  {
+    this.someLong = someLong;
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.commons;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the zones of the DateTimeHelper.parseDateTime() method against the
+ * SimpleDateFormat.
+ *
+ * @author sabo
+ */
+public class DateTimeHelperTest
+{
+
+  /**
+   * The pattern of the values with zone.
+   */
+  private static final String PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+  /**
+   * The ISO-8601 zones are parsed.
+   *
+   * @throws ParseException If a value is not parseable
+   */
+  @Test
+  public void testIsoZones() throws ParseException
+  {
+    Date expected = parse("2011-01-01T10:00:00.000+0100");
+    Assert.assertEquals(expected, DateTimeHelper.parseDateTime("2011-01-01T10:00:00.000+01:00"));
+    Assert.assertEquals(expected, DateTimeHelper.parseDateTime("2011-01-01T10:00:00.000+0100"));
+    Assert.assertEquals(expected, DateTimeHelper.parseDateTime("2011-01-01T10:00:00.000+01"));
+    Assert.assertEquals(expected, DateTimeHelper.parseDateTime("2011-01-01T09:00:00.000Z"));
+  }
+
+  /**
+   * The general time zones of the SimpleDateFormat are parsed.
+   *
+   * @throws ParseException If a value is not parseable
+   */
+  @Test
+  public void testGeneralZones() throws ParseException
+  {
+    String[] values =
+    {
+      "2011-01-01T10:00:00.000GMT+01:00", "2011-01-01T10:00:00.000GMT+1:00",
+      "2011-01-01T10:00:00.000GMT-05:30", "2011-01-01T10:00:00.000GMT"
+    };
+    for (String value : values)
+    {
+      Assert.assertEquals(value, parse(value), DateTimeHelper.parseDateTime(value));
+    }
+    Assert.assertEquals(parse("2011-01-01T10:00:00.000GMT+01:00"),
+            DateTimeHelper.parseDateTime("2011-01-01T10:00:00.000UTC+01:00"));
+  }
+
+  /**
+   * The broken zones are not parseable.
+   */
+  @Test
+  public void testBrokenZones()
+  {
+    String[] values =
+    {
+      "2011-01-01T10:00:00.000GMTZ", "2011-01-01T10:00:00.000GMT+", "2011-01-01T10:00:00.000GM+01:00",
+      "2011-01-01T10:00:00.000+1:00"
+    };
+    for (String value : values)
+    {
+      try
+      {
+        DateTimeHelper.parseDateTime(value);
+        Assert.fail(value);
+      } catch (ParseException except)
+      {
+        Assert.assertTrue(value, except.getMessage().contains(value));
+      }
+    }
+  }
+
+  /**
+   * Parses the value with the SimpleDateFormat.
+   *
+   * @param value The value
+   * @return The Date instance
+   * @throws ParseException If the value is not parseable
+   */
+  private static Date parse(final String value) throws ParseException
+  {
+    return new SimpleDateFormat(PATTERN, Locale.ENGLISH).parse(value);
+  }
+}
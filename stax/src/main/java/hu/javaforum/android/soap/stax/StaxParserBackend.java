@@ -0,0 +1,200 @@
+/**
+ * CC-LGPL 2.1
+ * http://creativecommons.org/licenses/LGPL/2.1/
+ */
+package hu.javaforum.android.soap.stax;
+
+import hu.javaforum.android.soap.parser.ParserBackend;
+import hu.javaforum.android.soap.parser.ParserCallback;
+import hu.javaforum.android.soap.parser.ParserException;
+import hu.javaforum.android.soap.parser.ParserSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * StAX (javax.xml.stream) based parser backend for the server JVMs.
+ *
+ * The default constructor uses the XMLInputFactory.newInstance() lookup, so
+ * a faster implementation on the classpath (e.g. Aalto or Woodstox) is used
+ * automatically; an explicit factory can be passed to the other constructor:
+ *
+ * transport.setParserBackend(new StaxParserBackend(new com.fasterxml.aalto.stax.InputFactoryImpl()));
+ *
+ * The DTDs and the external entities are disabled.
+ *
+ * @author sabo
+ */
+public final class StaxParserBackend implements ParserBackend
+{
+
+  /**
+   * The factory, it is not modified after the constructor.
+   */
+  private final XMLInputFactory factory;
+
+  /**
+   * Creates the backend with the default XMLInputFactory.
+   */
+  public StaxParserBackend()
+  {
+    this(XMLInputFactory.newInstance());
+  }
+
+  /**
+   * Creates the backend with the factory.
+   *
+   * @param factory The factory
+   */
+  public StaxParserBackend(final XMLInputFactory factory)
+  {
+    this.factory = factory;
+    this.factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    this.factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+  }
+
+  /**
+   * Opens a parser session on the stream.
+   *
+   * @param is The stream of the XML
+   * @param callback The callback
+   * @return The session
+   * @throws IOException If the parser can't be initialized
+   */
+  public ParserSession open(final InputStream is, final ParserCallback callback) throws IOException
+  {
+    try
+    {
+      return new StaxSession(factory.createXMLStreamReader(is), callback);
+    } catch (XMLStreamException except)
+    {
+      throw new ParserException(except.getMessage(), except);
+    }
+  }
+
+  /**
+   * The session of a document.
+   */
+  private static final class StaxSession implements ParserSession
+  {
+
+    /**
+     * The callback.
+     */
+    private final ParserCallback callback;
+    /**
+     * The reader, it is null after the session is closed.
+     */
+    private XMLStreamReader reader;
+
+    /**
+     * The constructor.
+     *
+     * @param reader The reader
+     * @param callback The callback
+     */
+    StaxSession(final XMLStreamReader reader, final ParserCallback callback)
+    {
+      this.reader = reader;
+      this.callback = callback;
+    }
+
+    /**
+     * Parses the next event.
+     *
+     * @return False, if the end of the document is reached
+     * @throws IOException If the document can't be read or parsed
+     */
+    public boolean next() throws IOException
+    {
+      if (reader == null)
+      {
+        return false;
+      }
+
+      boolean more = false;
+      try
+      {
+        int eventType = reader.next();
+        switch (eventType)
+        {
+          case XMLStreamConstants.START_ELEMENT:
+            if (callback.startTag(reader.getLocalName()) == ParserCallback.SKIP_SUBTREE)
+            {
+              skipSubtree();
+              callback.endTag(reader.getLocalName());
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            callback.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            callback.endTag(reader.getLocalName());
+            break;
+          default:
+            break;
+        }
+        more = eventType != XMLStreamConstants.END_DOCUMENT;
+
+        return more;
+      } catch (XMLStreamException except)
+      {
+        throw new ParserException(except.getMessage(), except);
+      } finally
+      {
+        if (!more)
+        {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Skips the events to the matching end element by the depth.
+     *
+     * @throws XMLStreamException If the document can't be parsed
+     */
+    private void skipSubtree() throws XMLStreamException
+    {
+      int level = 1;
+      while (level > 0)
+      {
+        int eventType = reader.next();
+        if (eventType == XMLStreamConstants.START_ELEMENT)
+        {
+          level++;
+        } else if (eventType == XMLStreamConstants.END_ELEMENT)
+        {
+          level--;
+        }
+      }
+    }
+
+    /**
+     * Closes the reader; the stream is closed by the Transport.
+     */
+    public void close()
+    {
+      XMLStreamReader closedReader = reader;
+      if (closedReader != null)
+      {
+        reader = null;
+        try
+        {
+          closedReader.close();
+        } catch (XMLStreamException except)
+        {
+          return;
+        }
+      }
+    }
+  }
+}